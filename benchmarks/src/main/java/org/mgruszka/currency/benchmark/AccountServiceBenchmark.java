@@ -0,0 +1,76 @@
+package org.mgruszka.currency.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mgruszka.currency.model.AccountDetailsDTO;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.mgruszka.currency.service.AccountCache;
+import org.mgruszka.currency.service.AccountService;
+import org.mgruszka.currency.service.ExchangeLedger;
+import org.mgruszka.currency.service.ExchangeMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AccountService} with Mongo and NBP stubbed out. The service is shared by all benchmark threads
+ * so multi-threaded runs also show contention in the account cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccountServiceBenchmark {
+
+    private static final String ACCOUNT_ID = "benchmark-account-id";
+
+    private AccountService accountService;
+
+    private AccountService uncachedAccountService;
+
+    private ExchangeLedger exchangeLedger;
+
+    @Setup
+    public void setUp() {
+        exchangeLedger = Stubs.exchangeLedger();
+        accountService = new AccountService(Stubs.accountRepository(Stubs.account(ACCOUNT_ID)), new ObjectMapper(),
+                Stubs.exchangeRateService(3.9876), new AccountCache(100_000, Duration.ofHours(1)), new ExchangeMetrics(new SimpleMeterRegistry()),
+                exchangeLedger, 1000);
+        uncachedAccountService = new AccountService(Stubs.accountRepository(Stubs.account(ACCOUNT_ID)), new ObjectMapper(),
+                Stubs.exchangeRateService(3.9876), new AccountCache(0, Duration.ofHours(1)), new ExchangeMetrics(new SimpleMeterRegistry()),
+                exchangeLedger, 1000);
+    }
+
+    @TearDown
+    public void tearDown() {
+        exchangeLedger.stop();
+    }
+
+    @Benchmark
+    public AccountDetailsDTO exchangeCurrency() {
+        return accountService.exchangeCurrency(ACCOUNT_ID, 123.45, TargetCurrency.USD);
+    }
+
+    @Benchmark
+    public AccountDetailsDTO getAccountCached() {
+        return accountService.getAccount(ACCOUNT_ID);
+    }
+
+    @Benchmark
+    public AccountDetailsDTO getAccountUncached() {
+        return uncachedAccountService.getAccount(ACCOUNT_ID);
+    }
+}
@@ -0,0 +1,106 @@
+package org.mgruszka.currency.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.mgruszka.currency.security.AccessLog;
+import org.mgruszka.currency.security.AuthenticationFilter;
+import org.mgruszka.currency.security.TokenVerifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of {@link AuthenticationFilter}, with and without a bearer token and at different access log
+ * sample rates. A client repeats its token, so after the first request verification is a cache hit; sampled
+ * entries are written to a file by the access log thread as configured in {@code logback.xml}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AuthenticationFilterBenchmark {
+
+    private static final String SECRET = "benchmark-secret-of-at-least-thirty-two-bytes";
+
+    @Param({"false", "true"})
+    public boolean jwt;
+
+    @Param({"0", "0.01", "1"})
+    public double sampleRate;
+
+    private BenchmarkFilter filter;
+
+    private AccessLog accessLog;
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/accounts/benchmark-account-id");
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    private final FilterChain chain = (req, res) -> {
+    };
+
+    @Setup(Level.Trial)
+    public void setUp() throws GeneralSecurityException {
+        accessLog = new AccessLog(sampleRate, 4096, new SimpleMeterRegistry());
+        accessLog.start();
+        filter = new BenchmarkFilter(new TokenVerifier(SECRET, 100_000), accessLog, jwt);
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        accessLog.stop();
+    }
+
+    @Benchmark
+    public void doFilter() throws ServletException, IOException {
+        filter.invoke(request, response, chain);
+    }
+
+    private static String token() throws GeneralSecurityException {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String payload = "{\"sub\":\"benchmark\",\"exp\":" + Instant.now().plusSeconds(3600).getEpochSecond() + "}";
+        String signingInput = encoder.encodeToString("{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8))
+                + "." + encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return signingInput + "." + encoder.encodeToString(mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static class BenchmarkFilter extends AuthenticationFilter {
+        BenchmarkFilter(TokenVerifier tokenVerifier, AccessLog accessLog, boolean jwt) {
+            super(tokenVerifier, accessLog, jwt);
+        }
+
+        void invoke(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+            doFilterInternal(request, response, chain);
+        }
+    }
+}
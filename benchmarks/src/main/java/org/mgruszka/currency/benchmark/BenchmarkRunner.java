@@ -0,0 +1,30 @@
+package org.mgruszka.currency.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the selected benchmarks (all of them by default) with 1, 4 and 8 threads and the GC profiler enabled,
+ * so allocation rates are reported next to timings.
+ * <p>
+ * {@code java -cp benchmarks/target/benchmarks.jar org.mgruszka.currency.benchmark.BenchmarkRunner [regexp]}
+ */
+public class BenchmarkRunner {
+
+    private static final int[] THREADS = {1, 4, 8};
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "org.mgruszka.currency.benchmark.*";
+        for (int threads : THREADS) {
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.mgruszka.currency.benchmark;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.mgruszka.currency.model.Account;
+import org.mgruszka.currency.model.AccountDetailsDTO;
+import org.mgruszka.currency.model.Money;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping {@link Account} to {@link AccountDetailsDTO} through {@link ObjectMapper#convertValue}, as the service
+ * used to do, against the direct constructor call it does now.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DtoMappingBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Account account = Stubs.account("benchmark-account-id");
+
+    @Benchmark
+    public AccountDetailsDTO objectMapperConvertValue() {
+        return objectMapper.convertValue(account, AccountDetailsDTO.class);
+    }
+
+    @Benchmark
+    public AccountDetailsDTO directMapping() {
+        Map<TargetCurrency, Double> balances = new EnumMap<>(TargetCurrency.class);
+        account.getBalances().forEach((currency, balance) -> balances.put(currency, Money.toMajorUnits(balance)));
+        return new AccountDetailsDTO(account.getId(), account.getFirstName(), account.getLastName(),
+                Money.toMajorUnits(account.getBalance(TargetCurrency.PLN)), Money.toMajorUnits(account.getBalance(TargetCurrency.USD)), balances,
+                account.getVersion());
+    }
+}
@@ -0,0 +1,71 @@
+package org.mgruszka.currency.benchmark;
+
+import org.mgruszka.currency.exceptions.DefaultExceptionHandler;
+import org.mgruszka.currency.exceptions.InsufficientFundsException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a rejected exchange from the throw to the response entity, thrown {@code depth} frames below the
+ * handler the way a service call sits below the filters, interceptors and proxies of a request. The baseline
+ * is how it used to be: a new exception capturing its stack and a new response for every rejection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ErrorPathBenchmark {
+
+    @Param({"20", "100"})
+    public int depth;
+
+    private final DefaultExceptionHandler handler = new DefaultExceptionHandler();
+
+    @Benchmark
+    public ResponseEntity<?> newExceptionWithStackTrace() {
+        try {
+            throwAt(depth, true);
+            return null;
+        } catch (StackTraceException e) {
+            return new ResponseEntity<>("Insufficient funds on Your account", HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<?> sharedStacklessException() {
+        try {
+            throwAt(depth, false);
+            return null;
+        } catch (InsufficientFundsException e) {
+            return handler.handleInsufficientFundsException(e);
+        }
+    }
+
+    private static void throwAt(int depth, boolean withStackTrace) {
+        if (depth > 0) {
+            throwAt(depth - 1, withStackTrace);
+            return;
+        }
+        if (withStackTrace) {
+            throw new StackTraceException();
+        }
+        throw InsufficientFundsException.INSTANCE;
+    }
+
+    private static class StackTraceException extends RuntimeException {
+    }
+}
@@ -0,0 +1,185 @@
+package org.mgruszka.currency.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Closed-loop load test against a running instance. For every concurrency level the given number of clients
+ * keep alternating an exchange and an account read on their own account, and the maximum number of requests
+ * in flight, throughput and latency percentiles are reported. Requests shed by admission control with
+ * {@code 429} are counted apart from errors; raise {@code admission.account.rate} to measure the node itself.
+ * <p>
+ * Start the application once with {@code spring.threads.virtual.enabled=false} and once with {@code true}
+ * and compare the output:
+ * <p>
+ * {@code java -cp benchmarks/target/benchmarks.jar org.mgruszka.currency.benchmark.ExchangeLoadTest
+ * [baseUrl] [seconds per level] [levels...]}
+ */
+public class ExchangeLoadTest {
+
+    private static final String DEFAULT_BASE_URL = "http://localhost:8080";
+    private static final int DEFAULT_SECONDS = 20;
+    private static final int[] DEFAULT_LEVELS = {50, 200, 400, 800, 1600};
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    private final String baseUrl;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    ExchangeLoadTest(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : DEFAULT_BASE_URL;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SECONDS;
+        int[] levels = args.length > 2
+                ? Arrays.stream(args, 2, args.length).mapToInt(Integer::parseInt).toArray()
+                : DEFAULT_LEVELS;
+
+        ExchangeLoadTest loadTest = new ExchangeLoadTest(baseUrl);
+        System.out.printf("%8s %12s %10s %10s %10s %10s %8s %8s%n",
+                "clients", "max-inflight", "req/s", "p50 ms", "p99 ms", "max ms", "shed", "errors");
+        for (int clients : levels) {
+            Result result = loadTest.run(clients, Duration.ofSeconds(seconds));
+            System.out.printf("%8d %12d %10.0f %10.1f %10.1f %10.1f %8d %8d%n",
+                    clients, result.maxInFlight(), result.throughput(),
+                    result.percentileMillis(0.50), result.percentileMillis(0.99), result.percentileMillis(1.0),
+                    result.shed(), result.errors());
+        }
+    }
+
+    Result run(int clients, Duration duration) throws Exception {
+        List<String> accountIds = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            accountIds.add(createAccount(i));
+        }
+        inFlight.set(0);
+        maxInFlight.set(0);
+
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<Worker>> workers = new ArrayList<>(clients);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String accountId : accountIds) {
+                workers.add(executor.submit(() -> new Worker(accountId).runUntil(deadline)));
+            }
+        }
+
+        long requests = 0;
+        long shed = 0;
+        long errors = 0;
+        long[][] latencies = new long[clients][];
+        for (int i = 0; i < clients; i++) {
+            Worker worker = workers.get(i).get();
+            requests += worker.count;
+            shed += worker.shed;
+            errors += worker.errors;
+            latencies[i] = Arrays.copyOf(worker.latencies, worker.count);
+        }
+        long[] merged = new long[(int) requests];
+        int offset = 0;
+        for (long[] workerLatencies : latencies) {
+            System.arraycopy(workerLatencies, 0, merged, offset, workerLatencies.length);
+            offset += workerLatencies.length;
+        }
+        Arrays.sort(merged);
+        return new Result(maxInFlight.get(), requests / (double) duration.toSeconds(), merged, shed, errors);
+    }
+
+    private String createAccount(int index) throws IOException, InterruptedException {
+        String body = "{\"firstName\":\"Load\",\"lastName\":\"Test" + index + "\",\"initialBalance\":1000000}";
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/accounts"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200 && response.statusCode() != 201) {
+            throw new IllegalStateException("Could not create account, status " + response.statusCode());
+        }
+        return response.body().replace("\"", "").trim();
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private final class Worker {
+        private final HttpRequest exchange;
+        private final HttpRequest details;
+        private long[] latencies = new long[1024];
+        private int count;
+        private long shed;
+        private long errors;
+
+        Worker(String accountId) {
+            URI account = URI.create(baseUrl + "/api/accounts/" + accountId);
+            this.exchange = HttpRequest.newBuilder(URI.create(account + "/exchange?amount=1&targetCurrency=USD"))
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build();
+            this.details = HttpRequest.newBuilder(account).GET().build();
+        }
+
+        Worker runUntil(long deadline) {
+            boolean write = true;
+            while (System.nanoTime() < deadline) {
+                long start = System.nanoTime();
+                try {
+                    int status = send(write ? exchange : details);
+                    if (status == 429) {
+                        shed++;
+                    } else if (status >= 500) {
+                        errors++;
+                    }
+                } catch (IOException e) {
+                    errors++;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                record(System.nanoTime() - start);
+                write = !write;
+            }
+            return this;
+        }
+
+        private void record(long nanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+    }
+
+    record Result(int maxInFlight, double throughput, long[] sortedLatencies, long shed, long errors) {
+        double percentileMillis(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, index)] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
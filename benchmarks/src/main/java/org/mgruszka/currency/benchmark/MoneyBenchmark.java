@@ -0,0 +1,53 @@
+package org.mgruszka.currency.benchmark;
+
+import org.mgruszka.currency.model.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares exchange arithmetic on {@code double} balances rounded through {@link BigDecimal}
+ * (how {@code AccountService} used to do it) with fixed-point minor units from {@link Money}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoneyBenchmark {
+
+    private double balancePLN = 1000.0;
+    private double balanceUSD = 20.37;
+    private double amount = 123.45;
+    private double rate = 3.9876;
+
+    private long balancePLNMinor = 100000;
+    private long balanceUSDMinor = 2037;
+    private long amountMinor = 12345;
+    private long fixedRate = Money.toFixedRate(3.9876);
+
+    @Benchmark
+    public double legacyDoubleWithBigDecimalRounding() {
+        double pln = balancePLN - amount;
+        double usd = BigDecimal.valueOf(balanceUSD + (amount / rate)).setScale(2, RoundingMode.HALF_DOWN).doubleValue();
+        return pln + usd;
+    }
+
+    @Benchmark
+    public long fixedPointMinorUnits() {
+        long pln = balancePLNMinor - amountMinor;
+        long usd = balanceUSDMinor + Money.divide(amountMinor, fixedRate);
+        return pln + usd;
+    }
+}
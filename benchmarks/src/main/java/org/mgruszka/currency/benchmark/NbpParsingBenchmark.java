@@ -0,0 +1,62 @@
+package org.mgruszka.currency.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mgruszka.currency.client.NbpClient;
+import org.mgruszka.currency.model.CrossRateMatrix;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the NBP rate table into a cross-rate matrix, against reading the table with a mapper created
+ * per call like {@code RecentExchangeRateService} used to do for its single USD rate, and the conversion the
+ * matrix then serves from one array read.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NbpParsingBenchmark {
+
+    private static final String RATE_TABLE_RESPONSE = """
+            [{"table":"A","no":"001/A/NBP/2025","effectiveDate":"2025-01-02",
+              "rates":[{"currency":"dolar amerykański","code":"USD","mid":4.1012},
+                       {"currency":"euro","code":"EUR","mid":4.2730},
+                       {"currency":"funt szterling","code":"GBP","mid":5.1349},
+                       {"currency":"frank szwajcarski","code":"CHF","mid":4.5097},
+                       {"currency":"jen (Japonia)","code":"JPY","mid":0.026077}]}]
+            """;
+
+    private final NbpClient nbpClient = new NbpClient("http://localhost/", Duration.ofSeconds(1), Duration.ofSeconds(1),
+            5, Duration.ofSeconds(30), false, new ObjectMapper(), new SimpleMeterRegistry());
+
+    private final CrossRateMatrix rates = nbpClient.parseRateTable(RATE_TABLE_RESPONSE);
+
+    @Benchmark
+    public CrossRateMatrix sharedObjectMapper() {
+        return nbpClient.parseRateTable(RATE_TABLE_RESPONSE);
+    }
+
+    @Benchmark
+    public double objectMapperPerCall() throws Exception {
+        return new ObjectMapper().readTree(RATE_TABLE_RESPONSE).path(0).path("rates").get(0).path("mid").asDouble();
+    }
+
+    @Benchmark
+    public long crossRateConversion() {
+        return rates.convert(12_345, TargetCurrency.EUR, TargetCurrency.JPY);
+    }
+}
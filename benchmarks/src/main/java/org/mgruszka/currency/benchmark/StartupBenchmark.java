@@ -0,0 +1,125 @@
+package org.mgruszka.currency.benchmark;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures time to first successful request: from launching the application jar until it has created an
+ * account, with an in-process MongoDB stand-in, so the result does not depend on a database server. Every run
+ * starts a fresh JVM, the reported times are over all runs of a configuration.
+ * <p>
+ * Build with {@code mvn -Pfast-start package} first, then from the project directory:
+ * <p>
+ * {@code java -cp benchmarks/target/benchmarks.jar org.mgruszka.currency.benchmark.StartupBenchmark
+ * [runs] [configurations...]}
+ * <p>
+ * Configurations are {@code default}, the plain executable jar, and {@code fast-start}, the extracted jar with
+ * Spring AOT and the AppCDS archive.
+ */
+public class StartupBenchmark {
+
+    private static final int DEFAULT_RUNS = 5;
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(120);
+    private static final long POLL_MILLIS = 10;
+
+    private static final Map<String, List<String>> CONFIGURATIONS = Map.of(
+            "default", List.of("-jar", "target/CurrencyApiApplication-1.0-exec.jar"),
+            "fast-start", List.of("-XX:SharedArchiveFile=target/fast-start/application.jsa", "-Dspring.aot.enabled=true",
+                    "-jar", "target/fast-start/CurrencyApiApplication-1.0-exec.jar"));
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_RUNS;
+        List<String> configurations = args.length > 1 ? Arrays.asList(args).subList(1, args.length) : List.of("default", "fast-start");
+
+        StartupBenchmark benchmark = new StartupBenchmark();
+        System.out.printf("%12s %6s %10s %10s %10s%n", "config", "runs", "min ms", "median ms", "max ms");
+        for (String configuration : configurations) {
+            List<String> jvmArguments = CONFIGURATIONS.get(configuration);
+            if (jvmArguments == null) {
+                throw new IllegalArgumentException("Unknown configuration " + configuration + ", expected one of " + CONFIGURATIONS.keySet());
+            }
+            long[] millis = new long[runs];
+            for (int i = 0; i < runs; i++) {
+                millis[i] = benchmark.run(jvmArguments);
+            }
+            Arrays.sort(millis);
+            System.out.printf("%12s %6d %10d %10d %10d%n", configuration, runs, millis[0], millis[runs / 2], millis[runs - 1]);
+        }
+    }
+
+    /**
+     * @return milliseconds from launching the JVM until the first account was created
+     */
+    long run(List<String> jvmArguments) throws IOException, InterruptedException {
+        MongoServer mongoServer = new MongoServer(new MemoryBackend());
+        InetSocketAddress mongoAddress = mongoServer.bind();
+        int port = freePort();
+        Path log = Files.createTempFile("startup-benchmark", ".log");
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArguments);
+        command.add("--server.port=" + port);
+        command.add("--spring.data.mongodb.uri=mongodb://localhost:" + mongoAddress.getPort() + "/currency");
+        command.add("--account.migration.minor-units.enabled=false");
+        command.add("--account.migration.balances-map.enabled=false");
+        // nothing listens there, the rate refresh fails fast instead of reaching out to NBP
+        command.add("--nbp.api.table-url=http://localhost:9/");
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/accounts"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"firstName\":\"Startup\",\"lastName\":\"Benchmark\",\"initialBalance\":100}"))
+                    .build();
+            while (System.nanoTime() - start < TIMEOUT_NANOS) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with " + process.exitValue() + ", see " + log);
+                }
+                try {
+                    if (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 201) {
+                        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                        Files.delete(log);
+                        return millis;
+                    }
+                } catch (IOException e) {
+                    // not listening yet
+                }
+                Thread.sleep(POLL_MILLIS);
+            }
+            throw new IllegalStateException("No successful request within " + TimeUnit.NANOSECONDS.toSeconds(TIMEOUT_NANOS) + " s, see " + log);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+            mongoServer.shutdownNow();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.mgruszka.currency.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mgruszka.currency.model.Account;
+import org.mgruszka.currency.model.CrossRateMatrix;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.mgruszka.currency.repository.AccountRepository;
+import org.mgruszka.currency.repository.LedgerRepository;
+import org.mgruszka.currency.service.ExchangeLedger;
+import org.mgruszka.currency.service.RecentExchangeRateService;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory stand-ins for Mongo and NBP so benchmarks measure only application code.
+ */
+final class Stubs {
+
+    private Stubs() {
+    }
+
+    /**
+     * Repository answering every {@code findById} and {@code exchange} with the same account.
+     */
+    static AccountRepository accountRepository(Account account) {
+        Optional<Account> result = Optional.of(account);
+        return (AccountRepository) Proxy.newProxyInstance(AccountRepository.class.getClassLoader(),
+                new Class<?>[]{AccountRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findById", "exchange" -> result;
+                    case "existsById" -> true;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "StubAccountRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * Batched ledger, already started, whose writer discards every entry.
+     */
+    static ExchangeLedger exchangeLedger() {
+        LedgerRepository repository = (LedgerRepository) Proxy.newProxyInstance(LedgerRepository.class.getClassLoader(),
+                new Class<?>[]{LedgerRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "append" -> null;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "StubLedgerRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        ExchangeLedger ledger = new ExchangeLedger(repository, ExchangeLedger.Durability.BATCHED, 10_000, 500, new SimpleMeterRegistry());
+        ledger.start();
+        return ledger;
+    }
+
+    static RecentExchangeRateService exchangeRateService(double usdRate) {
+        CrossRateMatrix rates = CrossRateMatrix.of(LocalDate.of(2025, 1, 2), Map.of(TargetCurrency.USD, usdRate));
+        return new RecentExchangeRateService(null, Duration.ofDays(1), Duration.ofDays(1), new SimpleMeterRegistry(), event -> { }, Optional.empty()) {
+            @Override
+            public CrossRateMatrix getRates() {
+                return rates;
+            }
+        };
+    }
+
+    static Account account(String accountId) {
+        Account account = new Account();
+        account.setId(accountId);
+        account.setFirstName("John");
+        account.setLastName("Doe");
+        account.setBalance(TargetCurrency.PLN, 100_000_000);
+        account.setBalance(TargetCurrency.USD, 2037);
+        return account;
+    }
+}
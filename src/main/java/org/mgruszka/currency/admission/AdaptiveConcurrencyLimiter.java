@@ -0,0 +1,106 @@
+package org.mgruszka.currency.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free limit on requests in flight that follows observed latency. A short and a long moving average of
+ * request latency are kept; while the short one stays within {@link #TOLERANCE} of the long one the limit grows
+ * by about its square root per sample, and when latency rises, because a dependency slows down, the limit
+ * shrinks in proportion, so excess requests are rejected right away instead of queueing.
+ * <p>
+ * Reads may use the whole limit, writes only the part of it not reserved for reads, so reads still get through
+ * when writes saturate the node.
+ */
+final class AdaptiveConcurrencyLimiter {
+
+    enum Priority {
+        READ, WRITE
+    }
+
+    /** weight of a new sample in the short latency average */
+    private static final double SHORT_SMOOTHING = 0.1;
+    /** weight of a new sample in the long latency average, a few hundred samples */
+    private static final double LONG_SMOOTHING = 0.005;
+    /** how much slower than usual requests may get before the limit shrinks */
+    private static final double TOLERANCE = 1.5;
+    /** weight of a newly computed limit */
+    private static final double LIMIT_SMOOTHING = 0.2;
+
+    private record State(double limit, double shortLatency, double longLatency) {
+    }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double readReserve;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicReference<State> state;
+
+    /**
+     * @param readReserve share of the limit writes may not use
+     */
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double readReserve) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.readReserve = readReserve;
+        this.state = new AtomicReference<>(new State(Math.clamp(initialLimit, minLimit, maxLimit), 0, 0));
+    }
+
+    /**
+     * Admits a request when fewer than its share of the limit are in flight, it must be {@link #release released}.
+     */
+    boolean tryAcquire(Priority priority) {
+        double limit = state.get().limit();
+        int allowed = priority == Priority.READ ? (int) limit : Math.max(1, (int) (limit * (1 - readReserve)));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Ends an admitted request and adapts the limit to its latency.
+     */
+    void release(long latencyNanos) {
+        int utilization = inFlight.getAndDecrement();
+        while (true) {
+            State current = state.get();
+            State next = next(current, latencyNanos, utilization);
+            if (state.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    private State next(State current, double latency, int utilization) {
+        double shortLatency = current.shortLatency() == 0 ? latency
+                : current.shortLatency() * (1 - SHORT_SMOOTHING) + latency * SHORT_SMOOTHING;
+        double longLatency = current.longLatency() == 0 ? latency
+                : current.longLatency() * (1 - LONG_SMOOTHING) + latency * LONG_SMOOTHING;
+        // after a long slowdown the long average has absorbed it, let it recover as fast as latency does
+        if (longLatency / shortLatency > 2) {
+            longLatency *= 0.95;
+        }
+        double limit = current.limit();
+        // a limit that is far from used says nothing about what the node can take, keep it
+        if (utilization >= limit / 2) {
+            double gradient = Math.clamp(TOLERANCE * longLatency / shortLatency, 0.5, 1.0);
+            double target = limit * gradient + Math.sqrt(limit);
+            limit = Math.clamp(limit * (1 - LIMIT_SMOOTHING) + target * LIMIT_SMOOTHING, minLimit, maxLimit);
+        }
+        return new State(limit, shortLatency, longLatency);
+    }
+
+    int getLimit() {
+        return (int) state.get().limit();
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+}
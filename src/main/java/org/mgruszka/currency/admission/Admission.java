@@ -0,0 +1,31 @@
+package org.mgruszka.currency.admission;
+
+/**
+ * Outcome of {@link AdmissionControl#tryAdmit}. An admitted request holds a concurrency permit until it is
+ * {@link AdmissionControl#complete completed}.
+ *
+ * @param startNanos {@link System#nanoTime()} when the request was admitted
+ * @param retryAfterNanos how long a rejected client should wait
+ * @param rejectedBy limit that rejected the request, {@code null} when admitted
+ */
+record Admission(long startNanos, long retryAfterNanos, String rejectedBy) {
+
+    static Admission admitted(long startNanos) {
+        return new Admission(startNanos, 0, null);
+    }
+
+    static Admission rejected(String rejectedBy, long retryAfterNanos) {
+        return new Admission(0, retryAfterNanos, rejectedBy);
+    }
+
+    boolean isAdmitted() {
+        return rejectedBy == null;
+    }
+
+    /**
+     * @return whole seconds for the {@code Retry-After} header, at least one
+     */
+    long retryAfterSeconds() {
+        return Math.max(1, (retryAfterNanos + 999_999_999) / 1_000_000_000);
+    }
+}
@@ -0,0 +1,156 @@
+package org.mgruszka.currency.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides whether a request is served or shed before it reaches a controller. Exchanges pass a token bucket of
+ * their account, a global token bucket and the adaptive concurrency limit; account reads pass only the
+ * concurrency limit, within which a share is reserved for them. Every check is lock-free, so rejecting a
+ * request costs next to nothing even when the node is overloaded.
+ */
+@Service
+@ConditionalOnProperty(name = "admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionControl {
+
+    static final String ACCOUNT_RATE = "account-rate";
+    static final String GLOBAL_RATE = "global-rate";
+    static final String CONCURRENCY = "concurrency";
+
+    private static final String ACCOUNTS = "/api/accounts/";
+    private static final String EXCHANGE = "/exchange";
+    private static final String SEARCH = "search";
+    private static final String BATCH = "batch";
+
+    /** a shed request is retried once the limiter had time to adapt */
+    private static final long CONCURRENCY_RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final double accountRate;
+    private final int accountBurst;
+    private final RateLimit globalLimit;
+    private final Cache<String, RateLimit> accountLimits;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final LongSupplier nanoTime;
+    private final Counter accountRateRejections;
+    private final Counter globalRateRejections;
+    private final Counter concurrencyRejections;
+
+    @Autowired
+    public AdmissionControl(@Value("${admission.account.rate:20}") double accountRate,
+                            @Value("${admission.account.burst:40}") int accountBurst,
+                            @Value("${admission.global.rate:5000}") double globalRate,
+                            @Value("${admission.global.burst:500}") int globalBurst,
+                            @Value("${admission.concurrency.initial-limit:100}") int initialLimit,
+                            @Value("${admission.concurrency.min-limit:10}") int minLimit,
+                            @Value("${admission.concurrency.max-limit:1000}") int maxLimit,
+                            @Value("${admission.concurrency.read-reserve:0.2}") double readReserve,
+                            MeterRegistry meterRegistry) {
+        this(accountRate, accountBurst, globalRate, globalBurst,
+                new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, readReserve), meterRegistry, System::nanoTime);
+    }
+
+    AdmissionControl(double accountRate, int accountBurst, double globalRate, int globalBurst,
+                     AdaptiveConcurrencyLimiter concurrencyLimiter, MeterRegistry meterRegistry, LongSupplier nanoTime) {
+        this.accountRate = accountRate;
+        this.accountBurst = accountBurst;
+        this.nanoTime = nanoTime;
+        this.globalLimit = new RateLimit(globalRate, globalBurst, nanoTime.getAsLong());
+        this.concurrencyLimiter = concurrencyLimiter;
+        // a bucket untouched until it refilled is the same as a new one, so idle accounts are simply forgotten
+        this.accountLimits = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofNanos(new RateLimit(accountRate, accountBurst, 0).refillNanos()))
+                .build();
+        this.accountRateRejections = rejections(meterRegistry, ACCOUNT_RATE);
+        this.globalRateRejections = rejections(meterRegistry, GLOBAL_RATE);
+        this.concurrencyRejections = rejections(meterRegistry, CONCURRENCY);
+        Gauge.builder("admission.limit", concurrencyLimiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive limit of requests in flight")
+                .register(meterRegistry);
+        Gauge.builder("admission.in.flight", concurrencyLimiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Admitted requests in flight")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Admits a request to an endpoint under admission control.
+     *
+     * @return {@code null} when the endpoint is not under admission control
+     */
+    Admission tryAdmit(String method, String path) {
+        if (!path.startsWith(ACCOUNTS)) {
+            return null;
+        }
+        String rest = path.substring(ACCOUNTS.length());
+        int slash = rest.indexOf('/');
+        if (slash < 0) {
+            return "GET".equals(method) && !rest.isEmpty() && !SEARCH.equals(rest) ? tryAdmitRead() : null;
+        }
+        if ("POST".equals(method) && EXCHANGE.equals(rest.substring(slash))) {
+            String accountId = rest.substring(0, slash);
+            return tryAdmitExchange(BATCH.equals(accountId) ? null : accountId);
+        }
+        return null;
+    }
+
+    /**
+     * Admits an exchange. A token taken from the account bucket is not returned when a later check rejects the
+     * exchange, so a client retrying against an overloaded node also slows down its own account.
+     *
+     * @param accountId account of a single exchange, {@code null} for a batch
+     */
+    Admission tryAdmitExchange(String accountId) {
+        long now = nanoTime.getAsLong();
+        if (accountId != null) {
+            long wait = accountLimits.get(accountId, id -> new RateLimit(accountRate, accountBurst, now)).tryAcquire(now);
+            if (wait > 0) {
+                accountRateRejections.increment();
+                return Admission.rejected(ACCOUNT_RATE, wait);
+            }
+        }
+        long wait = globalLimit.tryAcquire(now);
+        if (wait > 0) {
+            globalRateRejections.increment();
+            return Admission.rejected(GLOBAL_RATE, wait);
+        }
+        return tryAcquire(AdaptiveConcurrencyLimiter.Priority.WRITE, now);
+    }
+
+    Admission tryAdmitRead() {
+        return tryAcquire(AdaptiveConcurrencyLimiter.Priority.READ, nanoTime.getAsLong());
+    }
+
+    /**
+     * Releases the concurrency permit of an admitted request and feeds its latency to the limiter.
+     */
+    void complete(Admission admission) {
+        if (admission.isAdmitted()) {
+            concurrencyLimiter.release(nanoTime.getAsLong() - admission.startNanos());
+        }
+    }
+
+    private Admission tryAcquire(AdaptiveConcurrencyLimiter.Priority priority, long now) {
+        if (!concurrencyLimiter.tryAcquire(priority)) {
+            concurrencyRejections.increment();
+            return Admission.rejected(CONCURRENCY, CONCURRENCY_RETRY_NANOS);
+        }
+        return Admission.admitted(now);
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String limit) {
+        return Counter.builder("admission.rejected")
+                .description("Requests rejected with 429 before reaching a controller")
+                .tag("limit", limit)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,53 @@
+package org.mgruszka.currency.admission;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.mgruszka.currency.security.AuthenticationFilter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Sheds exchanges and account reads with {@code 429 Too Many Requests} and a {@code Retry-After} header when
+ * {@link AdmissionControl} rejects them. Runs right after authentication, so only requests with a valid token,
+ * when tokens are required, take from the account and global buckets, and ahead of every other filter, so a
+ * rejection costs no further parsing.
+ */
+@Component
+@Order(AuthenticationFilter.ORDER + 1)
+@ConditionalOnProperty(name = "admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest httpRequest, HttpServletResponse httpResponse, FilterChain filterChain) throws IOException, ServletException {
+        Admission admission = admissionControl.tryAdmit(httpRequest.getMethod(), httpRequest.getRequestURI());
+        if (admission == null) {
+            filterChain.doFilter(httpRequest, httpResponse);
+            return;
+        }
+        if (!admission.isAdmitted()) {
+            httpResponse.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            httpResponse.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(admission.retryAfterSeconds()));
+            httpResponse.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            httpResponse.getWriter().write("Too many requests, limited by " + admission.rejectedBy());
+            return;
+        }
+        try {
+            filterChain.doFilter(httpRequest, httpResponse);
+        } finally {
+            admissionControl.complete(admission);
+        }
+    }
+}
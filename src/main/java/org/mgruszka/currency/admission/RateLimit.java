@@ -0,0 +1,54 @@
+package org.mgruszka.currency.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket kept as a single number, the generic cell rate algorithm: instead of a token count it stores
+ * the theoretical arrival time of the next request at the configured rate, so taking a token is one
+ * compare-and-set and refilling needs no timer. Requests may run ahead of that time by up to {@code burst - 1}
+ * intervals.
+ */
+final class RateLimit {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * @param ratePerSecond sustained rate
+     * @param burst requests admitted at once by a full bucket
+     * @param nowNanos current {@link System#nanoTime()}, the bucket starts full
+     */
+    RateLimit(double ratePerSecond, int burst, long nowNanos) {
+        this.intervalNanos = Math.max(1, Math.round(1_000_000_000 / ratePerSecond));
+        this.toleranceNanos = intervalNanos * (Math.max(1, burst) - 1);
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes a token when one is available.
+     *
+     * @return zero when admitted, otherwise nanoseconds until a token will be available
+     */
+    long tryAcquire(long nowNanos) {
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            // an idle bucket does not save up more than a full burst
+            long start = arrival - nowNanos > 0 ? arrival : nowNanos;
+            long wait = start - toleranceNanos - nowNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, start + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @return nanoseconds after which an untouched bucket is full again and may be forgotten
+     */
+    long refillNanos() {
+        return toleranceNanos + intervalNanos;
+    }
+}
@@ -0,0 +1,53 @@
+package org.mgruszka.currency.admission;
+
+import org.mgruszka.currency.security.AuthenticationFilter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * WebFlux counterpart of {@link AdmissionFilter}.
+ */
+@Component
+@Profile("reactive")
+@Order(AuthenticationFilter.ORDER + 1)
+@ConditionalOnProperty(name = "admission.enabled", havingValue = "true", matchIfMissing = true)
+public class ReactiveAdmissionFilter implements WebFilter {
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        Admission admission = admissionControl.tryAdmit(request.getMethod().name(), request.getPath().value());
+        if (admission == null) {
+            return chain.filter(exchange);
+        }
+        if (!admission.isAdmitted()) {
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(admission.retryAfterSeconds()));
+            response.getHeaders().setContentType(MediaType.TEXT_PLAIN);
+            DataBuffer body = response.bufferFactory()
+                    .wrap(("Too many requests, limited by " + admission.rejectedBy()).getBytes(StandardCharsets.UTF_8));
+            return response.writeWith(Mono.just(body));
+        }
+        // runs on completion, error and cancellation alike
+        return chain.filter(exchange).doFinally(signal -> admissionControl.complete(admission));
+    }
+}
@@ -0,0 +1,79 @@
+package org.mgruszka.currency.client;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Minimal lock-free circuit breaker. After {@code failureThreshold} consecutive failures the circuit opens
+ * and calls are rejected until {@code openDuration} passes, then a single trial call is let through
+ * to decide if the circuit closes again.
+ */
+public class CircuitBreaker {
+
+    public enum Status {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private record State(Status status, int failures, Instant openedAt) {
+    }
+
+    private static final State CLOSED = new State(Status.CLOSED, 0, null);
+
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Clock clock;
+    private final AtomicReference<State> state = new AtomicReference<>(CLOSED);
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration, Clock clock) {
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.clock = clock;
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            State current = state.get();
+            switch (current.status()) {
+                case CLOSED -> {
+                    return true;
+                }
+                case HALF_OPEN -> {
+                    return false;
+                }
+                case OPEN -> {
+                    if (clock.instant().isBefore(current.openedAt().plus(openDuration))) {
+                        return false;
+                    }
+                    if (state.compareAndSet(current, new State(Status.HALF_OPEN, current.failures(), current.openedAt()))) {
+                        return true;
+                    }
+                }
+            }
+        }
+    }
+
+    public void onSuccess() {
+        state.set(CLOSED);
+    }
+
+    public void onFailure() {
+        while (true) {
+            State current = state.get();
+            State next;
+            if (current.status() == Status.HALF_OPEN || current.failures() + 1 >= failureThreshold) {
+                next = new State(Status.OPEN, current.failures() + 1, clock.instant());
+            } else {
+                next = new State(current.status(), current.failures() + 1, current.openedAt());
+            }
+            if (state.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    public Status getStatus() {
+        return state.get().status();
+    }
+}
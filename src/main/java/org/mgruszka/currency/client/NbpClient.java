@@ -0,0 +1,254 @@
+package org.mgruszka.currency.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.mgruszka.currency.exceptions.NBApiException;
+import org.mgruszka.currency.model.CrossRateMatrix;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Long-lived client for the NBP API. One {@link HttpClient} is shared by all calls so connections are
+ * kept alive between them, and a {@link CircuitBreaker} rejects calls right away while NBP keeps failing.
+ */
+@Component
+public class NbpClient {
+
+    /**
+     * Longest date range NBP serves in one {@code tables} request.
+     */
+    public static final int MAX_RANGE_DAYS = 93;
+
+    private static final Map<String, TargetCurrency> CURRENCIES_BY_CODE = new HashMap<>();
+
+    static {
+        for (TargetCurrency currency : TargetCurrency.values()) {
+            CURRENCIES_BY_CODE.put(currency.name(), currency);
+        }
+    }
+
+    private final URI rateTableUri;
+    private final Duration readTimeout;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+    private final CircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+    private final Timer successfulRequests;
+    private final Timer failedRequests;
+    private final Counter rejectedRequests;
+
+    @Autowired
+    public NbpClient(@Value("${nbp.api.table-url:https://api.nbp.pl/api/exchangerates/tables/A/}") String rateTableUrl,
+                     @Value("${nbp.api.connect-timeout:PT2S}") Duration connectTimeout,
+                     @Value("${nbp.api.read-timeout:PT3S}") Duration readTimeout,
+                     @Value("${nbp.api.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                     @Value("${nbp.api.circuit-breaker.open-duration:PT30S}") Duration openDuration,
+                     @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                     ObjectMapper objectMapper,
+                     MeterRegistry meterRegistry) {
+        this.rateTableUri = URI.create(rateTableUrl);
+        this.readTimeout = readTimeout;
+        this.objectMapper = objectMapper;
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout);
+        if (virtualThreads) {
+            // async responses are then completed on virtual threads instead of the client's default pool
+            builder.executor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+        this.httpClient = builder.build();
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openDuration, Clock.systemUTC());
+        this.meterRegistry = meterRegistry;
+        this.successfulRequests = requestTimer(meterRegistry, "success");
+        this.failedRequests = requestTimer(meterRegistry, "failure");
+        this.rejectedRequests = Counter.builder("nbp.requests.rejected")
+                .description("NBP calls rejected without a request because the circuit breaker was open")
+                .register(meterRegistry);
+        Gauge.builder("nbp.circuit.state", circuitBreaker, breaker -> breaker.getStatus().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .register(meterRegistry);
+    }
+
+    private static Timer requestTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("nbp.requests")
+                .description("Round trip of rate table requests to the NBP API")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Fetches the current table A, all of its currencies in one request.
+     */
+    public CrossRateMatrix getRateTable() {
+        return send(rateTableRequest(rateTableUri), this::parseRateTable);
+    }
+
+    /**
+     * Fetches all tables A published between {@code from} and {@code to}, both inclusive, oldest first.
+     * A range without any table, such as a weekend, gives an empty list.
+     */
+    public List<CrossRateMatrix> getRateTables(LocalDate from, LocalDate to) {
+        if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException("NBP serves ranges of 1 to " + MAX_RANGE_DAYS + " days, got " + from + " to " + to);
+        }
+        return send(rateTableRequest(rateTableUri.resolve(from + "/" + to + "/")), response -> {
+            if (response.statusCode() == HttpStatus.NOT_FOUND.value()) {
+                return List.of();
+            }
+            return parseRateTables(checkStatus(response).body());
+        });
+    }
+
+    private <T> T send(HttpRequest request, Function<HttpResponse<String>, T> parser) {
+        if (!circuitBreaker.tryAcquire()) {
+            rejectedRequests.increment();
+            throw circuitOpen();
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            T result = parser.apply(httpClient.send(request, HttpResponse.BodyHandlers.ofString()));
+            circuitBreaker.onSuccess();
+            sample.stop(successfulRequests);
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            onFailure(sample);
+            throw new NBApiException("Error during http request to NBP API.");
+        } catch (IOException e) {
+            onFailure(sample);
+            throw new NBApiException("Error during http request to NBP API.");
+        } catch (NBApiException e) {
+            onFailure(sample);
+            throw e;
+        }
+    }
+
+    public CompletableFuture<CrossRateMatrix> getRateTableAsync() {
+        if (!circuitBreaker.tryAcquire()) {
+            rejectedRequests.increment();
+            return CompletableFuture.failedFuture(circuitOpen());
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return httpClient.sendAsync(rateTableRequest(rateTableUri), HttpResponse.BodyHandlers.ofString())
+                .thenApply(this::parseRateTable)
+                .whenComplete((rates, failure) -> {
+                    if (failure == null) {
+                        circuitBreaker.onSuccess();
+                        sample.stop(successfulRequests);
+                    } else {
+                        onFailure(sample);
+                    }
+                })
+                .exceptionallyCompose(failure -> {
+                    Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                    if (cause instanceof NBApiException) {
+                        return CompletableFuture.failedFuture(cause);
+                    }
+                    return CompletableFuture.failedFuture(new NBApiException("Error during http request to NBP API."));
+                });
+    }
+
+    public CircuitBreaker.Status getCircuitStatus() {
+        return circuitBreaker.getStatus();
+    }
+
+    private void onFailure(Timer.Sample sample) {
+        circuitBreaker.onFailure();
+        sample.stop(failedRequests);
+    }
+
+    private HttpRequest rateTableRequest(URI uri) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(readTimeout)
+                .header("Accept", "application/json")
+                .build();
+    }
+
+    private CrossRateMatrix parseRateTable(HttpResponse<String> response) {
+        return parseRateTable(checkStatus(response).body());
+    }
+
+    private static HttpResponse<String> checkStatus(HttpResponse<String> response) {
+        if (response.statusCode() != HttpStatus.OK.value()) {
+            throw new NBApiException("Failed to fetch data from API. HTTP Status Code: " + response.statusCode());
+        }
+        return response;
+    }
+
+    /**
+     * Builds the cross-rate matrix from a body of the NBP {@code tables} endpoint. Currencies this service does
+     * not know are skipped.
+     */
+    public CrossRateMatrix parseRateTable(String body) {
+        return toCrossRates(readTables(body).path(0));
+    }
+
+    /**
+     * Builds one cross-rate matrix per table in a body of the NBP {@code tables} endpoint, in the order given.
+     */
+    public List<CrossRateMatrix> parseRateTables(String body) {
+        List<CrossRateMatrix> tables = new ArrayList<>();
+        for (JsonNode table : readTables(body)) {
+            tables.add(toCrossRates(table));
+        }
+        return tables;
+    }
+
+    private JsonNode readTables(String body) {
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            throw new NBApiException("Invalid response format. Unable to extract exchange rates.");
+        }
+    }
+
+    private static CrossRateMatrix toCrossRates(JsonNode table) {
+        JsonNode rates = table.path("rates");
+        if (!rates.isArray() || rates.isEmpty()) {
+            throw new NBApiException("Invalid response format. Unable to extract exchange rates.");
+        }
+        Map<TargetCurrency, Double> midRates = new EnumMap<>(TargetCurrency.class);
+        for (JsonNode rate : rates) {
+            TargetCurrency currency = CURRENCIES_BY_CODE.get(rate.path("code").asText());
+            if (currency != null) {
+                midRates.put(currency, rate.path("mid").asDouble());
+            }
+        }
+        try {
+            return CrossRateMatrix.of(LocalDate.parse(table.path("effectiveDate").asText()), midRates);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new NBApiException("Invalid response format. Unable to extract exchange rates.");
+        }
+    }
+
+    private static NBApiException circuitOpen() {
+        return new NBApiException("NBP API is unavailable, circuit breaker is open.");
+    }
+}
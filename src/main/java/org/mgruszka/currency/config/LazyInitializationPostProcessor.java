@@ -0,0 +1,62 @@
+package org.mgruszka.currency.config;
+
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Makes beans that do not serve the API, the OpenAPI documentation by default, lazy, so they are created on
+ * their first use instead of delaying startup. Their endpoints are still mapped at startup, since request
+ * mappings are detected from bean types without creating the beans.
+ * <p>
+ * With Spring AOT the lazy flags are part of the generated bean definitions.
+ */
+@Component
+public class LazyInitializationPostProcessor implements BeanFactoryPostProcessor, EnvironmentAware {
+
+    private List<String> packages = List.of();
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        // runs before @Value injection is available, so the property is read directly
+        this.packages = List.of(environment.getProperty("startup.lazy-packages", String[].class, new String[]{"org.springdoc"}));
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(name);
+            String declaringClass = declaringClass(definition);
+            if (declaringClass != null && definition.getRole() != BeanDefinition.ROLE_INFRASTRUCTURE && isLazyPackage(declaringClass)) {
+                definition.setLazyInit(true);
+            }
+        }
+    }
+
+    /**
+     * @return class of a component, or the configuration class declaring a {@code @Bean} method
+     */
+    private static String declaringClass(BeanDefinition definition) {
+        if (definition instanceof AnnotatedBeanDefinition annotated) {
+            MethodMetadata factoryMethod = annotated.getFactoryMethodMetadata();
+            return factoryMethod != null ? factoryMethod.getDeclaringClassName() : annotated.getMetadata().getClassName();
+        }
+        return definition.getBeanClassName();
+    }
+
+    private boolean isLazyPackage(String className) {
+        for (String lazyPackage : packages) {
+            if (className.startsWith(lazyPackage + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -4,25 +4,51 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import org.mgruszka.currency.model.AccountCreationDTO;
 import org.mgruszka.currency.model.AccountDetailsDTO;
+import org.mgruszka.currency.model.AccountIdView;
+import org.mgruszka.currency.model.AccountImportSummaryDTO;
+import org.mgruszka.currency.model.AccountSearchPageDTO;
+import org.mgruszka.currency.model.ExchangeRequestDTO;
+import org.mgruszka.currency.model.ExchangeResultDTO;
+import org.mgruszka.currency.model.LedgerPageDTO;
+import org.mgruszka.currency.model.Quote;
 import org.mgruszka.currency.model.TargetCurrency;
 import org.mgruszka.currency.service.AccountService;
+import org.mgruszka.currency.service.QuoteService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/accounts")
+@Profile("!reactive")
 public class AccountController {
     @Autowired
     private AccountService accountService;
 
+    @Autowired
+    private QuoteService quoteService;
+
     @Operation(summary = "Create a new account")
     @ApiResponse(description = "Unique account identifier used for other API methods")
     @PostMapping
@@ -30,15 +56,90 @@ public class AccountController {
         return ResponseEntity.status(HttpStatus.CREATED).body(accountService.createAccount(account));
     }
 
-    @Operation(summary = "Exchange account balance between USD and PLN")
-    @PostMapping("/{accountId}/exchange")
-    public ResponseEntity<AccountDetailsDTO> exchangeCurrency(@PathVariable("accountId") String accountId, @RequestParam("amount") double amount, @RequestParam("targetCurrency") TargetCurrency targetCurrency) {
-        return ResponseEntity.ok(accountService.exchangeCurrency(accountId, amount, targetCurrency));
+    @Operation(summary = "Import many accounts from newline delimited JSON records")
+    @ApiResponse(description = "Import identifier and number of created accounts")
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<AccountImportSummaryDTO> importAccounts(InputStream records) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(accountService.importAccounts(records));
+    }
+
+    @Operation(summary = "Streams identifiers of accounts created by an import as newline delimited values")
+    @GetMapping(value = "/import/{importId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getImportedAccountIds(@PathVariable("importId") String importId) {
+        return ResponseEntity.ok(out -> {
+            try (Stream<AccountIdView> ids = accountService.getImportedAccountIds(importId)) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                Iterator<AccountIdView> iterator = ids.iterator();
+                while (iterator.hasNext()) {
+                    writer.write('"');
+                    writer.write(iterator.next().getId());
+                    writer.write("\"\n");
+                }
+                writer.flush();
+            }
+        });
+    }
+
+    @Operation(summary = "Exchange account balance between two NBP table A currencies",
+            description = "With If-Match the exchange only applies while the account still has that ETag, otherwise 412 is returned")
+    @PostMapping(value = "/{accountId}/exchange", params = "!quoteToken")
+    public ResponseEntity<AccountDetailsDTO> exchangeCurrency(@PathVariable("accountId") String accountId, @RequestParam("amount") double amount,
+            @RequestParam(value = "sourceCurrency", required = false) TargetCurrency sourceCurrency, @RequestParam("targetCurrency") TargetCurrency targetCurrency,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return withETag(accountService.exchangeCurrency(accountId, amount, sourceCurrency, targetCurrency, AccountETags.expectedVersion(ifMatch)));
+    }
+
+    @Operation(summary = "Exchange account balance at the amounts of a quote from /api/quotes")
+    @PostMapping(value = "/{accountId}/exchange", params = "quoteToken")
+    public ResponseEntity<AccountDetailsDTO> exchangeQuoted(@PathVariable("accountId") String accountId, @RequestParam("quoteToken") String quoteToken,
+            @RequestParam(value = "amount", required = false) Double amount,
+            @RequestParam(value = "sourceCurrency", required = false) TargetCurrency sourceCurrency,
+            @RequestParam(value = "targetCurrency", required = false) TargetCurrency targetCurrency,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expectedVersion = AccountETags.expectedVersion(ifMatch);
+        Quote quote = quoteService.execute(quoteToken, accountId, amount, sourceCurrency, targetCurrency);
+        return withETag(accountService.exchangeCurrency(accountId, quote, expectedVersion));
     }
 
-    @Operation(summary = "Retrieves account details and balance")
+    @Operation(summary = "Exchange balances of many accounts in one request")
+    @ApiResponse(description = "Result of every exchange, in the order of the request")
+    @PostMapping("/batch/exchange")
+    public ResponseEntity<List<ExchangeResultDTO>> exchangeCurrencyBatch(@RequestBody List<ExchangeRequestDTO> requests) {
+        return ResponseEntity.ok(accountService.exchangeCurrencyBatch(requests));
+    }
+
+    @Operation(summary = "Finds accounts by last name and first name prefixes, case-sensitive")
+    @ApiResponse(description = "One page of accounts ordered by name and the cursor of the next page, absent on the last page")
+    @GetMapping("/search")
+    public ResponseEntity<AccountSearchPageDTO> searchAccounts(@RequestParam("lastName") String lastName,
+            @RequestParam(value = "firstName", required = false) String firstName,
+            @RequestParam(value = "cursor", required = false) String cursor, @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return ResponseEntity.ok(accountService.searchAccounts(lastName, firstName, cursor, limit));
+    }
+
+    @Operation(summary = "Lists exchanges of an account, newest first")
+    @ApiResponse(description = "One page of entries and the cursor of the next page, absent on the last page")
+    @GetMapping("/{accountId}/history")
+    public ResponseEntity<LedgerPageDTO> getHistory(@PathVariable("accountId") String accountId,
+            @RequestParam(value = "cursor", required = false) String cursor, @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        return ResponseEntity.ok(accountService.getHistory(accountId, cursor, limit));
+    }
+
+    @Operation(summary = "Retrieves account details and balance",
+            description = "With If-None-Match naming the current ETag, 304 is returned after reading only the account version")
     @GetMapping("/{accountId}")
-    public ResponseEntity<AccountDetailsDTO> getAccount(@PathVariable("accountId") String accountId) {
-        return ResponseEntity.ok(accountService.getAccount(accountId));
+    public ResponseEntity<AccountDetailsDTO> getAccount(@PathVariable("accountId") String accountId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            long version = accountService.getAccountVersion(accountId);
+            if (AccountETags.notModified(ifNoneMatch, version)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(AccountETags.of(version)).build();
+            }
+        }
+        return withETag(accountService.getAccount(accountId));
+    }
+
+    private static ResponseEntity<AccountDetailsDTO> withETag(AccountDetailsDTO account) {
+        return ResponseEntity.ok().eTag(AccountETags.of(account.getVersion())).body(account);
     }
 }
\ No newline at end of file
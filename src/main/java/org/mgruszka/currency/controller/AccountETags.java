@@ -0,0 +1,58 @@
+package org.mgruszka.currency.controller;
+
+import org.mgruszka.currency.exceptions.VersionMismatchException;
+
+/**
+ * Account versions as strong entity tags, {@code "<version>"}, shared by the servlet and the reactive controllers.
+ */
+final class AccountETags {
+
+    private static final String ANY = "*";
+    private static final String WEAK_PREFIX = "W/";
+
+    private AccountETags() {
+    }
+
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * @param ifNoneMatch {@code If-None-Match} header, a list of tags compared weakly
+     * @return true when the client already has {@code version}
+     */
+    static boolean notModified(String ifNoneMatch, long version) {
+        String current = of(version);
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.strip();
+            if (tag.startsWith(WEAK_PREFIX)) {
+                tag = tag.substring(WEAK_PREFIX.length());
+            }
+            if (tag.equals(ANY) || tag.equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param ifMatch {@code If-Match} header, absent or {@code *} for any version
+     * @return version the account must have, {@code null} for any
+     * @throws VersionMismatchException when the header is not a single strong tag of this resource, since no
+     * version can match it
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.strip().equals(ANY)) {
+            return null;
+        }
+        String tag = ifMatch.strip();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            throw VersionMismatchException.INSTANCE;
+        }
+        try {
+            return Long.parseLong(tag, 1, tag.length() - 1, 10);
+        } catch (NumberFormatException e) {
+            throw VersionMismatchException.INSTANCE;
+        }
+    }
+}
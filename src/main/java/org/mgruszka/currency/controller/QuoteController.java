@@ -0,0 +1,33 @@
+package org.mgruszka.currency.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.mgruszka.currency.model.QuoteDTO;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.mgruszka.currency.service.QuoteService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Touches no database and blocks no thread, so the same controller is used by the servlet and the reactive variant.
+ */
+@RestController
+@RequestMapping("/api/quotes")
+public class QuoteController {
+    @Autowired
+    private QuoteService quoteService;
+
+    @Operation(summary = "Price an exchange without executing it")
+    @ApiResponse(description = "Converted amount and a short-lived token executing the exchange on the account once, at exactly these amounts")
+    @GetMapping
+    public CompletableFuture<ResponseEntity<QuoteDTO>> getQuote(@RequestParam("accountId") String accountId, @RequestParam("amount") double amount,
+            @RequestParam(value = "sourceCurrency", required = false) TargetCurrency sourceCurrency, @RequestParam("targetCurrency") TargetCurrency targetCurrency) {
+        return quoteService.quote(accountId, amount, sourceCurrency, targetCurrency).thenApply(ResponseEntity::ok);
+    }
+}
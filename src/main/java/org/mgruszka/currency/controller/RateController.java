@@ -0,0 +1,42 @@
+package org.mgruszka.currency.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import org.mgruszka.currency.model.RateTableDTO;
+import org.mgruszka.currency.service.RateHistoryService;
+import org.mgruszka.currency.service.RateStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+
+/**
+ * Served from memory only, so the same controller is used by the servlet and the reactive variant.
+ */
+@RestController
+@RequestMapping("/api/rates")
+public class RateController {
+    @Autowired
+    private RateHistoryService rateHistoryService;
+    @Autowired
+    private RateStream rateStream;
+
+    @Operation(summary = "NBP table A mid rates as of a date, today when no date is given")
+    @GetMapping
+    public ResponseEntity<RateTableDTO> getRates(@RequestParam(value = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(rateHistoryService.getRatesAsOf(date != null ? date : LocalDate.now()));
+    }
+
+    @Operation(summary = "Server-Sent Events with the current NBP table A mid rates and every change to them")
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<RateTableDTO>> streamRates() {
+        return rateStream.subscribe();
+    }
+}
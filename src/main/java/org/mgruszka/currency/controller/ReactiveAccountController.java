@@ -0,0 +1,133 @@
+package org.mgruszka.currency.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.mgruszka.currency.model.AccountCreationDTO;
+import org.mgruszka.currency.model.AccountDetailsDTO;
+import org.mgruszka.currency.model.AccountImportSummaryDTO;
+import org.mgruszka.currency.model.AccountSearchPageDTO;
+import org.mgruszka.currency.model.ExchangeRequestDTO;
+import org.mgruszka.currency.model.ExchangeResultDTO;
+import org.mgruszka.currency.model.LedgerPageDTO;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.mgruszka.currency.service.QuoteService;
+import org.mgruszka.currency.service.ReactiveAccountService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+/**
+ * Same API as {@link AccountController}, served by WebFlux when the {@code reactive} profile is active.
+ */
+@RestController
+@RequestMapping("/api/accounts")
+@Profile("reactive")
+public class ReactiveAccountController {
+    @Autowired
+    private ReactiveAccountService accountService;
+
+    @Autowired
+    private QuoteService quoteService;
+
+    @Operation(summary = "Create a new account")
+    @ApiResponse(description = "Unique account identifier used for other API methods")
+    @PostMapping
+    public Mono<ResponseEntity<String>> createAccount(@RequestBody AccountCreationDTO account) {
+        return accountService.createAccount(account).map(id -> ResponseEntity.status(HttpStatus.CREATED).body(id));
+    }
+
+    @Operation(summary = "Import many accounts from newline delimited JSON records")
+    @ApiResponse(description = "Import identifier and number of created accounts")
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<AccountImportSummaryDTO>> importAccounts(@RequestBody Flux<AccountCreationDTO> records) {
+        return accountService.importAccounts(records).map(summary -> ResponseEntity.status(HttpStatus.CREATED).body(summary));
+    }
+
+    @Operation(summary = "Streams identifiers of accounts created by an import as newline delimited values")
+    @GetMapping(value = "/import/{importId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<String> getImportedAccountIds(@PathVariable("importId") String importId) {
+        // strings are written as they are, so quote and delimit them like the servlet variant does
+        return accountService.getImportedAccountIds(importId).map(id -> '"' + id + "\"\n");
+    }
+
+    @Operation(summary = "Exchange account balance between two NBP table A currencies",
+            description = "With If-Match the exchange only applies while the account still has that ETag, otherwise 412 is returned")
+    @PostMapping(value = "/{accountId}/exchange", params = "!quoteToken")
+    public Mono<ResponseEntity<AccountDetailsDTO>> exchangeCurrency(@PathVariable("accountId") String accountId, @RequestParam("amount") double amount,
+            @RequestParam(value = "sourceCurrency", required = false) TargetCurrency sourceCurrency, @RequestParam("targetCurrency") TargetCurrency targetCurrency,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return Mono.defer(() -> accountService.exchangeCurrency(accountId, amount, sourceCurrency, targetCurrency, AccountETags.expectedVersion(ifMatch)))
+                .map(ReactiveAccountController::withETag);
+    }
+
+    @Operation(summary = "Exchange account balance at the amounts of a quote from /api/quotes")
+    @PostMapping(value = "/{accountId}/exchange", params = "quoteToken")
+    public Mono<ResponseEntity<AccountDetailsDTO>> exchangeQuoted(@PathVariable("accountId") String accountId, @RequestParam("quoteToken") String quoteToken,
+            @RequestParam(value = "amount", required = false) Double amount,
+            @RequestParam(value = "sourceCurrency", required = false) TargetCurrency sourceCurrency,
+            @RequestParam(value = "targetCurrency", required = false) TargetCurrency targetCurrency,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        // marking the quote as executed waits for MongoDB
+        return Mono.fromCallable(() -> quoteService.execute(quoteToken, accountId, amount, sourceCurrency, targetCurrency))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(quote -> accountService.exchangeCurrency(accountId, quote, AccountETags.expectedVersion(ifMatch)))
+                .map(ReactiveAccountController::withETag);
+    }
+
+    @Operation(summary = "Exchange balances of many accounts in one request")
+    @ApiResponse(description = "Result of every exchange, in the order of the request")
+    @PostMapping("/batch/exchange")
+    public Mono<ResponseEntity<List<ExchangeResultDTO>>> exchangeCurrencyBatch(@RequestBody List<ExchangeRequestDTO> requests) {
+        return accountService.exchangeCurrencyBatch(requests).map(ResponseEntity::ok);
+    }
+
+    @Operation(summary = "Finds accounts by last name and first name prefixes, case-sensitive")
+    @ApiResponse(description = "One page of accounts ordered by name and the cursor of the next page, absent on the last page")
+    @GetMapping("/search")
+    public Mono<ResponseEntity<AccountSearchPageDTO>> searchAccounts(@RequestParam("lastName") String lastName,
+            @RequestParam(value = "firstName", required = false) String firstName,
+            @RequestParam(value = "cursor", required = false) String cursor, @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return accountService.searchAccounts(lastName, firstName, cursor, limit).map(ResponseEntity::ok);
+    }
+
+    @Operation(summary = "Lists exchanges of an account, newest first")
+    @ApiResponse(description = "One page of entries and the cursor of the next page, absent on the last page")
+    @GetMapping("/{accountId}/history")
+    public Mono<ResponseEntity<LedgerPageDTO>> getHistory(@PathVariable("accountId") String accountId,
+            @RequestParam(value = "cursor", required = false) String cursor, @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        return accountService.getHistory(accountId, cursor, limit).map(ResponseEntity::ok);
+    }
+
+    @Operation(summary = "Retrieves account details and balance",
+            description = "With If-None-Match naming the current ETag, 304 is returned after reading only the account version")
+    @GetMapping("/{accountId}")
+    public Mono<ResponseEntity<AccountDetailsDTO>> getAccount(@PathVariable("accountId") String accountId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return accountService.getAccount(accountId).map(ReactiveAccountController::withETag);
+        }
+        return accountService.getAccountVersion(accountId).flatMap(version -> AccountETags.notModified(ifNoneMatch, version)
+                ? Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(AccountETags.of(version)).<AccountDetailsDTO>build())
+                : accountService.getAccount(accountId).map(ReactiveAccountController::withETag));
+    }
+
+    private static ResponseEntity<AccountDetailsDTO> withETag(AccountDetailsDTO account) {
+        return ResponseEntity.ok().eTag(AccountETags.of(account.getVersion())).body(account);
+    }
+}
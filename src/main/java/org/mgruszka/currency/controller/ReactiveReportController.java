@@ -0,0 +1,61 @@
+package org.mgruszka.currency.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.mgruszka.currency.model.BalanceBucketDTO;
+import org.mgruszka.currency.model.BalanceTotalsDTO;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.mgruszka.currency.service.ReactiveReportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/reports")
+@Profile("reactive")
+public class ReactiveReportController {
+    @Autowired
+    private ReactiveReportService reportService;
+
+    @Operation(summary = "Streams all accounts as newline delimited JSON")
+    @GetMapping(value = "/accounts", params = "format!=csv", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<String>> exportNdjson() {
+        // strings are written as they are, every row already ends with a line break
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, ReportController.attachment("accounts.ndjson"))
+                .body(reportService.exportNdjson());
+    }
+
+    @Operation(summary = "Streams all accounts as CSV, one column per currency")
+    @GetMapping(value = "/accounts", params = "format=csv", produces = ReportController.TEXT_CSV_VALUE)
+    public ResponseEntity<Flux<String>> exportCsv() {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, ReportController.attachment("accounts.csv"))
+                .body(reportService.exportCsv());
+    }
+
+    @Operation(summary = "Number of accounts and total balance in every currency")
+    @GetMapping("/totals")
+    public Mono<ResponseEntity<BalanceTotalsDTO>> getTotals() {
+        return reportService.getTotals().map(ResponseEntity::ok);
+    }
+
+    @Operation(summary = "Number of accounts and total balance per balance range of one currency")
+    @ApiResponse(description = "Every range in ascending order, the first one starts at zero and the last one is open")
+    @GetMapping("/distribution")
+    public Mono<ResponseEntity<List<BalanceBucketDTO>>> getDistribution(
+            @RequestParam(value = "currency", defaultValue = "PLN") TargetCurrency currency,
+            @RequestParam(value = "thresholds", defaultValue = "100,1000,10000,100000") List<Double> thresholds) {
+        return reportService.getDistribution(currency, thresholds).map(ResponseEntity::ok);
+    }
+}
@@ -0,0 +1,83 @@
+package org.mgruszka.currency.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.mgruszka.currency.model.BalanceBucketDTO;
+import org.mgruszka.currency.model.BalanceTotalsDTO;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.mgruszka.currency.service.ReportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/reports")
+@Profile("!reactive")
+public class ReportController {
+
+    static final String TEXT_CSV_VALUE = "text/csv";
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    @Autowired
+    private ReportService reportService;
+
+    @Operation(summary = "Streams all accounts as newline delimited JSON")
+    @GetMapping(value = "/accounts", params = "format!=csv", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportNdjson() {
+        // a streamed body bypasses message converters, so the content type is not taken from produces
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, attachment("accounts.ndjson"))
+                .body(out -> {
+                    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                    reportService.exportNdjson(writer);
+                    writer.flush();
+                });
+    }
+
+    @Operation(summary = "Streams all accounts as CSV, one column per currency")
+    @GetMapping(value = "/accounts", params = "format=csv", produces = TEXT_CSV_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportCsv() {
+        return ResponseEntity.ok()
+                .contentType(TEXT_CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION, attachment("accounts.csv"))
+                .body(out -> {
+                    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                    reportService.exportCsv(writer);
+                    writer.flush();
+                });
+    }
+
+    @Operation(summary = "Number of accounts and total balance in every currency")
+    @GetMapping("/totals")
+    public ResponseEntity<BalanceTotalsDTO> getTotals() {
+        return ResponseEntity.ok(reportService.getTotals());
+    }
+
+    @Operation(summary = "Number of accounts and total balance per balance range of one currency")
+    @ApiResponse(description = "Every range in ascending order, the first one starts at zero and the last one is open")
+    @GetMapping("/distribution")
+    public ResponseEntity<List<BalanceBucketDTO>> getDistribution(
+            @RequestParam(value = "currency", defaultValue = "PLN") TargetCurrency currency,
+            @RequestParam(value = "thresholds", defaultValue = "100,1000,10000,100000") List<Double> thresholds) {
+        return ResponseEntity.ok(reportService.getDistribution(currency, thresholds));
+    }
+
+    static String attachment(String filename) {
+        return ContentDisposition.attachment().filename(filename).build().toString();
+    }
+}
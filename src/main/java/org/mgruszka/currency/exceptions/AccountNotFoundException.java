@@ -1,4 +1,14 @@
 package org.mgruszka.currency.exceptions;
 
-public class AccountNotFoundException extends RuntimeException{
+/**
+ * Expected outcome of a request for an unknown account, so it captures no stack trace and a single instance is
+ * shared; suppression is disabled as well, so nothing can be attached to the shared instance.
+ */
+public class AccountNotFoundException extends RuntimeException {
+
+    public static final AccountNotFoundException INSTANCE = new AccountNotFoundException();
+
+    private AccountNotFoundException() {
+        super("Account not found", null, false, false);
+    }
 }
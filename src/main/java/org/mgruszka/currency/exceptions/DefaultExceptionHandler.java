@@ -1,31 +1,112 @@
 package org.mgruszka.currency.exceptions;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.mgruszka.currency.model.ErrorDTO;
+import org.mgruszka.currency.model.ExchangeStatus;
+import org.springframework.beans.PropertyAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageConversionException;
+import org.springframework.web.ErrorResponse;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * Maps exceptions to {@link ErrorDTO} bodies. Insufficient funds, unknown accounts and stale versions are ordinary outcomes that
+ * clients may produce at a high rate, so their responses are serialized once and the same response is returned
+ * every time.
+ */
 @ControllerAdvice
 public class DefaultExceptionHandler {
 
     private static final Logger logger = Logger.getLogger(DefaultExceptionHandler.class.getName());
 
+    private static final ResponseEntity<byte[]> INSUFFICIENT_FUNDS = preserialized(HttpStatus.BAD_REQUEST,
+            ExchangeStatus.INSUFFICIENT_FUNDS.name(), InsufficientFundsException.INSTANCE.getMessage());
+    private static final ResponseEntity<byte[]> ACCOUNT_NOT_FOUND = preserialized(HttpStatus.NOT_FOUND,
+            ExchangeStatus.ACCOUNT_NOT_FOUND.name(), AccountNotFoundException.INSTANCE.getMessage());
+    private static final ResponseEntity<byte[]> VERSION_MISMATCH = preserialized(HttpStatus.PRECONDITION_FAILED,
+            ExchangeStatus.VERSION_MISMATCH.name(), VersionMismatchException.INSTANCE.getMessage());
+    private static final ResponseEntity<byte[]> INTERNAL_ERROR = preserialized(HttpStatus.INTERNAL_SERVER_ERROR,
+            "INTERNAL_ERROR", "Internal server error");
+
     @ExceptionHandler(InsufficientFundsException.class)
-    public ResponseEntity<String> handleInsufficientFundsException(InsufficientFundsException ex) {
-        return new ResponseEntity<>("Insufficient funds on Your account", HttpStatus.BAD_REQUEST);
+    public ResponseEntity<byte[]> handleInsufficientFundsException(InsufficientFundsException ex) {
+        return INSUFFICIENT_FUNDS;
     }
 
     @ExceptionHandler(AccountNotFoundException.class)
-    public ResponseEntity<String> handleAccountNotFoundException(AccountNotFoundException ex) {
-        return new ResponseEntity<>("Account not found", HttpStatus.NOT_FOUND);
+    public ResponseEntity<byte[]> handleAccountNotFoundException(AccountNotFoundException ex) {
+        return ACCOUNT_NOT_FOUND;
+    }
+
+    @ExceptionHandler(VersionMismatchException.class)
+    public ResponseEntity<byte[]> handleVersionMismatchException(VersionMismatchException ex) {
+        return VERSION_MISMATCH;
+    }
+
+    @ExceptionHandler(InvalidQuoteException.class)
+    public ResponseEntity<ErrorDTO> handleInvalidQuoteException(InvalidQuoteException ex) {
+        return error(HttpStatus.BAD_REQUEST, "INVALID_QUOTE", ex.getMessage());
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ErrorDTO> handleInvalidCursorException(InvalidCursorException ex) {
+        return error(HttpStatus.BAD_REQUEST, "INVALID_CURSOR", ex.getMessage());
+    }
+
+    @ExceptionHandler(RateNotFoundException.class)
+    public ResponseEntity<ErrorDTO> handleRateNotFoundException(RateNotFoundException ex) {
+        return error(HttpStatus.NOT_FOUND, "RATE_NOT_FOUND", ex.getMessage());
+    }
+
+    @ExceptionHandler(ImportFailedException.class)
+    public ResponseEntity<ErrorDTO> handleImportFailedException(ImportFailedException ex) {
+        return error(HttpStatus.BAD_REQUEST, "IMPORT_FAILED", ex.getMessage());
+    }
+
+    @ExceptionHandler(InvalidCurrencyException.class)
+    public ResponseEntity<ErrorDTO> handleInvalidCurrencyException(InvalidCurrencyException ex) {
+        return error(HttpStatus.BAD_REQUEST, "INVALID_CURRENCY", ex.getMessage());
+    }
+
+    @ExceptionHandler(InvalidAmountException.class)
+    public ResponseEntity<ErrorDTO> handleInvalidAmountException(InvalidAmountException ex) {
+        return error(HttpStatus.BAD_REQUEST, "INVALID_AMOUNT", ex.getMessage());
+    }
+
+    /**
+     * Rethrows exceptions of request binding and conversion, so the framework answers them with its own 4xx status.
+     */
     @ExceptionHandler(RuntimeException.class)
-    public ResponseEntity<String> handleRuntimeException(AccountNotFoundException ex) {
+    public ResponseEntity<byte[]> handleRuntimeException(RuntimeException ex) {
+        if (ex instanceof ErrorResponse || ex instanceof PropertyAccessException || ex instanceof HttpMessageConversionException) {
+            throw ex;
+        }
         logger.log(Level.SEVERE, "RuntimeException occurred", ex);
-        return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        return INTERNAL_ERROR;
+    }
+
+    private static ResponseEntity<ErrorDTO> error(HttpStatus status, String error, String message) {
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(new ErrorDTO(status.value(), error, message));
+    }
+
+    private static ResponseEntity<byte[]> preserialized(HttpStatus status, String error, String message) {
+        try {
+            byte[] body = new ObjectMapper().writeValueAsBytes(new ErrorDTO(status.value(), error, message));
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.setContentLength(body.length);
+            // shared by all responses, so nobody may change it
+            return new ResponseEntity<>(body, HttpHeaders.readOnlyHttpHeaders(headers), status);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize error " + error, e);
+        }
     }
 }
@@ -0,0 +1,7 @@
+package org.mgruszka.currency.exceptions;
+
+public class ImportFailedException extends RuntimeException {
+    public ImportFailedException(String msg) {
+        super(msg);
+    }
+}
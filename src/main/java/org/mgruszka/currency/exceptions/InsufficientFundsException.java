@@ -1,4 +1,14 @@
 package org.mgruszka.currency.exceptions;
 
+/**
+ * Expected outcome of an exchange larger than the balance, shared and without a stack trace like
+ * {@link AccountNotFoundException}.
+ */
 public class InsufficientFundsException extends RuntimeException {
+
+    public static final InsufficientFundsException INSTANCE = new InsufficientFundsException();
+
+    private InsufficientFundsException() {
+        super("Insufficient funds on Your account", null, false, false);
+    }
 }
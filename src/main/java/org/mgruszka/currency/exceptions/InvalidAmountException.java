@@ -0,0 +1,7 @@
+package org.mgruszka.currency.exceptions;
+
+public class InvalidAmountException extends RuntimeException {
+    public InvalidAmountException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,7 @@
+package org.mgruszka.currency.exceptions;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,7 @@
+package org.mgruszka.currency.exceptions;
+
+public class InvalidQuoteException extends RuntimeException {
+    public InvalidQuoteException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,7 @@
+package org.mgruszka.currency.exceptions;
+
+public class InvalidTokenException extends RuntimeException {
+    public InvalidTokenException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,7 @@
+package org.mgruszka.currency.exceptions;
+
+public class RateNotFoundException extends RuntimeException {
+    public RateNotFoundException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,14 @@
+package org.mgruszka.currency.exceptions;
+
+/**
+ * Expected outcome of an exchange whose {@code If-Match} names another version than the current one, shared and
+ * without a stack trace like {@link AccountNotFoundException}.
+ */
+public class VersionMismatchException extends RuntimeException {
+
+    public static final VersionMismatchException INSTANCE = new VersionMismatchException();
+
+    private VersionMismatchException() {
+        super("Account was changed since the given version", null, false, false);
+    }
+}
@@ -0,0 +1,62 @@
+package org.mgruszka.currency.migration;
+
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.mgruszka.currency.model.Account;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+/**
+ * Moves the {@code balancePLN} and {@code balanceUSD} fields into the per-currency {@code balances} map. Runs
+ * after {@link MinorUnitsBalanceMigration}, so the moved values are already minor units. Migrated documents no
+ * longer have the old fields, so running it again is a no-op.
+ * <p>
+ * Runs while the context starts, before the web server accepts requests, so no request sees an account without
+ * its balances.
+ */
+@Component
+@ConditionalOnProperty(name = "account.migration.balances-map.enabled", havingValue = "true", matchIfMissing = true)
+public class BalancesMapMigration implements InitializingBean {
+
+    private static final Logger logger = Logger.getLogger(BalancesMapMigration.class.getName());
+
+    private static final String BALANCE_PLN = "balancePLN";
+    private static final String BALANCE_USD = "balanceUSD";
+    private static final String BALANCES = "balances";
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * @param minorUnitsMigration only taken so that it has run before this one, absent when it is switched off
+     */
+    public BalancesMapMigration(MongoTemplate mongoTemplate, Optional<MinorUnitsBalanceMigration> minorUnitsMigration) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Query query = Query.query(new Criteria().orOperator(
+                Criteria.where(BALANCE_PLN).exists(true),
+                Criteria.where(BALANCE_USD).exists(true)));
+        Document legacyBalances = new Document("PLN", new Document("$ifNull", List.of("$" + BALANCE_PLN, 0L)))
+                .append("USD", new Document("$ifNull", List.of("$" + BALANCE_USD, 0L)));
+        AggregationUpdate update = AggregationUpdate.update()
+                .set(BALANCES).toValue(new Document("$mergeObjects", List.of(
+                        new Document("$ifNull", List.of("$" + BALANCES, new Document())),
+                        legacyBalances)))
+                .unset(BALANCE_PLN, BALANCE_USD);
+        UpdateResult result = mongoTemplate.updateMulti(query, update, Account.class);
+        if (result.getModifiedCount() > 0) {
+            logger.info("Moved balances of " + result.getModifiedCount() + " accounts into the balances map");
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.mgruszka.currency.migration;
+
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.mgruszka.currency.model.Account;
+import org.mgruszka.currency.model.Money;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Converts balances stored as {@code double} major units into {@code long} minor units. Only documents that
+ * still hold a {@code double} balance are touched, so running it again on a migrated collection is a no-op.
+ * <p>
+ * Runs while the context starts, before the web server accepts requests, so no request reads a legacy balance.
+ */
+@Component
+@ConditionalOnProperty(name = "account.migration.minor-units.enabled", havingValue = "true", matchIfMissing = true)
+public class MinorUnitsBalanceMigration implements InitializingBean {
+
+    private static final Logger logger = Logger.getLogger(MinorUnitsBalanceMigration.class.getName());
+
+    private static final String BALANCE_PLN = "balancePLN";
+    private static final String BALANCE_USD = "balanceUSD";
+
+    private final MongoTemplate mongoTemplate;
+
+    public MinorUnitsBalanceMigration(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Query query = Query.query(new Criteria().orOperator(
+                Criteria.where(BALANCE_PLN).type(1),
+                Criteria.where(BALANCE_USD).type(1)));
+        AggregationUpdate update = AggregationUpdate.update()
+                .set(BALANCE_PLN).toValue(toMinorUnits(BALANCE_PLN))
+                .set(BALANCE_USD).toValue(toMinorUnits(BALANCE_USD));
+        UpdateResult result = mongoTemplate.updateMulti(query, update, Account.class);
+        if (result.getModifiedCount() > 0) {
+            logger.info("Migrated balances of " + result.getModifiedCount() + " accounts to minor units");
+        }
+    }
+
+    private static Document toMinorUnits(String field) {
+        // round to the nearest minor unit, fields that are already long stay as they are
+        Document scaled = new Document("$round", List.of(new Document("$multiply", List.of("$" + field, Money.MINOR_UNITS)), 0));
+        return new Document("$cond", List.of(
+                new Document("$eq", List.of(new Document("$type", "$" + field), "double")),
+                new Document("$toLong", scaled),
+                "$" + field));
+    }
+}
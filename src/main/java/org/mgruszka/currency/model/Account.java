@@ -5,9 +5,15 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 @Document(collection = "accounts")
+@CompoundIndex(name = "name_search", def = "{'lastName': 1, 'firstName': 1, '_id': 1}")
 @Getter
 @Setter
 @AllArgsConstructor
@@ -17,6 +23,22 @@ public class Account {
     private String id;
     private String firstName;
     private String lastName;
-    private double balancePLN;
-    private double balanceUSD;
-}
\ No newline at end of file
+    /** Balances in minor units, currencies the account never held are absent */
+    private Map<TargetCurrency, Long> balances = new EnumMap<>(TargetCurrency.class);
+    @Indexed(sparse = true)
+    private String importId;
+    /** Incremented by every exchange, zero for documents written before versions were kept */
+    private long version;
+
+    /**
+     * @return balance in minor units, zero for a currency the account never held
+     */
+    public long getBalance(TargetCurrency currency) {
+        Long balance = balances.get(currency);
+        return balance == null ? 0 : balance;
+    }
+
+    public void setBalance(TargetCurrency currency, long minorUnits) {
+        balances.put(currency, minorUnits);
+    }
+}
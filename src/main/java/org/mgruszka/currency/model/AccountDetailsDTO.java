@@ -5,6 +5,8 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.util.Map;
+
 @Getter
 @Setter
 @AllArgsConstructor
@@ -15,4 +17,8 @@ public class AccountDetailsDTO {
     private String lastName;
     private double balancePLN;
     private double balanceUSD;
+    /** Balances of every currency the account holds, including PLN and USD */
+    private Map<TargetCurrency, Double> balances;
+    /** Version of the account, also sent as its ETag */
+    private long version;
 }
@@ -0,0 +1,8 @@
+package org.mgruszka.currency.model;
+
+/**
+ * Projection reading only the account identifier.
+ */
+public interface AccountIdView {
+    String getId();
+}
@@ -0,0 +1,17 @@
+package org.mgruszka.currency.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccountImportSummaryDTO {
+    @Schema(description = "Identifier of the import, ids of created accounts are available under /api/accounts/import/{importId}")
+    private String importId;
+    private long created;
+}
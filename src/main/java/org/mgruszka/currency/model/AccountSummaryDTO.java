@@ -0,0 +1,19 @@
+package org.mgruszka.currency.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Account found by a name search, read through a projection of only these fields.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccountSummaryDTO {
+    private String id;
+    private String firstName;
+    private String lastName;
+}
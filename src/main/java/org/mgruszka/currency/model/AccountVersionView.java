@@ -0,0 +1,16 @@
+package org.mgruszka.currency.model;
+
+/**
+ * Projection reading only the account version.
+ */
+public interface AccountVersionView {
+    /**
+     * @return version, {@code null} for documents written before versions were kept
+     */
+    Long getVersion();
+
+    default long version() {
+        Long version = getVersion();
+        return version == null ? 0 : version;
+    }
+}
@@ -0,0 +1,10 @@
+package org.mgruszka.currency.model;
+
+import org.springframework.data.annotation.Id;
+
+/**
+ * Accounts whose balance is at least {@code lowerBound} and below the lower bound of the next bucket, with the
+ * sum of those balances. Amounts are in minor units.
+ */
+public record BalanceBucket(@Id long lowerBound, long accounts, long total) {
+}
@@ -0,0 +1,19 @@
+package org.mgruszka.currency.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BalanceBucketDTO {
+    /** Lowest balance in the bucket, inclusive */
+    private double from;
+    /** Upper bound of the bucket, exclusive, {@code null} for the last bucket */
+    private Double to;
+    private long accounts;
+    private double total;
+}
@@ -0,0 +1,9 @@
+package org.mgruszka.currency.model;
+
+import java.util.Map;
+
+/**
+ * Number of accounts and the sum of their balances in every currency, in minor units.
+ */
+public record BalanceTotals(long accounts, Map<TargetCurrency, Long> totals) {
+}
@@ -0,0 +1,17 @@
+package org.mgruszka.currency.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Map;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BalanceTotalsDTO {
+    private long accounts;
+    private Map<TargetCurrency, Double> totals;
+}
@@ -0,0 +1,104 @@
+package org.mgruszka.currency.model;
+
+import org.mgruszka.currency.exceptions.InvalidCurrencyException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Immutable any-to-any exchange rates derived from one NBP table A. Every rate is precomputed as a fixed-point
+ * {@code long} scaled by {@link Money#RATE_SCALE} and kept in one flat array indexed by currency ordinals, so a
+ * conversion costs a single array read. Rates are rounded down, in line with the rounding policy of {@link Money}.
+ */
+public final class CrossRateMatrix {
+
+    private static final TargetCurrency[] CURRENCIES = TargetCurrency.values();
+    private static final int SIZE = CURRENCIES.length;
+    private static final BigDecimal SCALE = BigDecimal.valueOf(Money.RATE_SCALE);
+
+    private final LocalDate effectiveDate;
+    private final Map<TargetCurrency, Double> midRates;
+    /** {@code rates[from * SIZE + to]}, zero when either currency is missing from the table */
+    private final long[] rates;
+
+    private CrossRateMatrix(LocalDate effectiveDate, Map<TargetCurrency, Double> midRates, long[] rates) {
+        this.effectiveDate = effectiveDate;
+        this.midRates = midRates;
+        this.rates = rates;
+    }
+
+    /**
+     * @param midRates NBP mid rates, PLN paid for one unit of the currency. PLN itself does not have to be given.
+     */
+    public static CrossRateMatrix of(LocalDate effectiveDate, Map<TargetCurrency, Double> midRates) {
+        Map<TargetCurrency, Double> mids = new EnumMap<>(TargetCurrency.class);
+        mids.putAll(midRates);
+        mids.put(TargetCurrency.PLN, 1.0);
+
+        BigDecimal[] decimalMids = new BigDecimal[SIZE];
+        mids.forEach((currency, mid) -> {
+            if (!(mid > 0) || Double.isInfinite(mid)) {
+                throw new IllegalArgumentException("Invalid mid rate " + mid + " for " + currency);
+            }
+            decimalMids[currency.ordinal()] = BigDecimal.valueOf(mid);
+        });
+
+        long[] rates = new long[SIZE * SIZE];
+        for (int from = 0; from < SIZE; from++) {
+            if (decimalMids[from] == null) {
+                continue;
+            }
+            BigDecimal scaledFrom = decimalMids[from].multiply(SCALE);
+            for (int to = 0; to < SIZE; to++) {
+                if (decimalMids[to] != null) {
+                    rates[from * SIZE + to] = scaledFrom.divide(decimalMids[to], 0, RoundingMode.DOWN).longValueExact();
+                }
+            }
+        }
+        return new CrossRateMatrix(effectiveDate, Collections.unmodifiableMap(mids), rates);
+    }
+
+    /**
+     * @return units of {@code to} paid for one unit of {@code from}, scaled by {@link Money#RATE_SCALE}
+     * @throws InvalidCurrencyException when the table has no rate for either currency
+     */
+    public long rate(TargetCurrency from, TargetCurrency to) {
+        long rate = rates[from.ordinal() * SIZE + to.ordinal()];
+        if (rate == 0) {
+            throw new InvalidCurrencyException("No exchange rate from " + from + " to " + to);
+        }
+        return rate;
+    }
+
+    /**
+     * @return {@code amount} of {@code from} in minor units converted to minor units of {@code to}, rounded down
+     */
+    public long convert(long amount, TargetCurrency from, TargetCurrency to) {
+        return Money.multiply(amount, rate(from, to));
+    }
+
+    public boolean supports(TargetCurrency currency) {
+        return midRates.containsKey(currency);
+    }
+
+    public LocalDate getEffectiveDate() {
+        return effectiveDate;
+    }
+
+    /**
+     * @return NBP mid rates the matrix was built from, including PLN at 1
+     */
+    public Map<TargetCurrency, Double> getMidRates() {
+        return midRates;
+    }
+
+    @Override
+    public String toString() {
+        return "CrossRateMatrix{effectiveDate=" + effectiveDate + ", currencies=" + Arrays.toString(midRates.keySet().toArray()) + "}";
+    }
+}
@@ -0,0 +1,17 @@
+package org.mgruszka.currency.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ErrorDTO {
+    private int status;
+    /** stable code for clients to match on, the message is for people */
+    private String error;
+    private String message;
+}
@@ -0,0 +1,9 @@
+package org.mgruszka.currency.model;
+
+/**
+ * Single priced exchange, {@code amount} is debited from the {@code sourceCurrency} balance and
+ * {@code convertedAmount} is credited to the {@code targetCurrency} balance. Both are in minor units.
+ */
+public record ExchangeOperation(String accountId, TargetCurrency sourceCurrency, TargetCurrency targetCurrency,
+                                long amount, long convertedAmount) {
+}
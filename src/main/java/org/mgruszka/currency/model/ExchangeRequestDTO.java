@@ -0,0 +1,24 @@
+package org.mgruszka.currency.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExchangeRequestDTO {
+    private String accountId;
+    @Schema(description = "Amount in source currency")
+    private double amount;
+    @Schema(description = "Currency debited, when missing USD for PLN targets and PLN otherwise")
+    private TargetCurrency sourceCurrency;
+    private TargetCurrency targetCurrency;
+
+    public ExchangeRequestDTO(String accountId, double amount, TargetCurrency targetCurrency) {
+        this(accountId, amount, null, targetCurrency);
+    }
+}
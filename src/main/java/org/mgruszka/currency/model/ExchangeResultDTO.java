@@ -0,0 +1,19 @@
+package org.mgruszka.currency.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExchangeResultDTO {
+    private String accountId;
+    private double amount;
+    private TargetCurrency sourceCurrency;
+    private TargetCurrency targetCurrency;
+    private double convertedAmount;
+    private ExchangeStatus status;
+}
@@ -0,0 +1,7 @@
+package org.mgruszka.currency.model;
+
+public enum ExchangeStatus {
+    SUCCESS, INSUFFICIENT_FUNDS, ACCOUNT_NOT_FOUND,
+    /** only for a single exchange with {@code If-Match}, the account has a different version */
+    VERSION_MISMATCH
+}
@@ -0,0 +1,27 @@
+package org.mgruszka.currency.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Id of a quote that was executed by any instance. MongoDB deletes it in the background once the quote expired,
+ * an expired quote is rejected before its id is looked up.
+ */
+@Document(collection = "executed_quotes")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExecutedQuote {
+    @Id
+    private String quoteId;
+    @Indexed(expireAfter = "0s")
+    private Instant expiresAt;
+}
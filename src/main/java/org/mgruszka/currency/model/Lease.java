@@ -0,0 +1,29 @@
+package org.mgruszka.currency.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Lock held by one instance until it expires, unless the holder renews it. MongoDB deletes expired leases in the
+ * background, an expired lease that is still stored can be taken over right away.
+ */
+@Document(collection = "leases")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class Lease {
+    @Id
+    private String name;
+    /** Instance holding the lease */
+    private String owner;
+    @Indexed(expireAfter = "0s")
+    private Instant expiresAt;
+}
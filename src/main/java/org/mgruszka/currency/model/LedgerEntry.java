@@ -0,0 +1,35 @@
+package org.mgruszka.currency.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * One applied exchange. Entries are only ever inserted, the history of an account is read newest first through
+ * the {@code account_history} index.
+ */
+@Document(collection = "ledger")
+@CompoundIndex(name = "account_history", def = "{'accountId': 1, 'timestamp': -1, '_id': -1}")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class LedgerEntry {
+    @Id
+    private String id;
+    private String accountId;
+    private TargetCurrency sourceCurrency;
+    private TargetCurrency targetCurrency;
+    /** Debited amount in minor units of the source currency */
+    private long amount;
+    /** Credited amount in minor units of the target currency */
+    private long convertedAmount;
+    /** Time of the exchange, in milliseconds as stored by MongoDB */
+    private Instant timestamp;
+}
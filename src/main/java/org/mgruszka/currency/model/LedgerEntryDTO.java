@@ -0,0 +1,21 @@
+package org.mgruszka.currency.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class LedgerEntryDTO {
+    private String id;
+    private Instant timestamp;
+    private double amount;
+    private TargetCurrency sourceCurrency;
+    private TargetCurrency targetCurrency;
+    private double convertedAmount;
+}
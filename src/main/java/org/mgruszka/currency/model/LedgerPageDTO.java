@@ -0,0 +1,19 @@
+package org.mgruszka.currency.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class LedgerPageDTO {
+    /** Entries newest first */
+    private List<LedgerEntryDTO> entries;
+    /** Cursor of the next page, {@code null} on the last page */
+    private String nextCursor;
+}
@@ -0,0 +1,69 @@
+package org.mgruszka.currency.model;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Fixed-point arithmetic used for balances. Amounts are kept as {@code long} minor units (grosze, cents)
+ * and exchange rates as {@code long} scaled by {@link #RATE_SCALE}.
+ * <p>
+ * Rounding policy: amounts coming from the API are rounded half up to the nearest minor unit,
+ * converted amounts are always rounded down so an exchange never credits more than it is worth.
+ */
+public final class Money {
+
+    public static final long MINOR_UNITS = 100;
+    public static final long RATE_SCALE = 100_000_000L;
+
+    private Money() {
+    }
+
+    public static long toMinorUnits(double amount) {
+        return Math.round(amount * MINOR_UNITS);
+    }
+
+    public static double toMajorUnits(long minorUnits) {
+        return (double) minorUnits / MINOR_UNITS;
+    }
+
+    /**
+     * @return {@code minorUnits} as an exact decimal in major units, e.g. {@code 1234.50}
+     */
+    public static String toDecimalString(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, 2).toPlainString();
+    }
+
+    public static long toFixedRate(double rate) {
+        return Math.round(rate * RATE_SCALE);
+    }
+
+    /**
+     * @return {@code minorUnits * rate}, rounded down
+     */
+    public static long multiply(long minorUnits, long fixedRate) {
+        return mulDivFloor(minorUnits, fixedRate, RATE_SCALE);
+    }
+
+    /**
+     * @return {@code minorUnits / rate}, rounded down
+     */
+    public static long divide(long minorUnits, long fixedRate) {
+        return mulDivFloor(minorUnits, RATE_SCALE, fixedRate);
+    }
+
+    private static long mulDivFloor(long a, long b, long divisor) {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        if ((high == 0 && low >= 0) || (high == -1 && low < 0)) {
+            return Math.floorDiv(low, divisor);
+        }
+        // only amounts in the hundreds of millions overflow 64 bits, those can afford the allocation
+        BigInteger[] quotientAndRemainder = BigInteger.valueOf(a).multiply(BigInteger.valueOf(b))
+                .divideAndRemainder(BigInteger.valueOf(divisor));
+        BigInteger quotient = quotientAndRemainder[0];
+        if (quotientAndRemainder[1].signum() != 0 && quotientAndRemainder[1].signum() != Long.signum(divisor)) {
+            quotient = quotient.subtract(BigInteger.ONE);
+        }
+        return quotient.longValueExact();
+    }
+}
@@ -0,0 +1,11 @@
+package org.mgruszka.currency.model;
+
+import java.time.Instant;
+
+/**
+ * Conversion priced at a locked rate, {@code amount} of {@code sourceCurrency} for {@code convertedAmount} of
+ * {@code targetCurrency}, both in minor units. Executable once, on account {@code accountId}, until {@code expiresAt}.
+ */
+public record Quote(String id, String accountId, TargetCurrency sourceCurrency, TargetCurrency targetCurrency, long amount, long convertedAmount,
+                    Instant expiresAt) {
+}
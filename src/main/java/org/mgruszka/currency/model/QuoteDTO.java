@@ -0,0 +1,26 @@
+package org.mgruszka.currency.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class QuoteDTO {
+    private double amount;
+    private TargetCurrency sourceCurrency;
+    private TargetCurrency targetCurrency;
+    private double convertedAmount;
+    @Schema(description = "Effective date of the NBP table the quote is priced from")
+    private LocalDate effectiveDate;
+    private Instant expiresAt;
+    @Schema(description = "Pass as quoteToken to the exchange endpoint to execute at the quoted amounts")
+    private String token;
+}
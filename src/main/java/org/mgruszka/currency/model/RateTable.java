@@ -0,0 +1,29 @@
+package org.mgruszka.currency.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * One NBP table A as stored in the local rate history, keyed by its effective date.
+ */
+@Document(collection = "rate_tables")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class RateTable {
+    @Id
+    private LocalDate effectiveDate;
+    /** NBP mid rates, PLN paid for one unit of the currency */
+    private Map<TargetCurrency, Double> midRates;
+    /** When this service last got the table from NBP */
+    private Instant fetchedAt;
+}
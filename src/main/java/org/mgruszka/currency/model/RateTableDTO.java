@@ -0,0 +1,21 @@
+package org.mgruszka.currency.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class RateTableDTO {
+    @Schema(description = "Effective date of the NBP table, the latest one at or before the requested date")
+    private LocalDate effectiveDate;
+    @Schema(description = "NBP mid rates, PLN paid for one unit of the currency")
+    private Map<TargetCurrency, Double> rates;
+}
@@ -0,0 +1,32 @@
+package org.mgruszka.currency.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Current NBP table A as fetched by the instance holding the rate lease, read by all other instances.
+ */
+@Document(collection = "shared_rates")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class SharedRateTable {
+    @Id
+    private String name;
+    private LocalDate effectiveDate;
+    /** NBP mid rates, PLN paid for one unit of the currency */
+    private Map<TargetCurrency, Double> midRates;
+    /** When the leader got the table from NBP */
+    private Instant fetchedAt;
+    /** Instance that fetched the table */
+    private String fetchedBy;
+}
@@ -1,5 +1,11 @@
 package org.mgruszka.currency.model;
 
+/**
+ * Currencies of NBP table A plus PLN. Constants are only ever appended, their ordinals index
+ * {@link CrossRateMatrix}.
+ */
 public enum TargetCurrency {
-    PLN, USD
+    PLN, USD,
+    AUD, BGN, BRL, CAD, CHF, CLP, CNY, CZK, DKK, EUR, GBP, HKD, HUF, IDR, ILS, INR, ISK, JPY, KRW,
+    MXN, MYR, NOK, NZD, PHP, RON, SEK, SGD, THB, TRY, UAH, XDR, ZAR
 }
@@ -0,0 +1,57 @@
+package org.mgruszka.currency.repository;
+
+import org.bson.Document;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aggregation pipelines behind account reports, shared by the blocking and the reactive account repository.
+ * Everything is computed by MongoDB, only the aggregated result is sent back.
+ */
+final class AccountReports {
+
+    private static final TargetCurrency[] CURRENCIES = TargetCurrency.values();
+
+    private AccountReports() {
+    }
+
+    /**
+     * One document with the number of accounts and, under {@code totals}, the sum of every currency.
+     */
+    static Aggregation totals() {
+        Document group = new Document(ExchangeUpdates.ID, null).append("accounts", new Document("$sum", 1));
+        Document totals = new Document();
+        for (TargetCurrency currency : CURRENCIES) {
+            group.append(currency.name(), new Document("$sum", "$" + ExchangeUpdates.balanceField(currency)));
+            totals.append(currency.name(), "$" + currency.name());
+        }
+        return Aggregation.newAggregation(
+                Aggregation.stage(new Document("$group", group)),
+                Aggregation.stage(new Document("$project", new Document(ExchangeUpdates.ID, 0).append("accounts", 1).append("totals", totals))));
+    }
+
+    /**
+     * One document per non-empty bucket of {@code currency} balances, with the lower bound as its id. Negative
+     * balances, which only documents written before amounts were validated can have, count in the first bucket.
+     *
+     * @param boundaries ascending lower bounds of the buckets in minor units, the first one zero
+     */
+    static Aggregation distribution(TargetCurrency currency, long[] boundaries) {
+        // accounts that never held the currency count as a zero balance
+        Document balance = new Document("$ifNull", List.of("$" + ExchangeUpdates.balanceField(currency), 0L));
+        List<Long> bounds = new ArrayList<>(boundaries.length + 1);
+        for (long boundary : boundaries) {
+            bounds.add(boundary);
+        }
+        // $bucket fails on a value outside all buckets, grouping by at least zero with an open last bucket puts
+        // every account into some bucket, while the total still sums the actual balances
+        bounds.add(Long.MAX_VALUE);
+        Document groupBy = new Document("$max", List.of(balance, 0L));
+        return Aggregation.newAggregation(Aggregation.stage(new Document("$bucket", new Document("groupBy", groupBy)
+                .append("boundaries", bounds)
+                .append("output", new Document("accounts", new Document("$sum", 1)).append("total", new Document("$sum", balance))))));
+    }
+}
@@ -1,6 +1,23 @@
 package org.mgruszka.currency.repository;
 
 import org.mgruszka.currency.model.Account;
-import org.springframework.data.mongodb.repository.MongoRepository;
+import org.mgruszka.currency.model.AccountIdView;
+import org.mgruszka.currency.model.AccountVersionView;
 
-public interface AccountRepository extends MongoRepository<Account, String> {}
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface AccountRepository extends BaseRepository<Account, String>, AccountRepositoryCustom {
+
+    Stream<AccountIdView> findByImportId(String importId);
+
+    /**
+     * Reads only the version of an account, for conditional requests.
+     */
+    Optional<AccountVersionView> findVersionById(String id);
+
+    /**
+     * Reads all accounts through one cursor, the caller must close the stream.
+     */
+    Stream<Account> streamAllBy();
+}
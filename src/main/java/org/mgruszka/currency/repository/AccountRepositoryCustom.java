@@ -0,0 +1,64 @@
+package org.mgruszka.currency.repository;
+
+import org.mgruszka.currency.model.Account;
+import org.mgruszka.currency.model.AccountSummaryDTO;
+import org.mgruszka.currency.model.BalanceBucket;
+import org.mgruszka.currency.model.BalanceTotals;
+import org.mgruszka.currency.model.ExchangeOperation;
+import org.mgruszka.currency.model.ExchangeStatus;
+import org.mgruszka.currency.model.TargetCurrency;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface AccountRepositoryCustom {
+
+    /**
+     * Atomically debits {@code amount} from the {@code sourceCurrency} balance and credits {@code convertedAmount}
+     * to the {@code targetCurrency} balance in a single conditional update. Amounts are in minor units.
+     *
+     * @return updated account, or empty when the account does not exist or its source balance is too low
+     */
+    Optional<Account> exchange(String accountId, TargetCurrency sourceCurrency, TargetCurrency targetCurrency, long amount, long convertedAmount);
+
+    /**
+     * Like {@link #exchange(String, TargetCurrency, TargetCurrency, long, long)}, applied only while the account
+     * still has {@code expectedVersion}.
+     *
+     * @return updated account, or empty when the account does not exist, has another version or its source
+     * balance is too low
+     */
+    Optional<Account> exchange(String accountId, TargetCurrency sourceCurrency, TargetCurrency targetCurrency, long amount, long convertedAmount,
+                               long expectedVersion);
+
+    /**
+     * Applies many exchanges with one unordered bulk write. Operations on the same account are applied in the
+     * given order, an operation that would overdraw the account is skipped.
+     *
+     * @return status of every operation, in the order of {@code operations}
+     */
+    List<ExchangeStatus> bulkExchange(List<ExchangeOperation> operations);
+
+    /**
+     * @return number of accounts and the sum of their balances in every currency, computed by MongoDB
+     */
+    BalanceTotals sumBalances();
+
+    /**
+     * Counts accounts and sums their {@code currency} balances per bucket, computed by MongoDB. A negative balance
+     * counts in the first bucket.
+     *
+     * @param boundaries ascending lower bounds of the buckets in minor units, the first one zero
+     * @return non-empty buckets, in ascending order
+     */
+    List<BalanceBucket> balanceDistribution(TargetCurrency currency, long[] boundaries);
+
+    /**
+     * Finds accounts whose last name, and first name when given, start with the given prefixes, ordered by last
+     * name, first name and id. Reads one range of the {@code name_search} index and only the summary fields.
+     *
+     * @param firstNamePrefix {@code null} or empty to match any first name
+     * @param after last account of the previous page, {@code null} for the first page
+     */
+    List<AccountSummaryDTO> searchByName(String lastNamePrefix, String firstNamePrefix, AccountSummaryDTO after, int limit);
+}
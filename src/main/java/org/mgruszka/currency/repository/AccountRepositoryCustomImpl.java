@@ -0,0 +1,89 @@
+package org.mgruszka.currency.repository;
+
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.Document;
+import org.mgruszka.currency.model.Account;
+import org.mgruszka.currency.model.AccountSummaryDTO;
+import org.mgruszka.currency.model.BalanceBucket;
+import org.mgruszka.currency.model.BalanceTotals;
+import org.mgruszka.currency.model.ExchangeOperation;
+import org.mgruszka.currency.model.ExchangeStatus;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class AccountRepositoryCustomImpl implements AccountRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public AccountRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Optional<Account> exchange(String accountId, TargetCurrency sourceCurrency, TargetCurrency targetCurrency, long amount, long convertedAmount) {
+        Query query = ExchangeUpdates.exchangeQuery(accountId, sourceCurrency, amount);
+        Update update = ExchangeUpdates.exchangeUpdate(sourceCurrency, targetCurrency, amount, convertedAmount);
+        return Optional.ofNullable(mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Account.class));
+    }
+
+    @Override
+    public Optional<Account> exchange(String accountId, TargetCurrency sourceCurrency, TargetCurrency targetCurrency, long amount, long convertedAmount,
+                                      long expectedVersion) {
+        Query query = ExchangeUpdates.exchangeQuery(accountId, sourceCurrency, amount, expectedVersion);
+        Update update = ExchangeUpdates.exchangeUpdate(sourceCurrency, targetCurrency, amount, convertedAmount);
+        return Optional.ofNullable(mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Account.class));
+    }
+
+    /**
+     * Reads balances of all involved accounts once, decides in memory which operations fit and then writes one
+     * guarded {@code $inc} per account in a single unordered bulk write. Every update also pushes the batch id,
+     * so if a concurrent write made a guard fail, the accounts that were not updated can be found afterwards.
+     */
+    @Override
+    public List<ExchangeStatus> bulkExchange(List<ExchangeOperation> operations) {
+        List<Account> snapshot = mongoTemplate.find(ExchangeUpdates.BulkPlan.snapshotQuery(operations), Account.class);
+        ExchangeUpdates.BulkPlan plan = new ExchangeUpdates.BulkPlan(operations, snapshot);
+
+        List<Pair<Query, Update>> updates = plan.updates();
+        if (updates.isEmpty()) {
+            return plan.statuses();
+        }
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Account.class);
+        for (Pair<Query, Update> update : updates) {
+            bulkOperations.updateOne(update.getFirst(), update.getSecond());
+        }
+        BulkWriteResult result = bulkOperations.execute();
+        if (result.getMatchedCount() < updates.size()) {
+            plan.markNotApplied(mongoTemplate.find(plan.appliedQuery(), Document.class, mongoTemplate.getCollectionName(Account.class)));
+        }
+        return plan.statuses();
+    }
+
+    @Override
+    public BalanceTotals sumBalances() {
+        BalanceTotals totals = mongoTemplate.aggregate(AccountReports.totals(), Account.class, BalanceTotals.class).getUniqueMappedResult();
+        return totals != null ? totals : new BalanceTotals(0, Map.of());
+    }
+
+    @Override
+    public List<BalanceBucket> balanceDistribution(TargetCurrency currency, long[] boundaries) {
+        return mongoTemplate.aggregate(AccountReports.distribution(currency, boundaries), Account.class, BalanceBucket.class).getMappedResults();
+    }
+
+    @Override
+    public List<AccountSummaryDTO> searchByName(String lastNamePrefix, String firstNamePrefix, AccountSummaryDTO after, int limit) {
+        return mongoTemplate.query(Account.class)
+                .as(AccountSummaryDTO.class)
+                .matching(AccountSearch.query(lastNamePrefix, firstNamePrefix, after, limit))
+                .all();
+    }
+}
@@ -0,0 +1,82 @@
+package org.mgruszka.currency.repository;
+
+import org.mgruszka.currency.model.AccountSummaryDTO;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Name search query shared by the blocking and the reactive account repository. Name prefixes become anchored
+ * regular expressions, which MongoDB turns into a range on the {@code name_search} index, and pages continue
+ * after the last account of the previous one in index order, so every page is a short index range scan.
+ */
+final class AccountSearch {
+
+    static final String INDEX = "name_search";
+
+    private static final String FIRST_NAME = "firstName";
+    private static final String LAST_NAME = "lastName";
+    private static final Sort INDEX_ORDER = Sort.by(LAST_NAME, FIRST_NAME, ExchangeUpdates.ID);
+    private static final String REGEX_SPECIAL = "\\^$.|?*+()[]{}";
+
+    private AccountSearch() {
+    }
+
+    /**
+     * Reads only the fields of {@link AccountSummaryDTO}.
+     *
+     * @param firstNamePrefix {@code null} or empty to match any first name
+     * @param after last account of the previous page, {@code null} for the first page
+     */
+    static Query query(String lastNamePrefix, String firstNamePrefix, AccountSummaryDTO after, int limit) {
+        List<Criteria> criteria = new ArrayList<>(3);
+        criteria.add(Criteria.where(LAST_NAME).regex(prefixRegex(lastNamePrefix)));
+        if (firstNamePrefix != null && !firstNamePrefix.isEmpty()) {
+            criteria.add(Criteria.where(FIRST_NAME).regex(prefixRegex(firstNamePrefix)));
+        }
+        if (after != null) {
+            criteria.add(after(after));
+        }
+        Query query = Query.query(new Criteria().andOperator(criteria))
+                .with(INDEX_ORDER)
+                .limit(limit)
+                .withHint(INDEX);
+        query.fields().include(ExchangeUpdates.ID, FIRST_NAME, LAST_NAME);
+        return query;
+    }
+
+    /**
+     * Matches accounts after {@code last} in {@code (lastName, firstName, _id)} order. A missing first name sorts
+     * before any other, and comparing it with {@code $gt} would match nothing, so it gets its own conditions.
+     */
+    private static Criteria after(AccountSummaryDTO last) {
+        Criteria laterLastName = Criteria.where(LAST_NAME).gt(last.getLastName());
+        if (last.getFirstName() == null) {
+            return new Criteria().orOperator(laterLastName,
+                    Criteria.where(LAST_NAME).is(last.getLastName()).and(FIRST_NAME).ne(null),
+                    Criteria.where(LAST_NAME).is(last.getLastName()).and(FIRST_NAME).is(null).and(ExchangeUpdates.ID).gt(last.getId()));
+        }
+        return new Criteria().orOperator(laterLastName,
+                Criteria.where(LAST_NAME).is(last.getLastName()).and(FIRST_NAME).gt(last.getFirstName()),
+                Criteria.where(LAST_NAME).is(last.getLastName()).and(FIRST_NAME).is(last.getFirstName()).and(ExchangeUpdates.ID).gt(last.getId()));
+    }
+
+    /**
+     * Case-sensitive and anchored at the start, since only such a regular expression is evaluated as an index
+     * range. Metacharacters are escaped one by one, MongoDB does not narrow the range for {@code \Q...\E}.
+     */
+    static String prefixRegex(String prefix) {
+        StringBuilder regex = new StringBuilder(prefix.length() + 8).append('^');
+        for (int i = 0; i < prefix.length(); i++) {
+            char c = prefix.charAt(i);
+            if (REGEX_SPECIAL.indexOf(c) >= 0) {
+                regex.append('\\');
+            }
+            regex.append(c);
+        }
+        return regex.toString();
+    }
+}
@@ -0,0 +1,39 @@
+package org.mgruszka.currency.repository;
+
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The CRUD methods the services use, implemented by Spring Data for MongoDB and by the embedded repositories.
+ * Repositories expose only these instead of all of {@link org.springframework.data.mongodb.repository.MongoRepository},
+ * so every store supports everything a service can call.
+ */
+@NoRepositoryBean
+public interface BaseRepository<T, ID> extends Repository<T, ID> {
+
+    <S extends T> S save(S entity);
+
+    <S extends T> List<S> saveAll(Iterable<S> entities);
+
+    /**
+     * Inserts in order and stops at the first duplicate.
+     *
+     * @throws org.springframework.dao.DuplicateKeyException when an entity with the same id is already stored
+     */
+    <S extends T> List<S> insert(Iterable<S> entities);
+
+    Optional<T> findById(ID id);
+
+    boolean existsById(ID id);
+
+    List<T> findAll();
+
+    long count();
+
+    void deleteById(ID id);
+
+    void deleteAll();
+}
@@ -0,0 +1,190 @@
+package org.mgruszka.currency.repository;
+
+import org.bson.Document;
+import org.mgruszka.currency.model.Account;
+import org.mgruszka.currency.model.ExchangeOperation;
+import org.mgruszka.currency.model.ExchangeStatus;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Queries and updates behind exchanges, shared by the blocking and the reactive account repository so both
+ * apply exactly the same guards.
+ */
+final class ExchangeUpdates {
+
+    static final String ID = "_id";
+    static final String BALANCES = "balances";
+    static final String APPLIED_BATCHES = "appliedBatches";
+    static final String VERSION = "version";
+
+    private static final TargetCurrency[] CURRENCIES = TargetCurrency.values();
+    /**
+     * Batch ids kept per account. A batch finds its own id as long as fewer batches updated the account between
+     * its bulk write and its re-read, which takes milliseconds.
+     */
+    static final int APPLIED_BATCHES_KEPT = 64;
+
+    private ExchangeUpdates() {
+    }
+
+    static String balanceField(TargetCurrency currency) {
+        return BALANCES + "." + currency.name();
+    }
+
+    /**
+     * Matches the account only while its source balance covers {@code amount}. A balance the account never
+     * held is missing and does not match either.
+     */
+    static Query exchangeQuery(String accountId, TargetCurrency sourceCurrency, long amount) {
+        return Query.query(Criteria.where(ID).is(accountId).and(balanceField(sourceCurrency)).gte(amount));
+    }
+
+    /**
+     * Like {@link #exchangeQuery(String, TargetCurrency, long)}, and only while the account has {@code expectedVersion}.
+     */
+    static Query exchangeQuery(String accountId, TargetCurrency sourceCurrency, long amount, long expectedVersion) {
+        Criteria criteria = Criteria.where(ID).is(accountId).and(balanceField(sourceCurrency)).gte(amount);
+        // documents written before versions were kept have no version field, which reads as version zero
+        return Query.query(expectedVersion == 0 ? criteria.and(VERSION).in(0L, null) : criteria.and(VERSION).is(expectedVersion));
+    }
+
+    static Update exchangeUpdate(TargetCurrency sourceCurrency, TargetCurrency targetCurrency, long amount, long convertedAmount) {
+        return new Update().inc(balanceField(sourceCurrency), -amount).inc(balanceField(targetCurrency), convertedAmount).inc(VERSION, 1);
+    }
+
+    /**
+     * In-memory part of a bulk exchange. Decides every operation against a snapshot of balances, builds one
+     * guarded {@code $inc} per account and, when some of them did not match, corrects the statuses from the
+     * batch ids pushed to the accounts. Unlike a single last batch id, a pushed id is not overwritten by a
+     * concurrent batch on the same account before the re-read.
+     */
+    static final class BulkPlan {
+        private final List<ExchangeOperation> operations;
+        private final Map<String, Balances> balances = new LinkedHashMap<>();
+        private final List<ExchangeStatus> statuses;
+        private final String batchId = UUID.randomUUID().toString();
+
+        BulkPlan(List<ExchangeOperation> operations, Iterable<Account> snapshot) {
+            this.operations = operations;
+            for (Account account : snapshot) {
+                balances.put(account.getId(), new Balances(account));
+            }
+            this.statuses = new ArrayList<>(operations.size());
+            for (ExchangeOperation operation : operations) {
+                Balances accountBalances = balances.get(operation.accountId());
+                if (accountBalances == null) {
+                    statuses.add(ExchangeStatus.ACCOUNT_NOT_FOUND);
+                } else if (accountBalances.apply(operation)) {
+                    statuses.add(ExchangeStatus.SUCCESS);
+                } else {
+                    statuses.add(ExchangeStatus.INSUFFICIENT_FUNDS);
+                }
+            }
+        }
+
+        static Query snapshotQuery(List<ExchangeOperation> operations) {
+            Set<String> accountIds = new HashSet<>();
+            for (ExchangeOperation operation : operations) {
+                accountIds.add(operation.accountId());
+            }
+            Query query = Query.query(Criteria.where(ID).in(accountIds));
+            query.fields().include(BALANCES);
+            return query;
+        }
+
+        List<Pair<Query, Update>> updates() {
+            List<Pair<Query, Update>> updates = new ArrayList<>();
+            for (Map.Entry<String, Balances> entry : balances.entrySet()) {
+                Balances accountBalances = entry.getValue();
+                if (!accountBalances.changed) {
+                    continue;
+                }
+                Criteria criteria = Criteria.where(ID).is(entry.getKey());
+                Update update = new Update();
+                for (TargetCurrency currency : CURRENCIES) {
+                    long delta = accountBalances.deltas[currency.ordinal()];
+                    if (delta < 0) {
+                        // the guard keeps every debited balance non-negative after the whole delta is applied
+                        criteria.and(balanceField(currency)).gte(-delta);
+                    }
+                    if (delta != 0) {
+                        update.inc(balanceField(currency), delta);
+                    }
+                }
+                updates.add(Pair.of(Query.query(criteria), update.inc(VERSION, 1)
+                        .push(APPLIED_BATCHES).slice(-APPLIED_BATCHES_KEPT).each(batchId)));
+            }
+            return updates;
+        }
+
+        Query appliedQuery() {
+            Query query = Query.query(Criteria.where(ID).in(balances.keySet()));
+            query.fields().include(APPLIED_BATCHES);
+            return query;
+        }
+
+        /**
+         * Re-marks successful operations on accounts whose update did not match, given the documents returned
+         * by {@link #appliedQuery()}.
+         */
+        void markNotApplied(Iterable<Document> appliedDocuments) {
+            Map<String, Boolean> applied = new HashMap<>();
+            for (Document document : appliedDocuments) {
+                List<String> appliedBatches = document.getList(APPLIED_BATCHES, String.class);
+                applied.put(document.getString(ID), appliedBatches != null && appliedBatches.contains(batchId));
+            }
+            for (int i = 0; i < operations.size(); i++) {
+                if (statuses.get(i) != ExchangeStatus.SUCCESS) {
+                    continue;
+                }
+                Boolean accountApplied = applied.get(operations.get(i).accountId());
+                if (accountApplied == null) {
+                    statuses.set(i, ExchangeStatus.ACCOUNT_NOT_FOUND);
+                } else if (!accountApplied) {
+                    statuses.set(i, ExchangeStatus.INSUFFICIENT_FUNDS);
+                }
+            }
+        }
+
+        List<ExchangeStatus> statuses() {
+            return statuses;
+        }
+    }
+
+    private static class Balances {
+        private final long[] balances = new long[CURRENCIES.length];
+        private final long[] deltas = new long[CURRENCIES.length];
+        private boolean changed;
+
+        Balances(Account account) {
+            account.getBalances().forEach((currency, balance) -> balances[currency.ordinal()] = balance);
+        }
+
+        boolean apply(ExchangeOperation operation) {
+            int source = operation.sourceCurrency().ordinal();
+            int target = operation.targetCurrency().ordinal();
+            if (balances[source] < operation.amount()) {
+                return false;
+            }
+            balances[source] -= operation.amount();
+            balances[target] += operation.convertedAmount();
+            deltas[source] -= operation.amount();
+            deltas[target] += operation.convertedAmount();
+            changed = true;
+            return true;
+        }
+    }
+}
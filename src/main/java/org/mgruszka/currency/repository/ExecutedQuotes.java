@@ -0,0 +1,38 @@
+package org.mgruszka.currency.repository;
+
+import org.mgruszka.currency.model.ExecutedQuote;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Ids of executed quotes kept in the {@code executed_quotes} collection, shared by all instances. A quote is marked
+ * with a single insert, which fails on the unique id when any instance marked it before.
+ */
+@Component
+@Profile("!embedded")
+public class ExecutedQuotes {
+
+    private final MongoTemplate mongoTemplate;
+
+    public ExecutedQuotes(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Marks quote {@code quoteId} as executed until {@code expiresAt}.
+     *
+     * @return false when the quote was already executed
+     */
+    public boolean tryMark(String quoteId, Instant expiresAt) {
+        try {
+            mongoTemplate.insert(new ExecutedQuote(quoteId, expiresAt));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+}
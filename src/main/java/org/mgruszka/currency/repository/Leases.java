@@ -0,0 +1,68 @@
+package org.mgruszka.currency.repository;
+
+import org.mgruszka.currency.model.Lease;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Leases kept in the {@code leases} collection. A lease is taken with a single upsert that only matches a lease
+ * held by the same owner or already expired; when another owner holds it the upsert tries to insert a second
+ * lease with the same name and fails on the unique id. Expiry is compared with the instance clock, so clocks of
+ * the instances must differ by much less than the lease duration.
+ */
+@Component
+@ConditionalOnProperty(name = "nbp.rate.sharing", havingValue = "mongo")
+public class Leases {
+
+    private static final String OWNER = "owner";
+    private static final String EXPIRES_AT = "expiresAt";
+
+    private final MongoTemplate mongoTemplate;
+    private final Clock clock;
+
+    @Autowired
+    public Leases(MongoTemplate mongoTemplate) {
+        this(mongoTemplate, Clock.systemUTC());
+    }
+
+    Leases(MongoTemplate mongoTemplate, Clock clock) {
+        this.mongoTemplate = mongoTemplate;
+        this.clock = clock;
+    }
+
+    /**
+     * Takes the lease {@code name} for {@code duration}, or extends it when {@code owner} already holds it.
+     *
+     * @return false when another owner holds a lease that has not expired
+     */
+    public boolean tryAcquire(String name, String owner, Duration duration) {
+        Instant now = clock.instant();
+        Query query = Query.query(Criteria.where("_id").is(name)
+                .orOperator(Criteria.where(OWNER).is(owner), Criteria.where(EXPIRES_AT).lte(now)));
+        Update update = new Update().set(OWNER, owner).set(EXPIRES_AT, now.plus(duration));
+        try {
+            mongoTemplate.upsert(query, update, Lease.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Gives up the lease {@code name} if {@code owner} holds it, so another owner can take it without waiting for
+     * it to expire.
+     */
+    public void release(String name, String owner) {
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(name).and(OWNER).is(owner)), Lease.class);
+    }
+}
@@ -0,0 +1,6 @@
+package org.mgruszka.currency.repository;
+
+import org.mgruszka.currency.model.LedgerEntry;
+
+public interface LedgerRepository extends BaseRepository<LedgerEntry, String>, LedgerRepositoryCustom {
+}
@@ -0,0 +1,25 @@
+package org.mgruszka.currency.repository;
+
+import org.mgruszka.currency.model.LedgerEntry;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface LedgerRepositoryCustom {
+
+    /**
+     * Inserts entries with one unordered bulk write. Entries already stored are skipped, so a batch that failed
+     * half way can be appended again as it is.
+     */
+    void append(List<LedgerEntry> entries);
+
+    /**
+     * Reads one page of the history of an account, newest first, continuing after the entry identified by
+     * {@code afterTimestamp} and {@code afterId}. The page is a range scan of the {@code account_history} index,
+     * so its cost does not depend on how deep into the history it is.
+     *
+     * @param afterTimestamp timestamp of the last entry of the previous page, {@code null} for the first page
+     * @param afterId id of the last entry of the previous page, ignored for the first page
+     */
+    List<LedgerEntry> findHistory(String accountId, Instant afterTimestamp, String afterId, int limit);
+}
@@ -0,0 +1,51 @@
+package org.mgruszka.currency.repository;
+
+import com.mongodb.bulk.BulkWriteError;
+import org.mgruszka.currency.model.LedgerEntry;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Instant;
+import java.util.List;
+
+public class LedgerRepositoryCustomImpl implements LedgerRepositoryCustom {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "timestamp", "id");
+
+    private final MongoTemplate mongoTemplate;
+
+    public LedgerRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void append(List<LedgerEntry> entries) {
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, LedgerEntry.class).insert(entries).execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<LedgerEntry> findHistory(String accountId, Instant afterTimestamp, String afterId, int limit) {
+        Criteria criteria = Criteria.where("accountId").is(accountId);
+        if (afterTimestamp != null) {
+            // entries sharing the timestamp of the last one are told apart by id, the index is sorted by both
+            criteria = criteria.orOperator(
+                    Criteria.where("timestamp").lt(afterTimestamp),
+                    Criteria.where("timestamp").is(afterTimestamp).and("id").lt(afterId));
+        }
+        return mongoTemplate.find(Query.query(criteria).with(NEWEST_FIRST).limit(limit), LedgerEntry.class);
+    }
+}
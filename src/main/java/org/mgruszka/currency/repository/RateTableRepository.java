@@ -0,0 +1,8 @@
+package org.mgruszka.currency.repository;
+
+import org.mgruszka.currency.model.RateTable;
+
+import java.time.LocalDate;
+
+public interface RateTableRepository extends BaseRepository<RateTable, LocalDate> {
+}
@@ -0,0 +1,20 @@
+package org.mgruszka.currency.repository;
+
+import org.mgruszka.currency.model.Account;
+import org.mgruszka.currency.model.AccountIdView;
+import org.mgruszka.currency.model.AccountVersionView;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Profile("reactive")
+public interface ReactiveAccountRepository extends ReactiveMongoRepository<Account, String>, ReactiveAccountRepositoryCustom {
+
+    Flux<AccountIdView> findByImportId(String importId);
+
+    /**
+     * @see AccountRepository#findVersionById(String)
+     */
+    Mono<AccountVersionView> findVersionById(String id);
+}
@@ -0,0 +1,54 @@
+package org.mgruszka.currency.repository;
+
+import org.mgruszka.currency.model.Account;
+import org.mgruszka.currency.model.AccountSummaryDTO;
+import org.mgruszka.currency.model.BalanceBucket;
+import org.mgruszka.currency.model.BalanceTotals;
+import org.mgruszka.currency.model.ExchangeOperation;
+import org.mgruszka.currency.model.ExchangeStatus;
+import org.mgruszka.currency.model.TargetCurrency;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Non-blocking counterpart of {@link AccountRepositoryCustom}.
+ */
+public interface ReactiveAccountRepositoryCustom {
+
+    /**
+     * @see AccountRepositoryCustom#exchange(String, TargetCurrency, TargetCurrency, long, long)
+     * @return updated account, or empty when the account does not exist or its source balance is too low
+     */
+    Mono<Account> exchange(String accountId, TargetCurrency sourceCurrency, TargetCurrency targetCurrency, long amount, long convertedAmount);
+
+    /**
+     * @see AccountRepositoryCustom#exchange(String, TargetCurrency, TargetCurrency, long, long, long)
+     * @return updated account, or empty when the account does not exist, has another version or its source
+     * balance is too low
+     */
+    Mono<Account> exchange(String accountId, TargetCurrency sourceCurrency, TargetCurrency targetCurrency, long amount, long convertedAmount,
+                           long expectedVersion);
+
+    /**
+     * @see AccountRepositoryCustom#bulkExchange(List)
+     * @return status of every operation, in the order of {@code operations}
+     */
+    Mono<List<ExchangeStatus>> bulkExchange(List<ExchangeOperation> operations);
+
+    /**
+     * @see AccountRepositoryCustom#sumBalances()
+     */
+    Mono<BalanceTotals> sumBalances();
+
+    /**
+     * @see AccountRepositoryCustom#balanceDistribution(TargetCurrency, long[])
+     */
+    Flux<BalanceBucket> balanceDistribution(TargetCurrency currency, long[] boundaries);
+
+    /**
+     * @see AccountRepositoryCustom#searchByName(String, String, AccountSummaryDTO, int)
+     */
+    Flux<AccountSummaryDTO> searchByName(String lastNamePrefix, String firstNamePrefix, AccountSummaryDTO after, int limit);
+}
@@ -0,0 +1,100 @@
+package org.mgruszka.currency.repository;
+
+import org.bson.Document;
+import org.mgruszka.currency.model.Account;
+import org.mgruszka.currency.model.AccountSummaryDTO;
+import org.mgruszka.currency.model.BalanceBucket;
+import org.mgruszka.currency.model.BalanceTotals;
+import org.mgruszka.currency.model.ExchangeOperation;
+import org.mgruszka.currency.model.ExchangeStatus;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+public class ReactiveAccountRepositoryCustomImpl implements ReactiveAccountRepositoryCustom {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    public ReactiveAccountRepositoryCustomImpl(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Mono<Account> exchange(String accountId, TargetCurrency sourceCurrency, TargetCurrency targetCurrency, long amount, long convertedAmount) {
+        Query query = ExchangeUpdates.exchangeQuery(accountId, sourceCurrency, amount);
+        Update update = ExchangeUpdates.exchangeUpdate(sourceCurrency, targetCurrency, amount, convertedAmount);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Account.class);
+    }
+
+    @Override
+    public Mono<Account> exchange(String accountId, TargetCurrency sourceCurrency, TargetCurrency targetCurrency, long amount, long convertedAmount,
+                                  long expectedVersion) {
+        Query query = ExchangeUpdates.exchangeQuery(accountId, sourceCurrency, amount, expectedVersion);
+        Update update = ExchangeUpdates.exchangeUpdate(sourceCurrency, targetCurrency, amount, convertedAmount);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Account.class);
+    }
+
+    /**
+     * Same plan as {@link AccountRepositoryCustomImpl#bulkExchange(List)}: one snapshot read, one unordered
+     * bulk write and a batch id lookup only when some guarded update did not match.
+     */
+    @Override
+    public Mono<List<ExchangeStatus>> bulkExchange(List<ExchangeOperation> operations) {
+        return mongoTemplate.find(ExchangeUpdates.BulkPlan.snapshotQuery(operations), Account.class)
+                .collectList()
+                .map(snapshot -> new ExchangeUpdates.BulkPlan(operations, snapshot))
+                .flatMap(this::execute);
+    }
+
+    private Mono<List<ExchangeStatus>> execute(ExchangeUpdates.BulkPlan plan) {
+        List<Pair<Query, Update>> updates = plan.updates();
+        if (updates.isEmpty()) {
+            return Mono.just(plan.statuses());
+        }
+        ReactiveBulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Account.class);
+        for (Pair<Query, Update> update : updates) {
+            bulkOperations.updateOne(update.getFirst(), update.getSecond());
+        }
+        return bulkOperations.execute().flatMap(result -> {
+            if (result.getMatchedCount() == updates.size()) {
+                return Mono.just(plan.statuses());
+            }
+            return mongoTemplate.find(plan.appliedQuery(), Document.class, mongoTemplate.getCollectionName(Account.class))
+                    .collectList()
+                    .map(applied -> {
+                        plan.markNotApplied(applied);
+                        return plan.statuses();
+                    });
+        });
+    }
+
+    @Override
+    public Mono<BalanceTotals> sumBalances() {
+        return mongoTemplate.aggregate(AccountReports.totals(), Account.class, BalanceTotals.class)
+                .next()
+                .defaultIfEmpty(new BalanceTotals(0, Map.of()));
+    }
+
+    @Override
+    public Flux<BalanceBucket> balanceDistribution(TargetCurrency currency, long[] boundaries) {
+        return mongoTemplate.aggregate(AccountReports.distribution(currency, boundaries), Account.class, BalanceBucket.class);
+    }
+
+    @Override
+    public Flux<AccountSummaryDTO> searchByName(String lastNamePrefix, String firstNamePrefix, AccountSummaryDTO after, int limit) {
+        return mongoTemplate.query(Account.class)
+                .as(AccountSummaryDTO.class)
+                .matching(AccountSearch.query(lastNamePrefix, firstNamePrefix, after, limit))
+                .all();
+    }
+}
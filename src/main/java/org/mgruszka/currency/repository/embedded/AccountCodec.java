@@ -0,0 +1,88 @@
+package org.mgruszka.currency.repository.embedded;
+
+import org.mgruszka.currency.model.Account;
+import org.mgruszka.currency.model.TargetCurrency;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Binary form of an account shared by the journal and snapshots: id, names and import id as length prefixed
+ * UTF-8, then the number of balances, one currency ordinal and minor units amount per balance and the version.
+ * Records written before versions were kept end after the balances and decode with version zero.
+ */
+final class AccountCodec {
+
+    private static final TargetCurrency[] CURRENCIES = TargetCurrency.values();
+
+    private AccountCodec() {
+    }
+
+    /**
+     * @param prefix bytes reserved before the account, e.g. for a record type
+     */
+    static ByteBuffer encode(Account account, int prefix) {
+        byte[] id = bytes(account.getId());
+        byte[] firstName = bytes(account.getFirstName());
+        byte[] lastName = bytes(account.getLastName());
+        byte[] importId = bytes(account.getImportId());
+        Map<TargetCurrency, Long> balances = account.getBalances();
+        ByteBuffer buffer = ByteBuffer.allocate(prefix + size(id) + size(firstName) + size(lastName) + size(importId)
+                + 1 + balances.size() * (1 + Long.BYTES) + Long.BYTES);
+        buffer.position(prefix);
+        put(buffer, id);
+        put(buffer, firstName);
+        put(buffer, lastName);
+        put(buffer, importId);
+        buffer.put((byte) balances.size());
+        balances.forEach((currency, balance) -> buffer.put((byte) currency.ordinal()).putLong(balance));
+        buffer.putLong(account.getVersion());
+        return buffer.flip();
+    }
+
+    /**
+     * @param buffer heap buffer positioned at the account and ending with it
+     */
+    static Account decode(ByteBuffer buffer) {
+        Account account = new Account();
+        account.setId(string(buffer));
+        account.setFirstName(string(buffer));
+        account.setLastName(string(buffer));
+        account.setImportId(string(buffer));
+        int balances = buffer.get();
+        for (int i = 0; i < balances; i++) {
+            account.setBalance(CURRENCIES[buffer.get()], buffer.getLong());
+        }
+        if (buffer.hasRemaining()) {
+            account.setVersion(buffer.getLong());
+        }
+        return account;
+    }
+
+    static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static int size(byte[] value) {
+        return Integer.BYTES + (value == null ? 0 : value.length);
+    }
+
+    static void put(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(value.length).put(value);
+        }
+    }
+
+    static String string(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,326 @@
+package org.mgruszka.currency.repository.embedded;
+
+import org.mgruszka.currency.model.Account;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of account mutations in memory-mapped segment files {@code journal-<sequence>.log}. Every
+ * record holds the whole account after the mutation, so replaying a record that is already part of a snapshot
+ * is harmless. A record is its payload length, a CRC32C of the payload and the payload; a zero length marks the
+ * end of a segment, and a record that was only partly written when the process died fails the checksum and ends
+ * the replay of its segment.
+ * <p>
+ * Writes land in the page cache, so they survive the process dying but not the machine; {@link #force()}
+ * bounds what a power loss can take.
+ * <p>
+ * Appends of all accounts share one lock, held only to copy the record into the mapped segment. The next segment
+ * is opened in the background while the current one fills up, and a full segment is forced and closed after the
+ * lock is released, so no append waits on the disk.
+ */
+final class AccountJournal implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(AccountJournal.class.getName());
+
+    private static final Pattern SEGMENT = Pattern.compile("journal-(\\d+)\\.log");
+    private static final int HEADER = Integer.BYTES * 2;
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte CLEAR = 3;
+
+    /**
+     * Receives replayed mutations in the order they were written.
+     */
+    interface Visitor {
+        void put(Account account);
+
+        void delete(String accountId);
+
+        void clear();
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    /** guarded by {@link #lock} */
+    private Segment current;
+    /** the segment after {@link #current}, being opened in the background; guarded by {@link #lock} */
+    private CompletableFuture<Segment> next;
+
+    /**
+     * Starts a new segment after the ones already in {@code directory}, existing segments are never appended to.
+     */
+    AccountJournal(Path directory, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        List<Long> existing = segments(directory);
+        this.current = open(existing.isEmpty() ? 1 : existing.getLast() + 1);
+        this.next = openInBackground(current.sequence() + 1);
+    }
+
+    void put(Account account) {
+        ByteBuffer record = AccountCodec.encode(account, HEADER + 1);
+        record.put(HEADER, PUT);
+        append(record);
+    }
+
+    void delete(String accountId) {
+        byte[] id = AccountCodec.bytes(accountId);
+        ByteBuffer record = ByteBuffer.allocate(HEADER + 1 + AccountCodec.size(id));
+        record.position(HEADER);
+        record.put(DELETE);
+        AccountCodec.put(record, id);
+        append(record.flip());
+    }
+
+    void clear() {
+        append(ByteBuffer.allocate(HEADER + 1).put(HEADER, CLEAR));
+    }
+
+    /**
+     * Closes the current segment and starts the next one.
+     *
+     * @return sequence of the new segment, every record written from now on is in it or a later one
+     */
+    long rotate() {
+        Segment full;
+        long sequence;
+        lock.lock();
+        try {
+            full = current;
+            sequence = advance().sequence();
+        } finally {
+            lock.unlock();
+        }
+        retire(full);
+        return sequence;
+    }
+
+    /**
+     * Writes the current segment through to the disk.
+     */
+    void force() {
+        Segment segment;
+        lock.lock();
+        try {
+            segment = current;
+        } finally {
+            lock.unlock();
+        }
+        // forcing a segment that a rotation closes meanwhile is harmless, the rotation forces it too
+        segment.buffer().force();
+    }
+
+    /**
+     * Deletes segments older than {@code sequence}, once a snapshot made them redundant.
+     */
+    void deleteBefore(long sequence) throws IOException {
+        for (long older : segments(directory)) {
+            if (older < sequence) {
+                Files.deleteIfExists(directory.resolve(name(older)));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            current.buffer().force();
+            abandon();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the current segment without forcing it, leaving it as the process dying would, and deletes the next
+     * one once it was opened in the background, so no file appears in the directory afterwards.
+     */
+    void abandon() throws IOException {
+        lock.lock();
+        try {
+            current.channel().close();
+            // the next segment was never written to
+            Segment unused = next.join();
+            unused.channel().close();
+            Files.deleteIfExists(directory.resolve(name(unused.sequence())));
+        } catch (CompletionException e) {
+            // it was never created
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replays segments from {@code sequence} on, in order.
+     *
+     * @return number of records replayed
+     */
+    static long replay(Path directory, long sequence, Visitor visitor) throws IOException {
+        long records = 0;
+        for (long segment : segments(directory)) {
+            if (segment >= sequence) {
+                records += replaySegment(directory.resolve(name(segment)), visitor);
+            }
+        }
+        return records;
+    }
+
+    private static long replaySegment(Path file, Visitor visitor) throws IOException {
+        long records = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32C checksum = new CRC32C();
+            while (segment.remaining() >= HEADER) {
+                int position = segment.position();
+                int length = segment.getInt();
+                int expected = segment.getInt();
+                if (length == 0) {
+                    break;
+                }
+                if (length < 0 || length > segment.remaining()) {
+                    logger.warning("Journal " + file + " ends with a partial record at " + position);
+                    break;
+                }
+                byte[] payload = new byte[length];
+                segment.get(payload);
+                checksum.reset();
+                checksum.update(payload);
+                if ((int) checksum.getValue() != expected) {
+                    logger.warning("Journal " + file + " ends with a partial record at " + position);
+                    break;
+                }
+                apply(ByteBuffer.wrap(payload), visitor);
+                records++;
+            }
+        }
+        return records;
+    }
+
+    private static void apply(ByteBuffer payload, Visitor visitor) {
+        byte type = payload.get();
+        switch (type) {
+            case PUT -> visitor.put(AccountCodec.decode(payload));
+            case DELETE -> visitor.delete(AccountCodec.string(payload));
+            case CLEAR -> visitor.clear();
+            default -> throw new IllegalStateException("Unknown journal record type " + type);
+        }
+    }
+
+    /**
+     * @param record header space followed by the payload, from position zero
+     */
+    private void append(ByteBuffer record) {
+        int length = record.limit() - HEADER;
+        CRC32C checksum = new CRC32C();
+        checksum.update(record.slice(HEADER, length));
+        record.putInt(0, length).putInt(Integer.BYTES, (int) checksum.getValue());
+        if (record.limit() + Integer.BYTES > segmentSize) {
+            throw new IllegalArgumentException("Journal record of " + record.limit() + " bytes does not fit a segment");
+        }
+        Segment full = null;
+        lock.lock();
+        try {
+            // keep room for the zero length that ends the segment
+            if (current.buffer().remaining() < record.limit() + Integer.BYTES) {
+                full = current;
+                advance();
+            }
+            current.buffer().put(record);
+        } finally {
+            lock.unlock();
+        }
+        if (full != null) {
+            retire(full);
+        }
+    }
+
+    /**
+     * Makes the segment opened in the background the current one and starts opening the one after it. Waits only
+     * when segments fill up faster than a file is created.
+     */
+    private Segment advance() {
+        Segment opened;
+        try {
+            opened = next.join();
+        } catch (CompletionException e) {
+            // the next append tries again
+            next = openInBackground(current.sequence() + 1);
+            throw new UncheckedIOException("Failed to start journal segment in " + directory, (IOException) e.getCause());
+        }
+        current = opened;
+        next = openInBackground(opened.sequence() + 1);
+        return opened;
+    }
+
+    private void retire(Segment full) {
+        full.buffer().force();
+        try {
+            full.channel().close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to close journal segment " + full.sequence(), e);
+        }
+    }
+
+    private CompletableFuture<Segment> openInBackground(long sequence) {
+        CompletableFuture<Segment> opened = new CompletableFuture<>();
+        Thread.ofVirtual().name("journal-segment-" + sequence).start(() -> {
+            try {
+                opened.complete(open(sequence));
+            } catch (IOException e) {
+                opened.completeExceptionally(e);
+            }
+        });
+        return opened;
+    }
+
+    private Segment open(long sequence) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(name(sequence)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // mapping past the end grows the file, the new part reads as zeros
+        return new Segment(sequence, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+    }
+
+    static List<Long> segments(Path directory) throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    sequences.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        }
+        sequences.sort(null);
+        return sequences;
+    }
+
+    private static String name(long sequence) {
+        return String.format("journal-%016d.log", sequence);
+    }
+
+    private record Segment(long sequence, FileChannel channel, MappedByteBuffer buffer) {
+    }
+}
@@ -0,0 +1,144 @@
+package org.mgruszka.currency.repository.embedded;
+
+import org.mgruszka.currency.model.Account;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Full copies of all accounts in files {@code snapshot-<sequence>.bin}, where the sequence is the first journal
+ * segment not included in the snapshot. A snapshot is written to a temporary file and renamed once it is on the
+ * disk, so a snapshot file is either complete or absent; the count at its end is checked anyway, and a damaged
+ * snapshot is skipped in favour of an older one.
+ */
+final class AccountSnapshots {
+
+    private static final Logger logger = Logger.getLogger(AccountSnapshots.class.getName());
+
+    private static final Pattern SNAPSHOT = Pattern.compile("snapshot-(\\d+)\\.bin");
+    private static final int MAGIC = 0x41434354;
+    private static final int END = -1;
+
+    private final Path directory;
+
+    AccountSnapshots(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Accounts passed in may change while they are written, each is copied under its own lock by the caller.
+     */
+    void write(long sequence, Collection<Account> accounts) throws IOException {
+        Path target = directory.resolve(name(sequence));
+        Path temporary = directory.resolve(name(sequence) + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            output.writeInt(MAGIC);
+            long count = 0;
+            for (Account account : accounts) {
+                ByteBuffer encoded = AccountCodec.encode(account, 0);
+                output.writeInt(encoded.limit());
+                output.write(encoded.array(), 0, encoded.limit());
+                count++;
+            }
+            output.writeInt(END);
+            output.writeLong(count);
+            output.flush();
+            file.getFD().sync();
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Passes every account of the newest readable snapshot to {@code consumer}.
+     *
+     * @return sequence of the first journal segment to replay on top of the snapshot
+     */
+    long loadLatest(Consumer<Account> consumer) throws IOException {
+        List<Long> sequences = snapshots();
+        for (int i = sequences.size() - 1; i >= 0; i--) {
+            long sequence = sequences.get(i);
+            List<Account> accounts = new ArrayList<>();
+            try {
+                read(directory.resolve(name(sequence)), accounts::add);
+            } catch (IOException | RuntimeException e) {
+                logger.log(Level.WARNING, "Skipping unreadable snapshot " + name(sequence), e);
+                continue;
+            }
+            accounts.forEach(consumer);
+            return sequence;
+        }
+        return 0;
+    }
+
+    /**
+     * Deletes snapshots older than {@code sequence} and leftovers of interrupted writes.
+     */
+    void deleteBefore(long sequence) throws IOException {
+        for (long older : snapshots()) {
+            if (older < sequence) {
+                Files.deleteIfExists(directory.resolve(name(older)));
+            }
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(file -> file.getFileName().toString().endsWith(".bin.tmp")).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static void read(Path file, Consumer<Account> consumer) throws IOException {
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream input = new DataInputStream(new BufferedInputStream(stream, 1 << 16))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Not a snapshot");
+            }
+            long count = 0;
+            for (int length = input.readInt(); length != END; length = input.readInt()) {
+                byte[] encoded = new byte[length];
+                input.readFully(encoded);
+                consumer.accept(AccountCodec.decode(ByteBuffer.wrap(encoded)));
+                count++;
+            }
+            if (input.readLong() != count) {
+                throw new IOException("Snapshot is incomplete");
+            }
+        }
+    }
+
+    private List<Long> snapshots() throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = SNAPSHOT.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    sequences.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        }
+        sequences.sort(null);
+        return sequences;
+    }
+
+    private static String name(long sequence) {
+        return String.format("snapshot-%016d.bin", sequence);
+    }
+}
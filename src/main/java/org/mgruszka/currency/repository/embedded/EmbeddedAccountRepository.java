@@ -0,0 +1,381 @@
+package org.mgruszka.currency.repository.embedded;
+
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.mgruszka.currency.model.Account;
+import org.mgruszka.currency.model.AccountIdView;
+import org.mgruszka.currency.model.AccountSummaryDTO;
+import org.mgruszka.currency.model.AccountVersionView;
+import org.mgruszka.currency.model.BalanceBucket;
+import org.mgruszka.currency.model.BalanceTotals;
+import org.mgruszka.currency.model.ExchangeOperation;
+import org.mgruszka.currency.model.ExchangeStatus;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.mgruszka.currency.repository.AccountRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Accounts kept in memory and made durable by an {@link AccountJournal} and periodic {@link AccountSnapshots} in
+ * {@code embedded.data-dir}, for running without MongoDB. Every change holds the lock of the account's stripe while
+ * it checks the account, journals the result and replaces it in the map, so records of one account are in the
+ * journal in the order they were applied. Changes of accounts in different stripes only meet on the journal lock,
+ * held for copying the record into the mapped segment. The locks are {@link ReentrantLock}s rather than the bin
+ * locks of a {@code compute}, so a virtual thread waiting for one gives up its carrier.
+ * <p>
+ * On startup the newest snapshot is loaded and the journal segments written after it are replayed.
+ */
+@Repository
+@Profile("embedded")
+public class EmbeddedAccountRepository extends InMemoryRepository<Account, String> implements AccountRepository {
+
+    private static final Logger logger = Logger.getLogger(EmbeddedAccountRepository.class.getName());
+
+    private static final TargetCurrency[] CURRENCIES = TargetCurrency.values();
+    /** a power of two, so the stripe of an account is a mask of its spread hash */
+    private static final int STRIPES = 256;
+    /** order of the {@code name_search} index */
+    private static final Comparator<AccountSummaryDTO> NAME_ORDER = Comparator
+            .comparing(AccountSummaryDTO::getLastName, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(AccountSummaryDTO::getFirstName, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(AccountSummaryDTO::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final AccountJournal journal;
+    private final AccountSnapshots snapshots;
+    /**
+     * Changes hold the read lock while they update the map and write the journal, the write lock is only taken
+     * to start a new journal segment for a snapshot, so no change can be half way between the two segments.
+     */
+    private final ReadWriteLock rotationLock = new ReentrantReadWriteLock();
+    private final Lock[] stripes = new Lock[STRIPES];
+    /** names of all accounts, updated under the stripe lock of the account */
+    private final NavigableSet<AccountSummaryDTO> names = new ConcurrentSkipListSet<>(NAME_ORDER);
+
+    @Autowired
+    public EmbeddedAccountRepository(@Value("${embedded.data-dir:data}") Path dataDirectory,
+                                     @Value("${embedded.journal.segment-size:67108864}") int segmentSize) throws IOException {
+        Files.createDirectories(dataDirectory);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.snapshots = new AccountSnapshots(dataDirectory);
+        long sequence = snapshots.loadLatest(account -> entities.put(account.getId(), account));
+        long records = AccountJournal.replay(dataDirectory, sequence, new AccountJournal.Visitor() {
+            @Override
+            public void put(Account account) {
+                entities.put(account.getId(), account);
+            }
+
+            @Override
+            public void delete(String accountId) {
+                entities.remove(accountId);
+            }
+
+            @Override
+            public void clear() {
+                entities.clear();
+            }
+        });
+        this.journal = new AccountJournal(dataDirectory, segmentSize);
+        entities.values().forEach(account -> names.add(summary(account)));
+        logger.info("Recovered " + entities.size() + " accounts from " + dataDirectory.toAbsolutePath()
+                + ", replayed " + records + " journal records");
+    }
+
+    @Override
+    public Optional<Account> exchange(String accountId, TargetCurrency sourceCurrency, TargetCurrency targetCurrency, long amount, long convertedAmount) {
+        return exchange(accountId, sourceCurrency, targetCurrency, amount, convertedAmount, null);
+    }
+
+    @Override
+    public Optional<Account> exchange(String accountId, TargetCurrency sourceCurrency, TargetCurrency targetCurrency, long amount, long convertedAmount,
+                                      long expectedVersion) {
+        return exchange(accountId, sourceCurrency, targetCurrency, amount, convertedAmount, Long.valueOf(expectedVersion));
+    }
+
+    private Optional<Account> exchange(String accountId, TargetCurrency sourceCurrency, TargetCurrency targetCurrency, long amount, long convertedAmount,
+                                       Long expectedVersion) {
+        Account exchanged = change(accountId, () -> {
+            Account current = entities.get(accountId);
+            if (current == null) {
+                return null;
+            }
+            Long balance = current.getBalances().get(sourceCurrency);
+            // like the MongoDB guard, a balance the account never held does not cover anything
+            if (balance == null || balance < amount || (expectedVersion != null && current.getVersion() != expectedVersion)) {
+                return null;
+            }
+            Account updated = copy(current);
+            updated.setBalance(sourceCurrency, balance - amount);
+            updated.setBalance(targetCurrency, updated.getBalance(targetCurrency) + convertedAmount);
+            updated.setVersion(current.getVersion() + 1);
+            journal.put(updated);
+            entities.put(accountId, updated);
+            return updated;
+        });
+        return Optional.ofNullable(exchanged).map(this::copy);
+    }
+
+    /**
+     * Applies the operations one by one, each atomically on its account, which gives the same statuses as the
+     * MongoDB bulk write without the batch id bookkeeping.
+     */
+    @Override
+    public List<ExchangeStatus> bulkExchange(List<ExchangeOperation> operations) {
+        List<ExchangeStatus> statuses = new ArrayList<>(operations.size());
+        for (ExchangeOperation operation : operations) {
+            if (exchange(operation.accountId(), operation.sourceCurrency(), operation.targetCurrency(),
+                    operation.amount(), operation.convertedAmount()).isPresent()) {
+                statuses.add(ExchangeStatus.SUCCESS);
+            } else {
+                statuses.add(existsById(operation.accountId()) ? ExchangeStatus.INSUFFICIENT_FUNDS : ExchangeStatus.ACCOUNT_NOT_FOUND);
+            }
+        }
+        return statuses;
+    }
+
+    @Override
+    public BalanceTotals sumBalances() {
+        Map<TargetCurrency, Long> totals = new EnumMap<>(TargetCurrency.class);
+        long accounts = 0;
+        for (Account account : entities.values()) {
+            account.getBalances().forEach((currency, balance) -> totals.merge(currency, balance, Long::sum));
+            accounts++;
+        }
+        for (TargetCurrency currency : CURRENCIES) {
+            totals.putIfAbsent(currency, 0L);
+        }
+        return new BalanceTotals(accounts, totals);
+    }
+
+    @Override
+    public List<BalanceBucket> balanceDistribution(TargetCurrency currency, long[] boundaries) {
+        long[] accounts = new long[boundaries.length];
+        long[] totals = new long[boundaries.length];
+        for (Account account : entities.values()) {
+            long balance = account.getBalance(currency);
+            // index of the last lower bound not above the balance, a negative balance counts in the first bucket
+            // like in the MongoDB report
+            int bucket = Arrays.binarySearch(boundaries, balance);
+            if (bucket < 0) {
+                bucket = Math.max(-bucket - 2, 0);
+            }
+            accounts[bucket]++;
+            totals[bucket] += balance;
+        }
+        List<BalanceBucket> buckets = new ArrayList<>();
+        for (int i = 0; i < boundaries.length; i++) {
+            if (accounts[i] > 0) {
+                buckets.add(new BalanceBucket(boundaries[i], accounts[i], totals[i]));
+            }
+        }
+        return buckets;
+    }
+
+    @Override
+    public List<AccountSummaryDTO> searchByName(String lastNamePrefix, String firstNamePrefix, AccountSummaryDTO after, int limit) {
+        NavigableSet<AccountSummaryDTO> range = names.tailSet(after != null ? after : new AccountSummaryDTO(null, null, lastNamePrefix), after == null);
+        List<AccountSummaryDTO> found = new ArrayList<>(limit);
+        for (AccountSummaryDTO name : range) {
+            // names with the prefix are next to each other, the first one without it ends the range
+            if (found.size() == limit || name.getLastName() == null || !name.getLastName().startsWith(lastNamePrefix)) {
+                break;
+            }
+            if (firstNamePrefix == null || firstNamePrefix.isEmpty()
+                    || (name.getFirstName() != null && name.getFirstName().startsWith(firstNamePrefix))) {
+                found.add(new AccountSummaryDTO(name.getId(), name.getFirstName(), name.getLastName()));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Optional<AccountVersionView> findVersionById(String id) {
+        Account account = entities.get(id);
+        if (account == null) {
+            return Optional.empty();
+        }
+        Long version = account.getVersion();
+        return Optional.of(() -> version);
+    }
+
+    @Override
+    public Stream<AccountIdView> findByImportId(String importId) {
+        return entities.values().stream()
+                .filter(account -> importId.equals(account.getImportId()))
+                .map(account -> {
+                    String id = account.getId();
+                    return (AccountIdView) () -> id;
+                });
+    }
+
+    /**
+     * Stored accounts are never changed in place, so the stream reads them without copying the whole map first.
+     */
+    @Override
+    public Stream<Account> streamAllBy() {
+        return entities.values().stream().map(this::copy);
+    }
+
+    /**
+     * Writes all accounts to a new snapshot and deletes the journal segments and snapshots it replaces.
+     */
+    @Scheduled(fixedDelayString = "${embedded.snapshot-interval:PT5M}", initialDelayString = "${embedded.snapshot-interval:PT5M}")
+    public void snapshot() {
+        long sequence;
+        rotationLock.writeLock().lock();
+        try {
+            sequence = journal.rotate();
+        } finally {
+            rotationLock.writeLock().unlock();
+        }
+        // changes made from here on are in segment sequence or later, replaying them over a snapshot that
+        // already has some of them gives the same accounts
+        try {
+            snapshots.write(sequence, entities.values());
+            snapshots.deleteBefore(sequence);
+            journal.deleteBefore(sequence);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to write snapshot " + sequence + ", keeping the journal", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${embedded.journal.flush-interval:PT1S}")
+    public void flushJournal() {
+        journal.force();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        snapshot();
+        journal.close();
+    }
+
+    /**
+     * Stops journaling without a snapshot, leaving {@code embedded.data-dir} as a crash would.
+     */
+    void crash() throws IOException {
+        journal.abandon();
+    }
+
+    @Override
+    protected String idOf(Account account) {
+        return account.getId();
+    }
+
+    @Override
+    protected void assignId(Account account) {
+        account.setId(ObjectId.get().toHexString());
+    }
+
+    @Override
+    protected Account copy(Account account) {
+        Account copy = new Account();
+        copy.setId(account.getId());
+        copy.setFirstName(account.getFirstName());
+        copy.setLastName(account.getLastName());
+        copy.setImportId(account.getImportId());
+        copy.setVersion(account.getVersion());
+        copy.getBalances().putAll(account.getBalances());
+        return copy;
+    }
+
+    @Override
+    protected void store(String id, Account account) {
+        change(id, () -> {
+            journal.put(account);
+            Account current = entities.put(id, account);
+            if (current != null) {
+                names.remove(summary(current));
+            }
+            names.add(summary(account));
+            return null;
+        });
+    }
+
+    @Override
+    protected boolean storeIfAbsent(String id, Account account) {
+        return change(id, () -> {
+            if (entities.containsKey(id)) {
+                return false;
+            }
+            journal.put(account);
+            entities.put(id, account);
+            names.add(summary(account));
+            return true;
+        });
+    }
+
+    @Override
+    protected void remove(String id) {
+        change(id, () -> {
+            Account current = entities.get(id);
+            if (current != null) {
+                journal.delete(id);
+                entities.remove(id);
+                names.remove(summary(current));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    protected void removeAll() {
+        // no other change runs meanwhile, so none of them is journaled before the clear but lost by it
+        rotationLock.writeLock().lock();
+        try {
+            journal.clear();
+            entities.clear();
+            names.clear();
+        } finally {
+            rotationLock.writeLock().unlock();
+        }
+    }
+
+    private static AccountSummaryDTO summary(Account account) {
+        return new AccountSummaryDTO(account.getId(), account.getFirstName(), account.getLastName());
+    }
+
+    /**
+     * Runs {@code change} of account {@code id} under the lock of its stripe.
+     */
+    private <R> R change(String id, Supplier<R> change) {
+        int hash = id.hashCode();
+        Lock stripe = stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+        rotationLock.readLock().lock();
+        try {
+            stripe.lock();
+            try {
+                return change.get();
+            } finally {
+                stripe.unlock();
+            }
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.mgruszka.currency.repository.embedded;
+
+import org.mgruszka.currency.model.LedgerEntry;
+import org.mgruszka.currency.repository.LedgerRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Ledger kept in memory only, with the history of every account in a sorted set in the order of the
+ * {@code account_history} index, so a page is read from where the previous one ended.
+ */
+@Repository
+@Profile("embedded")
+public class EmbeddedLedgerRepository extends InMemoryRepository<LedgerEntry, String> implements LedgerRepository {
+
+    private static final Comparator<LedgerEntry> NEWEST_FIRST = Comparator.comparing(LedgerEntry::getTimestamp)
+            .thenComparing(LedgerEntry::getId)
+            .reversed();
+
+    private final ConcurrentMap<String, NavigableSet<LedgerEntry>> histories = new ConcurrentHashMap<>();
+
+    @Override
+    public void append(List<LedgerEntry> entries) {
+        for (LedgerEntry entry : entries) {
+            storeIfAbsent(entry.getId(), copy(entry));
+        }
+    }
+
+    @Override
+    public List<LedgerEntry> findHistory(String accountId, Instant afterTimestamp, String afterId, int limit) {
+        NavigableSet<LedgerEntry> history = histories.get(accountId);
+        if (history == null) {
+            return List.of();
+        }
+        NavigableSet<LedgerEntry> page = afterTimestamp == null ? history
+                : history.tailSet(new LedgerEntry(afterId, accountId, null, null, 0, 0, afterTimestamp), false);
+        List<LedgerEntry> entries = new ArrayList<>(limit);
+        for (LedgerEntry entry : page) {
+            if (entries.size() == limit) {
+                break;
+            }
+            entries.add(copy(entry));
+        }
+        return entries;
+    }
+
+    @Override
+    protected String idOf(LedgerEntry entry) {
+        return entry.getId();
+    }
+
+    @Override
+    protected void assignId(LedgerEntry entry) {
+        throw new IllegalArgumentException("Ledger entry without id");
+    }
+
+    @Override
+    protected LedgerEntry copy(LedgerEntry entry) {
+        return new LedgerEntry(entry.getId(), entry.getAccountId(), entry.getSourceCurrency(), entry.getTargetCurrency(),
+                entry.getAmount(), entry.getConvertedAmount(), entry.getTimestamp());
+    }
+
+    /**
+     * Entries are only ever inserted by the ledger, a replaced entry is not atomically swapped in its history.
+     */
+    @Override
+    protected void store(String id, LedgerEntry entry) {
+        remove(id);
+        storeIfAbsent(id, entry);
+    }
+
+    @Override
+    protected boolean storeIfAbsent(String id, LedgerEntry entry) {
+        if (!super.storeIfAbsent(id, entry)) {
+            return false;
+        }
+        histories.computeIfAbsent(entry.getAccountId(), accountId -> new ConcurrentSkipListSet<>(NEWEST_FIRST)).add(entry);
+        return true;
+    }
+
+    @Override
+    protected void remove(String id) {
+        LedgerEntry removed = entities.remove(id);
+        if (removed != null) {
+            NavigableSet<LedgerEntry> history = histories.get(removed.getAccountId());
+            if (history != null) {
+                history.remove(removed);
+            }
+        }
+    }
+
+    @Override
+    protected void removeAll() {
+        entities.clear();
+        histories.clear();
+    }
+}
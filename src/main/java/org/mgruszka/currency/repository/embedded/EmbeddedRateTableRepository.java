@@ -0,0 +1,34 @@
+package org.mgruszka.currency.repository.embedded;
+
+import org.mgruszka.currency.model.RateTable;
+import org.mgruszka.currency.repository.RateTableRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+/**
+ * Rate history kept in memory only, it is fetched from NBP again after a restart.
+ */
+@Repository
+@Profile("embedded")
+public class EmbeddedRateTableRepository extends InMemoryRepository<RateTable, LocalDate> implements RateTableRepository {
+
+    @Override
+    protected LocalDate idOf(RateTable table) {
+        return table.getEffectiveDate();
+    }
+
+    @Override
+    protected void assignId(RateTable table) {
+        throw new IllegalArgumentException("Rate table without effective date");
+    }
+
+    /**
+     * Tables are replaced as a whole and never changed after they are stored.
+     */
+    @Override
+    protected RateTable copy(RateTable table) {
+        return new RateTable(table.getEffectiveDate(), table.getMidRates(), table.getFetchedAt());
+    }
+}
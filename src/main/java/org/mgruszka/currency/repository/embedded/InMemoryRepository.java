@@ -0,0 +1,123 @@
+package org.mgruszka.currency.repository.embedded;
+
+import org.mgruszka.currency.repository.BaseRepository;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link BaseRepository} kept in a {@link ConcurrentHashMap}. Entities are copied on the way in and out, so callers
+ * never share state with the store, the way they never share it with MongoDB.
+ * <p>
+ * Every change goes through {@link #store}, {@link #storeIfAbsent}, {@link #remove} and {@link #removeAll}, so a
+ * subclass can make them durable.
+ */
+abstract class InMemoryRepository<T, ID> implements BaseRepository<T, ID> {
+
+    protected final ConcurrentMap<ID, T> entities = new ConcurrentHashMap<>();
+
+    protected abstract ID idOf(T entity);
+
+    /**
+     * Gives {@code entity} without an id a new one, like MongoDB does on insert.
+     */
+    protected abstract void assignId(T entity);
+
+    protected abstract T copy(T entity);
+
+    protected void store(ID id, T entity) {
+        entities.put(id, entity);
+    }
+
+    /**
+     * @return false when an entity with {@code id} is already stored
+     */
+    protected boolean storeIfAbsent(ID id, T entity) {
+        return entities.putIfAbsent(id, entity) == null;
+    }
+
+    protected void remove(ID id) {
+        entities.remove(id);
+    }
+
+    protected void removeAll() {
+        entities.clear();
+    }
+
+    @Override
+    public <S extends T> S save(S entity) {
+        ID id = idOrAssign(entity);
+        store(id, copy(entity));
+        return entity;
+    }
+
+    @Override
+    public <S extends T> List<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        for (S entity : entities) {
+            saved.add(save(entity));
+        }
+        return saved;
+    }
+
+    /**
+     * Inserts in order and stops at the first duplicate, like an ordered MongoDB insert.
+     */
+    @Override
+    public <S extends T> List<S> insert(Iterable<S> entities) {
+        List<S> inserted = new ArrayList<>();
+        for (S entity : entities) {
+            ID id = idOrAssign(entity);
+            if (!storeIfAbsent(id, copy(entity))) {
+                throw new DuplicateKeyException("Duplicate key " + id);
+            }
+            inserted.add(entity);
+        }
+        return inserted;
+    }
+
+    @Override
+    public Optional<T> findById(ID id) {
+        return Optional.ofNullable(entities.get(id)).map(this::copy);
+    }
+
+    @Override
+    public boolean existsById(ID id) {
+        return entities.containsKey(id);
+    }
+
+    @Override
+    public List<T> findAll() {
+        List<T> all = new ArrayList<>(entities.size());
+        for (T entity : entities.values()) {
+            all.add(copy(entity));
+        }
+        return all;
+    }
+
+    @Override
+    public long count() {
+        return entities.size();
+    }
+
+    @Override
+    public void deleteById(ID id) {
+        remove(id);
+    }
+
+    @Override
+    public void deleteAll() {
+        removeAll();
+    }
+
+    private ID idOrAssign(T entity) {
+        if (idOf(entity) == null) {
+            assignId(entity);
+        }
+        return idOf(entity);
+    }
+}
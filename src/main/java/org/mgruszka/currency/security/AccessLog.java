@@ -0,0 +1,119 @@
+package org.mgruszka.currency.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Sampled access log written by a background thread. Request threads only decide whether a request is sampled
+ * and, if so, queue its entry without blocking; entries that find the queue full are dropped and counted, so a
+ * slow log appender never slows down requests.
+ */
+@Component
+public class AccessLog implements SmartLifecycle {
+
+    private static final Logger logger = Logger.getLogger("org.mgruszka.currency.access");
+
+    private static final int MAX_BATCH = 256;
+
+    private record Entry(String method, String path, int status, long durationNanos, String subject) {
+    }
+
+    private final double sampleRate;
+    private final BlockingQueue<Entry> queue;
+    private final Counter droppedEntries;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    /**
+     * @param sampleRate share of requests logged, 1 logs every request and 0 none
+     */
+    @Autowired
+    public AccessLog(@Value("${security.access-log.sample-rate:0.01}") double sampleRate,
+                     @Value("${security.access-log.queue-capacity:4096}") int capacity,
+                     MeterRegistry meterRegistry) {
+        this.sampleRate = sampleRate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.droppedEntries = Counter.builder("access.log.dropped")
+                .description("Sampled access log entries dropped because the writer fell behind")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Decides whether the current request is logged, before it runs, so unsampled requests skip timing too.
+     */
+    public boolean sample() {
+        return sampleRate >= 1 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    /**
+     * Queues the entry of a sampled request.
+     *
+     * @param subject authenticated subject, {@code null} for anonymous requests
+     */
+    public void log(String method, String path, int status, long durationNanos, String subject) {
+        if (!running || !queue.offer(new Entry(method, path, status, durationNanos, subject))) {
+            droppedEntries.increment();
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writer = Thread.ofPlatform().daemon().name("access-log-writer").start(this::writeQueued);
+    }
+
+    /**
+     * Stops taking new entries and waits until the writer has written the queued ones.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void writeQueued() {
+        List<Entry> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry entry = queue.poll(1, TimeUnit.SECONDS);
+                if (entry == null) {
+                    continue;
+                }
+                batch.add(entry);
+            } catch (InterruptedException e) {
+                // stop() interrupts a writer waiting on an empty queue, the loop condition ends it
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            for (Entry entry : batch) {
+                logger.info(entry.method() + " " + entry.path() + " " + entry.status() + " "
+                        + TimeUnit.NANOSECONDS.toMicros(entry.durationNanos()) + "us"
+                        + (entry.subject() != null ? " " + entry.subject() : ""));
+            }
+            batch.clear();
+        }
+    }
+}
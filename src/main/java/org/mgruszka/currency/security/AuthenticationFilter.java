@@ -4,18 +4,88 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.mgruszka.currency.exceptions.InvalidTokenException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 
+/**
+ * Authenticates API requests by their bearer token when {@code security.jwt.enabled} is set, and writes a
+ * sampled {@link AccessLog}. Requests outside {@code /api/}, like the actuator and the OpenAPI documentation,
+ * need no token. Runs first, so a request without a valid token is rejected before it takes anything from the
+ * admission limits of the account it names.
+ */
 @Component
+@Order(AuthenticationFilter.ORDER)
 public class AuthenticationFilter extends OncePerRequestFilter {
 
+    /** order of the authentication filters, the admission filters come right after them */
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE;
+
+    /** request attribute holding the {@link VerifiedToken} of an authenticated request */
+    public static final String TOKEN_ATTRIBUTE = AuthenticationFilter.class.getName() + ".token";
+
+    static final String API_PREFIX = "/api/";
+    static final String BEARER_PREFIX = "Bearer ";
+
+    private final TokenVerifier tokenVerifier;
+    private final AccessLog accessLog;
+    private final boolean enabled;
+
+    @Autowired
+    public AuthenticationFilter(TokenVerifier tokenVerifier, AccessLog accessLog,
+                                @Value("${security.jwt.enabled:false}") boolean enabled) {
+        this.tokenVerifier = tokenVerifier;
+        this.accessLog = accessLog;
+        this.enabled = enabled;
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest httpRequest, HttpServletResponse httpResponse, FilterChain filterChain) throws IOException, ServletException {
-        logger.info("Request URI: " + httpRequest.getRequestURI());
-        //Here we should have security for example validate JWT token
-        filterChain.doFilter(httpRequest, httpResponse);
+        long start = accessLog.sample() ? System.nanoTime() : 0;
+        VerifiedToken token = null;
+        if (enabled && httpRequest.getRequestURI().startsWith(API_PREFIX)) {
+            try {
+                token = tokenVerifier.verify(bearerToken(httpRequest.getHeader(HttpHeaders.AUTHORIZATION)));
+            } catch (InvalidTokenException e) {
+                httpResponse.setStatus(HttpStatus.UNAUTHORIZED.value());
+                httpResponse.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+                httpResponse.setContentType(MediaType.TEXT_PLAIN_VALUE);
+                httpResponse.getWriter().write(e.getMessage());
+                log(httpRequest, httpResponse, start, null);
+                return;
+            }
+            httpRequest.setAttribute(TOKEN_ATTRIBUTE, token);
+        }
+        try {
+            filterChain.doFilter(httpRequest, httpResponse);
+        } finally {
+            log(httpRequest, httpResponse, start, token);
+        }
+    }
+
+    /**
+     * @throws InvalidTokenException when the header is missing or not a bearer token
+     */
+    static String bearerToken(String authorization) {
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            throw new InvalidTokenException("Bearer token required");
+        }
+        return authorization.substring(BEARER_PREFIX.length()).trim();
+    }
+
+    private void log(HttpServletRequest httpRequest, HttpServletResponse httpResponse, long start, VerifiedToken token) {
+        if (start != 0) {
+            accessLog.log(httpRequest.getMethod(), httpRequest.getRequestURI(), httpResponse.getStatus(),
+                    System.nanoTime() - start, token != null ? token.subject() : null);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,54 @@
+package org.mgruszka.currency.security;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * HMAC-SHA256 signatures with a configured secret, shared by bearer tokens and quote tokens. Without a secret
+ * the key is random, so only what this instance signed since it started verifies.
+ */
+public final class HmacSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final Mac prototype;
+
+    /**
+     * @param secret shared secret, blank for a random key
+     */
+    public HmacSigner(String secret) {
+        byte[] key;
+        if (secret.isBlank()) {
+            key = new byte[32];
+            new SecureRandom().nextBytes(key);
+        } else {
+            key = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        try {
+            this.prototype = Mac.getInstance(ALGORITHM);
+            this.prototype.init(new SecretKeySpec(key, ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+
+    public byte[] sign(byte[] input) {
+        try {
+            // an initialised Mac is not thread safe, a clone of it is cheaper than a new instance
+            return ((Mac) prototype.clone()).doFinal(input);
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(ALGORITHM + " cannot be cloned", e);
+        }
+    }
+
+    /**
+     * Compares in constant time, so the time taken tells nothing about how much of a forged signature matched.
+     */
+    public boolean verify(byte[] input, byte[] signature) {
+        return MessageDigest.isEqual(sign(input), signature);
+    }
+}
@@ -0,0 +1,77 @@
+package org.mgruszka.currency.security;
+
+import org.mgruszka.currency.exceptions.InvalidTokenException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * WebFlux counterpart of {@link AuthenticationFilter}.
+ */
+@Component
+@Profile("reactive")
+@Order(AuthenticationFilter.ORDER)
+public class ReactiveAuthenticationFilter implements WebFilter {
+
+    private final TokenVerifier tokenVerifier;
+    private final AccessLog accessLog;
+    private final boolean enabled;
+
+    @Autowired
+    public ReactiveAuthenticationFilter(TokenVerifier tokenVerifier, AccessLog accessLog,
+                                        @Value("${security.jwt.enabled:false}") boolean enabled) {
+        this.tokenVerifier = tokenVerifier;
+        this.accessLog = accessLog;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        long start = accessLog.sample() ? System.nanoTime() : 0;
+        ServerHttpRequest request = exchange.getRequest();
+        VerifiedToken token = null;
+        if (enabled && request.getPath().value().startsWith(AuthenticationFilter.API_PREFIX)) {
+            try {
+                token = tokenVerifier.verify(AuthenticationFilter.bearerToken(request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION)));
+            } catch (InvalidTokenException e) {
+                ServerHttpResponse response = exchange.getResponse();
+                response.setStatusCode(HttpStatus.UNAUTHORIZED);
+                response.getHeaders().set(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+                response.getHeaders().setContentType(MediaType.TEXT_PLAIN);
+                DataBuffer body = response.bufferFactory().wrap(e.getMessage().getBytes(StandardCharsets.UTF_8));
+                log(exchange, start, null);
+                return response.writeWith(Mono.just(body));
+            }
+            exchange.getAttributes().put(AuthenticationFilter.TOKEN_ATTRIBUTE, token);
+        }
+        if (start == 0) {
+            return chain.filter(exchange);
+        }
+        VerifiedToken authenticated = token;
+        return chain.filter(exchange).doFinally(signal -> log(exchange, start, authenticated));
+    }
+
+    private void log(ServerWebExchange exchange, long start, VerifiedToken token) {
+        if (start != 0) {
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            accessLog.log(exchange.getRequest().getMethod().name(), exchange.getRequest().getPath().value(),
+                    status != null ? status.value() : HttpStatus.OK.value(), System.nanoTime() - start,
+                    token != null ? token.subject() : null);
+        }
+    }
+}
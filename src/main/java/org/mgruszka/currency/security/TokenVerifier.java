@@ -0,0 +1,141 @@
+package org.mgruszka.currency.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.mgruszka.currency.exceptions.InvalidTokenException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.logging.Logger;
+
+/**
+ * Verifies HS256 JSON Web Tokens signed with {@code security.jwt.secret}. Tokens that passed are cached until
+ * they expire, so a client repeating its token costs one cache lookup instead of parsing and an HMAC. Rejected
+ * tokens are never cached, so garbage sent by a client cannot push valid tokens out of the cache.
+ */
+@Component
+public class TokenVerifier implements MeterBinder {
+
+    private static final Logger logger = Logger.getLogger(TokenVerifier.class.getName());
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HmacSigner signer;
+    private final Cache<String, VerifiedToken> verified;
+    private final Clock clock;
+
+    @Autowired
+    public TokenVerifier(@Value("${security.jwt.secret:}") String secret,
+                         @Value("${security.jwt.cache.maximum-size:100000}") long cacheSize) {
+        this(secret, cacheSize, Clock.systemUTC());
+    }
+
+    TokenVerifier(String secret, long cacheSize, Clock clock) {
+        this.clock = clock;
+        if (secret.isBlank()) {
+            logger.warning("security.jwt.secret is not set, no bearer token will be accepted");
+        }
+        this.signer = new HmacSigner(secret);
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String token, VerifiedToken claims, long currentTime) {
+                        return Math.max(0, Duration.between(clock.instant(), claims.expiresAt()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String token, VerifiedToken claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String token, VerifiedToken claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @param token compact JWT, without the {@code Bearer} prefix
+     * @throws InvalidTokenException when the token is malformed, not HS256, forged, expired or not yet valid
+     */
+    public VerifiedToken verify(String token) {
+        VerifiedToken cached = verified.getIfPresent(token);
+        Instant now = clock.instant();
+        if (cached != null) {
+            // the cache evicts on its own ticker, a token may outlive its expiry there by a moment
+            if (!now.isBefore(cached.expiresAt())) {
+                throw new InvalidTokenException("Token expired at " + cached.expiresAt());
+            }
+            return cached;
+        }
+        VerifiedToken claims = parse(token, now);
+        verified.put(token, claims);
+        return claims;
+    }
+
+    /**
+     * Publishes size, hits, misses and evictions under the {@code cache} meters with {@code cache=tokens}.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, verified, "tokens");
+    }
+
+    long hitCount() {
+        return verified.stats().hitCount();
+    }
+
+    private VerifiedToken parse(String token, Instant now) {
+        int first = token.indexOf('.');
+        int second = token.indexOf('.', first + 1);
+        if (first < 0 || second < 0 || token.indexOf('.', second + 1) >= 0) {
+            throw new InvalidTokenException("Malformed token");
+        }
+        JsonNode header;
+        JsonNode payload;
+        byte[] signature;
+        try {
+            header = MAPPER.readTree(DECODER.decode(token.substring(0, first)));
+            payload = MAPPER.readTree(DECODER.decode(token.substring(first + 1, second)));
+            signature = DECODER.decode(token.substring(second + 1));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidTokenException("Malformed token");
+        }
+        // the algorithm is fixed, a token may not downgrade it to "none"
+        if (!"HS256".equals(header.path("alg").asText())) {
+            throw new InvalidTokenException("Unsupported token algorithm");
+        }
+        if (!signer.verify(token.substring(0, second).getBytes(StandardCharsets.US_ASCII), signature)) {
+            throw new InvalidTokenException("Invalid token signature");
+        }
+        if (!payload.path("exp").canConvertToLong()) {
+            throw new InvalidTokenException("Token has no expiry");
+        }
+        Instant expiresAt = Instant.ofEpochSecond(payload.get("exp").asLong());
+        if (!now.isBefore(expiresAt)) {
+            throw new InvalidTokenException("Token expired at " + expiresAt);
+        }
+        if (payload.path("nbf").canConvertToLong() && now.isBefore(Instant.ofEpochSecond(payload.get("nbf").asLong()))) {
+            throw new InvalidTokenException("Token is not valid yet");
+        }
+        return new VerifiedToken(payload.path("sub").isTextual() ? payload.get("sub").asText() : null, expiresAt);
+    }
+}
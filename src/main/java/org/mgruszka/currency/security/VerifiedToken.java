@@ -0,0 +1,12 @@
+package org.mgruszka.currency.security;
+
+import java.time.Instant;
+
+/**
+ * Claims of a bearer token whose signature was verified.
+ *
+ * @param subject {@code sub} claim, {@code null} when absent
+ * @param expiresAt {@code exp} claim
+ */
+public record VerifiedToken(String subject, Instant expiresAt) {
+}
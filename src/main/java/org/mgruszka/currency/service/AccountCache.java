@@ -0,0 +1,133 @@
+package org.mgruszka.currency.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.mgruszka.currency.model.AccountDetailsDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process cache of account details, evicted by size and by time since the entry was written.
+ * <p>
+ * Entries are futures so a load can be published before it runs and the repository call happens outside of
+ * any lock held by the cache. Loading inside {@code Cache.get(key, loader)} would run Mongo I/O inside a
+ * {@code synchronized} block of {@code ConcurrentHashMap.compute} and pin the carrier of a virtual thread.
+ */
+@Component
+public class AccountCache implements MeterBinder {
+
+    private final AsyncCache<String, AccountDetailsDTO> cache;
+
+    @Autowired
+    public AccountCache(@Value("${account.cache.maximum-size:100000}") long maximumSize,
+                        @Value("${account.cache.ttl:PT5M}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * Returns cached details or loads them, concurrent loads of the same account are collapsed into one.
+     * Exceptions thrown by the loader are propagated and nothing is cached.
+     */
+    public AccountDetailsDTO get(String accountId, Function<String, AccountDetailsDTO> loader) {
+        CompletableFuture<AccountDetailsDTO> cached = cache.getIfPresent(accountId);
+        if (cached != null) {
+            return join(cached);
+        }
+        CompletableFuture<AccountDetailsDTO> loading = new CompletableFuture<>();
+        CompletableFuture<AccountDetailsDTO> concurrent = cache.asMap().putIfAbsent(accountId, loading);
+        if (concurrent != null) {
+            return join(concurrent);
+        }
+        try {
+            AccountDetailsDTO account = loader.apply(accountId);
+            loading.complete(account);
+            return account;
+        } catch (RuntimeException e) {
+            cache.asMap().remove(accountId, loading);
+            loading.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #get(String, Function)}: the loader only has to start the load, concurrent
+     * callers share the returned future and a failed load is not cached.
+     */
+    public CompletableFuture<AccountDetailsDTO> getAsync(String accountId,
+                                                         Function<String, CompletableFuture<AccountDetailsDTO>> loader) {
+        return cache.get(accountId, (id, executor) -> loader.apply(id));
+    }
+
+    /**
+     * @return cached details, {@code null} when they are absent or still loading
+     */
+    public AccountDetailsDTO getIfPresent(String accountId) {
+        CompletableFuture<AccountDetailsDTO> cached = cache.getIfPresent(accountId);
+        return cached != null && cached.isDone() && !cached.isCompletedExceptionally() ? cached.join() : null;
+    }
+
+    public void put(AccountDetailsDTO account) {
+        cache.put(account.getId(), CompletableFuture.completedFuture(account));
+    }
+
+    public void invalidate(String accountId) {
+        cache.synchronous().invalidate(accountId);
+    }
+
+    public void invalidateAll(Iterable<String> accountIds) {
+        cache.synchronous().invalidateAll(accountIds);
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    public long hitCount() {
+        return cache.synchronous().stats().hitCount();
+    }
+
+    public long missCount() {
+        return cache.synchronous().stats().missCount();
+    }
+
+    public long size() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    /**
+     * Publishes size, hits, misses and evictions under the {@code cache} meters with {@code cache=accounts}.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "accounts");
+    }
+
+    Cache<String, AccountDetailsDTO> nativeCache() {
+        return cache.synchronous();
+    }
+
+    private static AccountDetailsDTO join(CompletableFuture<AccountDetailsDTO> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.mgruszka.currency.service;
+
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.mgruszka.currency.model.Account;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps {@link AccountCache} coherent across instances by watching the accounts collection with a change stream
+ * and evicting every account changed by any instance. Change streams need MongoDB running as a replica set.
+ */
+@Component
+@ConditionalOnProperty(name = "account.cache.coherence", havingValue = "change-stream")
+public class AccountCacheInvalidator implements SmartLifecycle {
+
+    private static final Logger logger = Logger.getLogger(AccountCacheInvalidator.class.getName());
+
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final AccountCache accountCache;
+
+    private volatile boolean running;
+    private volatile MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+    private Thread watcher;
+
+    public AccountCacheInvalidator(MongoTemplate mongoTemplate, AccountCache accountCache) {
+        this.mongoTemplate = mongoTemplate;
+        this.accountCache = accountCache;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        watcher = Thread.ofPlatform().daemon().name("account-cache-invalidator").start(this::watch);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> current = cursor;
+        if (current != null) {
+            current.close();
+        }
+        watcher.interrupt();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void watch() {
+        while (running) {
+            try {
+                cursor = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Account.class))
+                        .watch(List.of(Aggregates.match(Filters.in("operationType", "update", "replace", "delete"))))
+                        .cursor();
+                while (running) {
+                    ChangeStreamDocument<Document> change = cursor.next();
+                    BsonValue accountId = change.getDocumentKey() != null ? change.getDocumentKey().get("_id") : null;
+                    if (accountId != null && accountId.isString()) {
+                        accountCache.invalidate(accountId.asString().getValue());
+                    }
+                }
+            } catch (RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                // events missed until the stream is opened again could leave stale entries behind
+                accountCache.invalidateAll();
+                logger.log(Level.WARNING, "Account change stream failed, reconnecting", e);
+                try {
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+}
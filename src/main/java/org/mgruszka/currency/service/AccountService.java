@@ -1,77 +1,373 @@
 package org.mgruszka.currency.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.mgruszka.currency.exceptions.AccountNotFoundException;
+import org.mgruszka.currency.exceptions.ImportFailedException;
 import org.mgruszka.currency.exceptions.InsufficientFundsException;
+import org.mgruszka.currency.exceptions.InvalidAmountException;
 import org.mgruszka.currency.exceptions.InvalidCurrencyException;
+import org.mgruszka.currency.exceptions.InvalidCursorException;
+import org.mgruszka.currency.exceptions.VersionMismatchException;
 import org.mgruszka.currency.model.Account;
 import org.mgruszka.currency.model.AccountCreationDTO;
 import org.mgruszka.currency.model.AccountDetailsDTO;
+import org.mgruszka.currency.model.AccountIdView;
+import org.mgruszka.currency.model.AccountImportSummaryDTO;
+import org.mgruszka.currency.model.AccountSearchPageDTO;
+import org.mgruszka.currency.model.AccountSummaryDTO;
+import org.mgruszka.currency.model.AccountVersionView;
+import org.mgruszka.currency.model.CrossRateMatrix;
+import org.mgruszka.currency.model.ExchangeOperation;
+import org.mgruszka.currency.model.ExchangeRequestDTO;
+import org.mgruszka.currency.model.ExchangeResultDTO;
+import org.mgruszka.currency.model.ExchangeStatus;
+import org.mgruszka.currency.model.LedgerPageDTO;
+import org.mgruszka.currency.model.Money;
+import org.mgruszka.currency.model.Quote;
 import org.mgruszka.currency.model.TargetCurrency;
 import org.mgruszka.currency.repository.AccountRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Service
 public class AccountService {
+
+    public static final int MAX_SEARCH_PAGE_SIZE = 100;
+
+    private static final String CURSOR_SEPARATOR = "\0";
+    private static final Base64.Encoder CURSOR_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder CURSOR_DECODER = Base64.getUrlDecoder();
+
     private final AccountRepository accountRepository;
     private final ObjectMapper objectMapper;
     private final RecentExchangeRateService recentExchangeRateService;
+    private final AccountCache accountCache;
+    private final ExchangeMetrics exchangeMetrics;
+    private final ExchangeLedger exchangeLedger;
+    private final int importBatchSize;
 
     @Autowired
-    public AccountService(AccountRepository accountRepository, ObjectMapper objectMapper, RecentExchangeRateService recentExchangeRateService) {
+    public AccountService(AccountRepository accountRepository, ObjectMapper objectMapper, RecentExchangeRateService recentExchangeRateService,
+                          AccountCache accountCache, ExchangeMetrics exchangeMetrics, ExchangeLedger exchangeLedger,
+                          @Value("${account.import.batch-size:1000}") int importBatchSize) {
         this.accountRepository = accountRepository;
         this.objectMapper = objectMapper;
         this.recentExchangeRateService = recentExchangeRateService;
+        this.accountCache = accountCache;
+        this.exchangeMetrics = exchangeMetrics;
+        this.exchangeLedger = exchangeLedger;
+        this.importBatchSize = importBatchSize;
     }
 
     public String createAccount(AccountCreationDTO request) {
+        Account created = accountRepository.save(toAccount(request, null));
+        accountCache.put(toDetails(created));
+        return created.getId();
+    }
+
+    /**
+     * Reads newline delimited {@link AccountCreationDTO} records one by one and inserts them in batches,
+     * so memory use does not depend on the size of the input.
+     */
+    public AccountImportSummaryDTO importAccounts(InputStream records) {
+        String importId = UUID.randomUUID().toString();
+        long created = 0;
+        List<Account> batch = new ArrayList<>(importBatchSize);
+        try (MappingIterator<AccountCreationDTO> iterator = objectMapper.readerFor(AccountCreationDTO.class).readValues(records)) {
+            while (iterator.hasNextValue()) {
+                batch.add(toAccount(iterator.nextValue(), importId));
+                if (batch.size() == importBatchSize) {
+                    created += accountRepository.insert(batch).size();
+                    batch.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            long line = e.getLocation() != null ? e.getLocation().getLineNr() : -1;
+            throw new ImportFailedException("Invalid account record at line " + line + ": " + e.getOriginalMessage()
+                    + ". " + created + " accounts were created with import id " + importId);
+        } catch (InvalidAmountException e) {
+            throw new ImportFailedException("Invalid account record: " + e.getMessage()
+                    + ". " + created + " accounts were created with import id " + importId);
+        } catch (IOException e) {
+            throw new ImportFailedException("Failed to read account records. "
+                    + created + " accounts were created with import id " + importId);
+        }
+        if (!batch.isEmpty()) {
+            created += accountRepository.insert(batch).size();
+        }
+        return new AccountImportSummaryDTO(importId, created);
+    }
+
+    public Stream<AccountIdView> getImportedAccountIds(String importId) {
+        return accountRepository.findByImportId(importId);
+    }
+
+    public AccountDetailsDTO exchangeCurrency(String accountId, double amount, TargetCurrency targetCurrency) {
+        return exchangeCurrency(accountId, amount, null, targetCurrency);
+    }
+
+    /**
+     * @param sourceCurrency currency debited, {@code null} for the default of {@link #sourceCurrency(TargetCurrency, TargetCurrency)}
+     */
+    public AccountDetailsDTO exchangeCurrency(String accountId, double amount, TargetCurrency sourceCurrency, TargetCurrency targetCurrency) {
+        return exchangeCurrency(accountId, amount, sourceCurrency, targetCurrency, null);
+    }
+
+    /**
+     * @param expectedVersion version the account must still have, {@code null} to exchange whatever the version
+     * @throws VersionMismatchException when the account has another version
+     * @throws InvalidAmountException when {@code amount} is not above zero
+     */
+    public AccountDetailsDTO exchangeCurrency(String accountId, double amount, TargetCurrency sourceCurrency, TargetCurrency targetCurrency,
+                                              Long expectedVersion) {
+        TargetCurrency source = sourceCurrency(sourceCurrency, targetCurrency);
+        long amountMinorUnits = exchangeAmount(amount);
+        long convertedAmount = recentExchangeRateService.getRates().convert(amountMinorUnits, source, targetCurrency);
+        return exchange(accountId, source, targetCurrency, amountMinorUnits, convertedAmount, expectedVersion);
+    }
+
+    /**
+     * Executes a verified quote at its locked amounts, without looking up any rate.
+     */
+    public AccountDetailsDTO exchangeCurrency(String accountId, Quote quote) {
+        return exchangeCurrency(accountId, quote, null);
+    }
+
+    /**
+     * @see #exchangeCurrency(String, double, TargetCurrency, TargetCurrency, Long)
+     */
+    public AccountDetailsDTO exchangeCurrency(String accountId, Quote quote, Long expectedVersion) {
+        return exchange(accountId, quote.sourceCurrency(), quote.targetCurrency(), quote.amount(), quote.convertedAmount(), expectedVersion);
+    }
+
+    private AccountDetailsDTO exchange(String accountId, TargetCurrency sourceCurrency, TargetCurrency targetCurrency,
+                                       long amount, long convertedAmount, Long expectedVersion) {
+        Optional<Account> exchanged = expectedVersion == null
+                ? accountRepository.exchange(accountId, sourceCurrency, targetCurrency, amount, convertedAmount)
+                : accountRepository.exchange(accountId, sourceCurrency, targetCurrency, amount, convertedAmount, expectedVersion);
+        if (exchanged.isEmpty()) {
+            ExchangeStatus status = failureStatus(accountId, expectedVersion);
+            exchangeMetrics.record(targetCurrency, status);
+            throw failure(status);
+        }
+        exchangeMetrics.record(targetCurrency, ExchangeStatus.SUCCESS);
+        Account account = exchanged.get();
+        // invalidate rather than put, a put could race with another exchange and leave the older balance behind
+        accountCache.invalidate(accountId);
+        exchangeLedger.record(List.of(new ExchangeOperation(accountId, sourceCurrency, targetCurrency, amount, convertedAmount)));
+        return toDetails(account);
+    }
+
+    /**
+     * Tells why a single exchange did not apply, only reading the version when one was expected.
+     */
+    private ExchangeStatus failureStatus(String accountId, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return accountRepository.existsById(accountId) ? ExchangeStatus.INSUFFICIENT_FUNDS : ExchangeStatus.ACCOUNT_NOT_FOUND;
+        }
+        return accountRepository.findVersionById(accountId)
+                .map(current -> current.version() == expectedVersion ? ExchangeStatus.INSUFFICIENT_FUNDS : ExchangeStatus.VERSION_MISMATCH)
+                .orElse(ExchangeStatus.ACCOUNT_NOT_FOUND);
+    }
+
+    static RuntimeException failure(ExchangeStatus status) {
+        return switch (status) {
+            case INSUFFICIENT_FUNDS -> InsufficientFundsException.INSTANCE;
+            case ACCOUNT_NOT_FOUND -> AccountNotFoundException.INSTANCE;
+            case VERSION_MISMATCH -> VersionMismatchException.INSTANCE;
+            case SUCCESS -> throw new IllegalArgumentException("Not a failure");
+        };
+    }
+
+    /**
+     * Prices all requests against one rate table snapshot and applies them with a single bulk write.
+     */
+    public List<ExchangeResultDTO> exchangeCurrencyBatch(List<ExchangeRequestDTO> requests) {
+        List<ExchangeOperation> operations = toOperations(requests, recentExchangeRateService.getRates());
+        List<ExchangeStatus> statuses = accountRepository.bulkExchange(operations);
+        accountCache.invalidateAll(operations.stream().map(ExchangeOperation::accountId).toList());
+        for (int i = 0; i < operations.size(); i++) {
+            exchangeMetrics.record(operations.get(i).targetCurrency(), statuses.get(i));
+        }
+        exchangeLedger.record(applied(operations, statuses));
+        return toResults(operations, statuses);
+    }
+
+    /**
+     * Finds accounts by name prefixes, ordered by last name, first name and id.
+     *
+     * @param firstName first name prefix, {@code null} to match any
+     * @param cursor {@link AccountSearchPageDTO#getNextCursor()} of the previous page, {@code null} for the first page
+     * @param limit page size, at most {@link #MAX_SEARCH_PAGE_SIZE}
+     */
+    public AccountSearchPageDTO searchAccounts(String lastName, String firstName, String cursor, int limit) {
+        int pageSize = searchPageSize(limit);
+        return toSearchPage(accountRepository.searchByName(lastName, firstName, decodeSearchCursor(cursor), pageSize + 1), pageSize);
+    }
+
+    /**
+     * @return entries of the history of an account, newest first
+     * @see ExchangeLedger#getHistory(String, String, int)
+     */
+    public LedgerPageDTO getHistory(String accountId, String cursor, int limit) {
+        return exchangeLedger.getHistory(accountId, cursor, limit);
+    }
+
+    static int searchPageSize(int limit) {
+        return Math.clamp(limit, 1, MAX_SEARCH_PAGE_SIZE);
+    }
+
+    /**
+     * @param accounts up to one account more than the page, which tells whether there is a next page
+     */
+    static AccountSearchPageDTO toSearchPage(List<AccountSummaryDTO> accounts, int pageSize) {
+        if (accounts.size() <= pageSize) {
+            return new AccountSearchPageDTO(accounts, null);
+        }
+        List<AccountSummaryDTO> page = accounts.subList(0, pageSize);
+        return new AccountSearchPageDTO(page, encodeSearchCursor(page.getLast()));
+    }
+
+    /**
+     * The cursor is the sort key of the last account of a page: id, last name and first name, when present.
+     */
+    static String encodeSearchCursor(AccountSummaryDTO last) {
+        String key = last.getId() + CURSOR_SEPARATOR + last.getLastName()
+                + (last.getFirstName() != null ? CURSOR_SEPARATOR + last.getFirstName() : "");
+        return CURSOR_ENCODER.encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static AccountSummaryDTO decodeSearchCursor(String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        String[] key;
+        try {
+            key = new String(CURSOR_DECODER.decode(cursor), StandardCharsets.UTF_8).split(CURSOR_SEPARATOR, -1);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+        if (key.length < 2 || key.length > 3) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+        return new AccountSummaryDTO(key[0], key.length == 3 ? key[2] : null, key[1]);
+    }
+
+    static Account toAccount(AccountCreationDTO request, String importId) {
         Account account = new Account();
         account.setId(UUID.randomUUID().toString());
         account.setFirstName(request.getFirstName());
         account.setLastName(request.getLastName());
-        account.setBalancePLN(request.getInitialBalance());
-        account.setBalanceUSD(0);
-        return accountRepository.save(account).getId();
+        long initialBalance = Money.toMinorUnits(request.getInitialBalance());
+        if (initialBalance < 0) {
+            throw new InvalidAmountException("Initial balance must not be negative");
+        }
+        account.setBalance(TargetCurrency.PLN, initialBalance);
+        account.setBalance(TargetCurrency.USD, 0);
+        account.setImportId(importId);
+        return account;
     }
 
-    public AccountDetailsDTO exchangeCurrency(String accountId, double amount, TargetCurrency targetCurrency) {
-        Account account = accountRepository.findById(accountId).orElseThrow(AccountNotFoundException::new);
-
-        double exchangeRate = recentExchangeRateService.getUSDExchangeRate();
-        switch (targetCurrency) {
-            case USD -> {
-                if (account.getBalancePLN() >= amount) {
-                    account.setBalancePLN(account.getBalancePLN() - amount);
-                    account.setBalanceUSD(roundDown(account.getBalanceUSD() + (amount / exchangeRate)));
-                } else {
-                    throw new InsufficientFundsException();
-                }
-            }
-            case PLN -> {
-                if (account.getBalanceUSD() >= amount) {
-                    account.setBalanceUSD(account.getBalanceUSD() - amount);
-                    account.setBalancePLN(roundDown(account.getBalancePLN() + (amount * exchangeRate)));
-                } else {
-                    throw new InsufficientFundsException();
-                }
+    static List<ExchangeOperation> toOperations(List<ExchangeRequestDTO> requests, CrossRateMatrix rates) {
+        List<ExchangeOperation> operations = new ArrayList<>(requests.size());
+        for (ExchangeRequestDTO request : requests) {
+            TargetCurrency source = sourceCurrency(request.getSourceCurrency(), request.getTargetCurrency());
+            long amount = exchangeAmount(request.getAmount());
+            operations.add(new ExchangeOperation(request.getAccountId(), source, request.getTargetCurrency(), amount,
+                    rates.convert(amount, source, request.getTargetCurrency())));
+        }
+        return operations;
+    }
+
+    static List<ExchangeOperation> applied(List<ExchangeOperation> operations, List<ExchangeStatus> statuses) {
+        List<ExchangeOperation> applied = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            if (statuses.get(i) == ExchangeStatus.SUCCESS) {
+                applied.add(operations.get(i));
             }
-            default -> throw new InvalidCurrencyException("Unsupported target currency: " + targetCurrency);
         }
-        return objectMapper.convertValue(accountRepository.save(account), AccountDetailsDTO.class);
+        return applied;
+    }
+
+    static List<ExchangeResultDTO> toResults(List<ExchangeOperation> operations, List<ExchangeStatus> statuses) {
+        List<ExchangeResultDTO> results = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            ExchangeOperation operation = operations.get(i);
+            results.add(new ExchangeResultDTO(operation.accountId(), Money.toMajorUnits(operation.amount()), operation.sourceCurrency(),
+                    operation.targetCurrency(), Money.toMajorUnits(operation.convertedAmount()), statuses.get(i)));
+        }
+        return results;
+    }
+
+    /**
+     * A negative amount would credit the source and debit the target, which takes the target balance below zero
+     * without any funds check, and an amount that rounds to zero would only bump the version.
+     *
+     * @return {@code amount} in minor units
+     * @throws InvalidAmountException when {@code amount} is not above zero once rounded to minor units
+     */
+    static long exchangeAmount(double amount) {
+        long minorUnits = Money.toMinorUnits(amount);
+        if (minorUnits <= 0) {
+            throw new InvalidAmountException("Amount must be at least " + Money.toDecimalString(1) + ", got " + amount);
+        }
+        return minorUnits;
     }
 
-    private double roundDown(double value) {
-        return  BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_DOWN).doubleValue();
+    /**
+     * Without an explicit source, PLN targets are bought with USD and every other currency with PLN, which keeps
+     * the meaning of requests made before the source could be given.
+     */
+    static TargetCurrency sourceCurrency(TargetCurrency sourceCurrency, TargetCurrency targetCurrency) {
+        if (sourceCurrency == null) {
+            return targetCurrency == TargetCurrency.PLN ? TargetCurrency.USD : TargetCurrency.PLN;
+        }
+        if (sourceCurrency == targetCurrency) {
+            throw new InvalidCurrencyException("Source and target currency are both " + targetCurrency);
+        }
+        return sourceCurrency;
+    }
+
+    /**
+     * Version of an account for a conditional request, from the cache or else from a read of only the version,
+     * so answering {@code If-None-Match} never loads the whole account.
+     */
+    public long getAccountVersion(String accountId) {
+        AccountDetailsDTO cached = accountCache.getIfPresent(accountId);
+        if (cached != null) {
+            return cached.getVersion();
+        }
+        return accountRepository.findVersionById(accountId)
+                .map(AccountVersionView::version)
+                .orElseThrow(() -> AccountNotFoundException.INSTANCE);
     }
 
     public AccountDetailsDTO getAccount(String accountId) {
-        return objectMapper.convertValue(accountRepository
-                .findById(accountId)
-                .orElseThrow(AccountNotFoundException::new), AccountDetailsDTO.class);
+        return accountCache.get(accountId, id -> toDetails(accountRepository
+                .findById(id)
+                .orElseThrow(() -> AccountNotFoundException.INSTANCE)));
+    }
+
+    static AccountDetailsDTO toDetails(Account account) {
+        Map<TargetCurrency, Double> balances = new EnumMap<>(TargetCurrency.class);
+        account.getBalances().forEach((currency, balance) -> balances.put(currency, Money.toMajorUnits(balance)));
+        return new AccountDetailsDTO(account.getId(), account.getFirstName(), account.getLastName(),
+                Money.toMajorUnits(account.getBalance(TargetCurrency.PLN)), Money.toMajorUnits(account.getBalance(TargetCurrency.USD)), balances,
+                account.getVersion());
     }
 }
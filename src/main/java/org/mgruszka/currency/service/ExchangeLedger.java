@@ -0,0 +1,316 @@
+package org.mgruszka.currency.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.types.ObjectId;
+import org.mgruszka.currency.exceptions.InvalidCursorException;
+import org.mgruszka.currency.model.ExchangeOperation;
+import org.mgruszka.currency.model.LedgerEntry;
+import org.mgruszka.currency.model.LedgerEntryDTO;
+import org.mgruszka.currency.model.LedgerPageDTO;
+import org.mgruszka.currency.model.Money;
+import org.mgruszka.currency.repository.LedgerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only record of applied exchanges in the {@code ledger} collection. With {@link Durability#BATCHED}
+ * entries go to a bounded in-memory queue and a single writer inserts whatever accumulated while its previous
+ * insert ran, so batches grow with load without delaying entries when the service is idle. Queued entries are
+ * lost if the process dies before they are written. {@link Durability#SYNC} inserts every entry before the
+ * exchange returns.
+ * <p>
+ * Entries are written after the balance update they describe, outside any transaction, so the ledger is best-effort
+ * in both modes: a failed insert never fails the exchange, which is applied already and would be applied twice if
+ * the client retried it. Entries that cannot be written are handed to the background writer when it has room, and
+ * otherwise counted and logged as dropped.
+ */
+@Service
+public class ExchangeLedger implements SmartLifecycle {
+
+    private static final Logger logger = Logger.getLogger(ExchangeLedger.class.getName());
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MILLIS = 1000;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public enum Durability {
+        /** entries are inserted before the exchange returns */
+        SYNC,
+        /** entries are queued and inserted in batches by a background writer */
+        BATCHED
+    }
+
+    private final LedgerRepository ledgerRepository;
+    private final Durability durability;
+    private final int capacity;
+    private final int batchSize;
+    private final Clock clock;
+    private final Counter droppedEntries;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition idle = lock.newCondition();
+    /** guarded by {@link #lock} */
+    private final ArrayDeque<LedgerEntry> queue = new ArrayDeque<>();
+    /** guarded by {@link #lock}, true while the writer inserts entries it took from the queue */
+    private boolean writing;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    @Autowired
+    public ExchangeLedger(LedgerRepository ledgerRepository,
+                          @Value("${ledger.durability:batched}") Durability durability,
+                          @Value("${ledger.queue-capacity:10000}") int capacity,
+                          @Value("${ledger.batch-size:500}") int batchSize,
+                          MeterRegistry meterRegistry) {
+        this(ledgerRepository, durability, capacity, batchSize, meterRegistry, Clock.systemUTC());
+    }
+
+    ExchangeLedger(LedgerRepository ledgerRepository, Durability durability, int capacity, int batchSize,
+                   MeterRegistry meterRegistry, Clock clock) {
+        this.ledgerRepository = ledgerRepository;
+        this.durability = durability;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.clock = clock;
+        this.droppedEntries = Counter.builder("ledger.entries.dropped")
+                .description("Ledger entries that could not be written")
+                .register(meterRegistry);
+        Gauge.builder("ledger.queue.size", this, ExchangeLedger::queueSize)
+                .description("Ledger entries waiting for the writer")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records applied exchanges. Blocks for an insert with {@link Durability#SYNC}, and also when the queue is
+     * full, so a database that cannot keep up slows exchanges down instead of losing their entries. Never throws
+     * because of a failed insert.
+     */
+    public void record(List<ExchangeOperation> operations) {
+        if (!enqueue(operations)) {
+            write(operations);
+        }
+    }
+
+    /**
+     * Queues entries of applied exchanges without blocking.
+     *
+     * @return false when nothing was queued, because durability is {@link Durability#SYNC}, the queue is full
+     * or the writer is not running, then the entries must be {@link #write(List) written} by the caller
+     */
+    public boolean enqueue(List<ExchangeOperation> operations) {
+        if (durability == Durability.SYNC) {
+            return false;
+        }
+        return enqueueEntries(toEntries(operations));
+    }
+
+    /**
+     * Inserts entries of applied exchanges right away. When the insert fails the entries are queued for the
+     * background writer to retry, or dropped if it cannot take them, but the failure is not passed on.
+     */
+    public void write(List<ExchangeOperation> operations) {
+        List<LedgerEntry> entries = toEntries(operations);
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            ledgerRepository.append(entries);
+        } catch (RuntimeException e) {
+            if (enqueueEntries(entries)) {
+                logger.log(Level.WARNING, "Failed to write " + entries.size() + " ledger entries, queued them for a retry", e);
+            } else {
+                droppedEntries.increment(entries.size());
+                logger.log(Level.SEVERE, "Dropped " + entries.size() + " ledger entries of applied exchanges", e);
+            }
+        }
+    }
+
+    private boolean enqueueEntries(List<LedgerEntry> entries) {
+        lock.lock();
+        try {
+            if (!running || queue.size() + entries.size() > capacity) {
+                return false;
+            }
+            queue.addAll(entries);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every entry queued so far is written.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            while (writing || !queue.isEmpty()) {
+                idle.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param cursor {@link LedgerPageDTO#getNextCursor()} of the previous page, {@code null} for the newest entries
+     * @param limit page size, at most {@link #MAX_PAGE_SIZE}
+     */
+    public LedgerPageDTO getHistory(String accountId, String cursor, int limit) {
+        int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        Instant afterTimestamp = null;
+        String afterId = null;
+        if (cursor != null) {
+            String decoded = decodeCursor(cursor);
+            int separator = decoded.indexOf(':');
+            try {
+                afterTimestamp = Instant.ofEpochMilli(Long.parseLong(decoded.substring(0, separator)));
+                afterId = decoded.substring(separator + 1);
+            } catch (RuntimeException e) {
+                throw new InvalidCursorException("Invalid cursor");
+            }
+        }
+        // one entry more than the page tells whether there is a next page
+        List<LedgerEntry> entries = ledgerRepository.findHistory(accountId, afterTimestamp, afterId, pageSize + 1);
+        boolean hasNext = entries.size() > pageSize;
+        List<LedgerEntryDTO> page = new ArrayList<>(Math.min(entries.size(), pageSize));
+        for (LedgerEntry entry : hasNext ? entries.subList(0, pageSize) : entries) {
+            page.add(new LedgerEntryDTO(entry.getId(), entry.getTimestamp(), Money.toMajorUnits(entry.getAmount()),
+                    entry.getSourceCurrency(), entry.getTargetCurrency(), Money.toMajorUnits(entry.getConvertedAmount())));
+        }
+        return new LedgerPageDTO(page, hasNext ? encodeCursor(entries.get(pageSize - 1)) : null);
+    }
+
+    @Override
+    public void start() {
+        if (durability == Durability.BATCHED) {
+            running = true;
+            writer = Thread.ofPlatform().daemon().name("ledger-writer").start(this::writeQueued);
+        }
+    }
+
+    /**
+     * Stops taking new entries and waits until the writer has written the queued ones.
+     */
+    @Override
+    public void stop() {
+        lock.lock();
+        try {
+            running = false;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void writeQueued() {
+        while (true) {
+            List<LedgerEntry> batch = new ArrayList<>();
+            lock.lock();
+            try {
+                writing = false;
+                while (queue.isEmpty()) {
+                    idle.signalAll();
+                    if (!running) {
+                        return;
+                    }
+                    notEmpty.awaitUninterruptibly();
+                }
+                while (batch.size() < batchSize && !queue.isEmpty()) {
+                    batch.add(queue.poll());
+                }
+                writing = true;
+            } finally {
+                lock.unlock();
+            }
+            append(batch);
+        }
+    }
+
+    private void append(List<LedgerEntry> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                ledgerRepository.append(batch);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    droppedEntries.increment(batch.size());
+                    logger.log(Level.SEVERE, "Dropped " + batch.size() + " ledger entries after " + attempt + " attempts", e);
+                    return;
+                }
+                logger.log(Level.WARNING, "Failed to write " + batch.size() + " ledger entries, retrying", e);
+                try {
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private List<LedgerEntry> toEntries(List<ExchangeOperation> operations) {
+        // ids are assigned here, so appending a batch again after a failure does not duplicate entries, and they are
+        // ObjectIds, so entries recorded by one instance within the same millisecond keep their order in the history
+        Instant timestamp = clock.instant().truncatedTo(ChronoUnit.MILLIS);
+        List<LedgerEntry> entries = new ArrayList<>(operations.size());
+        for (ExchangeOperation operation : operations) {
+            entries.add(new LedgerEntry(ObjectId.get().toHexString(), operation.accountId(), operation.sourceCurrency(),
+                    operation.targetCurrency(), operation.amount(), operation.convertedAmount(), timestamp));
+        }
+        return entries;
+    }
+
+    private int queueSize() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String encodeCursor(LedgerEntry last) {
+        return ENCODER.encodeToString((last.getTimestamp().toEpochMilli() + ":" + last.getId()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeCursor(String cursor) {
+        try {
+            return new String(DECODER.decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+}
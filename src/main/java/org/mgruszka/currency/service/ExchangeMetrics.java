@@ -0,0 +1,39 @@
+package org.mgruszka.currency.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.mgruszka.currency.model.ExchangeStatus;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Counts exchanges by target currency and outcome. Counters are registered up front so recording an
+ * exchange does not look anything up in the registry.
+ */
+@Component
+public class ExchangeMetrics {
+
+    private final Map<TargetCurrency, Map<ExchangeStatus, Counter>> counters = new EnumMap<>(TargetCurrency.class);
+
+    public ExchangeMetrics(MeterRegistry meterRegistry) {
+        for (TargetCurrency currency : TargetCurrency.values()) {
+            Map<ExchangeStatus, Counter> byStatus = new EnumMap<>(ExchangeStatus.class);
+            for (ExchangeStatus status : ExchangeStatus.values()) {
+                byStatus.put(status, Counter.builder("currency.exchanges")
+                        .description("Exchanges by target currency and outcome")
+                        .tag("currency", currency.name())
+                        .tag("outcome", status.name().toLowerCase(Locale.ROOT))
+                        .register(meterRegistry));
+            }
+            counters.put(currency, byStatus);
+        }
+    }
+
+    public void record(TargetCurrency targetCurrency, ExchangeStatus status) {
+        counters.get(targetCurrency).get(status).increment();
+    }
+}
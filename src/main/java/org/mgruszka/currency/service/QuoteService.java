@@ -0,0 +1,153 @@
+package org.mgruszka.currency.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.mgruszka.currency.exceptions.InvalidQuoteException;
+import org.mgruszka.currency.model.CrossRateMatrix;
+import org.mgruszka.currency.model.Money;
+import org.mgruszka.currency.model.Quote;
+import org.mgruszka.currency.model.QuoteDTO;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.mgruszka.currency.repository.ExecutedQuotes;
+import org.mgruszka.currency.security.HmacSigner;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+
+/**
+ * Prices conversions from the in-memory rate table and signs them into short-lived quote tokens. A token carries
+ * the whole priced conversion and the account it was quoted for, so executing it needs no rate lookup, and any
+ * instance sharing {@code quote.secret} accepts it. Every token can be executed once: the ids of executed quotes
+ * are stored in MongoDB until the quotes expire, so a replay is rejected by every instance. An in-memory set in
+ * front of it rejects replays on the same instance without a round trip, and is all there is with the
+ * {@code embedded} profile.
+ */
+@Service
+public class QuoteService {
+
+    private static final Logger logger = Logger.getLogger(QuoteService.class.getName());
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final RecentExchangeRateService recentExchangeRateService;
+    private final HmacSigner signer;
+    private final Duration ttl;
+    private final Clock clock;
+    /** ids of executed quotes, kept at least as long as the quotes could be executed */
+    private final Cache<String, Boolean> executed;
+    /** null with the {@code embedded} profile, a single instance there */
+    private final ExecutedQuotes executedQuotes;
+
+    @Autowired
+    public QuoteService(RecentExchangeRateService recentExchangeRateService,
+                        @Value("${quote.secret:}") String secret,
+                        @Value("${quote.ttl:PT30S}") Duration ttl,
+                        Optional<ExecutedQuotes> executedQuotes) {
+        this(recentExchangeRateService, secret, ttl, Clock.systemUTC(), executedQuotes.orElse(null));
+    }
+
+    QuoteService(RecentExchangeRateService recentExchangeRateService, String secret, Duration ttl, Clock clock) {
+        this(recentExchangeRateService, secret, ttl, clock, null);
+    }
+
+    QuoteService(RecentExchangeRateService recentExchangeRateService, String secret, Duration ttl, Clock clock,
+                 ExecutedQuotes executedQuotes) {
+        this.recentExchangeRateService = recentExchangeRateService;
+        this.executedQuotes = executedQuotes;
+        this.ttl = ttl;
+        this.clock = clock;
+        this.executed = Caffeine.newBuilder().expireAfterWrite(ttl).build();
+        if (secret.isBlank()) {
+            logger.warning("quote.secret is not set, quote tokens are only accepted by this instance until it restarts");
+        }
+        this.signer = new HmacSigner(secret);
+    }
+
+    /**
+     * Prices {@code amount} of {@code sourceCurrency}, {@code null} for the default source of an exchange, in
+     * {@code targetCurrency} for account {@code accountId}. Completes right away while the cached rate table is fresh.
+     */
+    public CompletableFuture<QuoteDTO> quote(String accountId, double amount, TargetCurrency sourceCurrency, TargetCurrency targetCurrency) {
+        TargetCurrency source = AccountService.sourceCurrency(sourceCurrency, targetCurrency);
+        long amountMinorUnits = AccountService.exchangeAmount(amount);
+        return recentExchangeRateService.getRatesAsync().thenApply(rates -> toDTO(rates, new Quote(UUID.randomUUID().toString(),
+                accountId, source, targetCurrency, amountMinorUnits, rates.convert(amountMinorUnits, source, targetCurrency),
+                clock.instant().plus(ttl))));
+    }
+
+    /**
+     * Checks the signature, expiry and account of {@code token} and marks the quote as executed. Request parameters
+     * given next to the token must match it. The quote is used up even when the exchange then fails.
+     *
+     * @throws InvalidQuoteException when the token is forged, expired, for another account, already executed or
+     *                               does not match the parameters
+     */
+    public Quote execute(String token, String accountId, Double amount, TargetCurrency sourceCurrency, TargetCurrency targetCurrency) {
+        int separator = token.indexOf('.');
+        if (separator < 0) {
+            throw new InvalidQuoteException("Invalid quote token");
+        }
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(0, separator));
+            signature = DECODER.decode(token.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidQuoteException("Invalid quote token");
+        }
+        if (!signer.verify(payload, signature)) {
+            throw new InvalidQuoteException("Invalid quote token");
+        }
+        Quote quote = parse(new String(payload, StandardCharsets.UTF_8));
+        if (!clock.instant().isBefore(quote.expiresAt())) {
+            throw new InvalidQuoteException("Quote expired at " + quote.expiresAt());
+        }
+        if ((amount != null && Money.toMinorUnits(amount) != quote.amount())
+                || (sourceCurrency != null && sourceCurrency != quote.sourceCurrency())
+                || (targetCurrency != null && targetCurrency != quote.targetCurrency())) {
+            throw new InvalidQuoteException("Request parameters do not match the quote");
+        }
+        if (!quote.accountId().equals(accountId)) {
+            throw new InvalidQuoteException("Quote was issued for another account");
+        }
+        if (executed.asMap().putIfAbsent(quote.id(), Boolean.TRUE) != null
+                || (executedQuotes != null && !executedQuotes.tryMark(quote.id(), quote.expiresAt()))) {
+            throw new InvalidQuoteException("Quote was already executed");
+        }
+        return quote;
+    }
+
+    private QuoteDTO toDTO(CrossRateMatrix rates, Quote quote) {
+        return new QuoteDTO(Money.toMajorUnits(quote.amount()), quote.sourceCurrency(), quote.targetCurrency(),
+                Money.toMajorUnits(quote.convertedAmount()), rates.getEffectiveDate(), quote.expiresAt(), sign(quote));
+    }
+
+    String sign(Quote quote) {
+        // the account id goes last, so it is the only field that may contain the separator
+        byte[] payload = (quote.id() + ":" + quote.sourceCurrency() + ":" + quote.targetCurrency() + ":" + quote.amount() + ":"
+                + quote.convertedAmount() + ":" + quote.expiresAt().getEpochSecond() + ":" + quote.accountId()).getBytes(StandardCharsets.UTF_8);
+        return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(signer.sign(payload));
+    }
+
+    private static Quote parse(String payload) {
+        String[] fields = payload.split(":", 7);
+        try {
+            return new Quote(fields[0], fields[6], TargetCurrency.valueOf(fields[1]), TargetCurrency.valueOf(fields[2]),
+                    Long.parseLong(fields[3]), Long.parseLong(fields[4]), Instant.ofEpochSecond(Long.parseLong(fields[5])));
+        } catch (RuntimeException e) {
+            // only reachable with a valid signature over a payload this class did not write
+            throw new InvalidQuoteException("Invalid quote token");
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.mgruszka.currency.service;
+
+import org.mgruszka.currency.client.NbpClient;
+import org.mgruszka.currency.exceptions.NBApiException;
+import org.mgruszka.currency.exceptions.RateNotFoundException;
+import org.mgruszka.currency.model.CrossRateMatrix;
+import org.mgruszka.currency.model.RateTable;
+import org.mgruszka.currency.model.RateTableDTO;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.mgruszka.currency.repository.RateTableRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Local time series of NBP table A mid rates. Tables are kept in the {@code rate_tables} collection, one document
+ * per effective date, and loaded into memory on startup, where each table takes one {@code double} per currency.
+ * The latest stored table seeds {@link RecentExchangeRateService}, so exchanges can be priced before NBP answers.
+ * Every table fetched afterwards is appended, and missing history can be backfilled with NBP date range queries.
+ */
+@Service
+public class RateHistoryService implements ApplicationRunner {
+
+    private static final Logger logger = Logger.getLogger(RateHistoryService.class.getName());
+
+    private static final TargetCurrency[] CURRENCIES = TargetCurrency.values();
+
+    private final RateTableRepository rateTableRepository;
+    private final NbpClient nbpClient;
+    private final RecentExchangeRateService recentExchangeRateService;
+    private final String backfillFrom;
+    private final Clock clock;
+
+    /** mid rates by effective date, indexed by currency ordinal, NaN for currencies missing from the table */
+    private final NavigableMap<LocalDate, double[]> tables = new ConcurrentSkipListMap<>();
+
+    @Autowired
+    public RateHistoryService(RateTableRepository rateTableRepository, NbpClient nbpClient,
+                              RecentExchangeRateService recentExchangeRateService,
+                              @Value("${nbp.history.backfill-from:}") String backfillFrom) {
+        this(rateTableRepository, nbpClient, recentExchangeRateService, backfillFrom, Clock.systemUTC());
+    }
+
+    RateHistoryService(RateTableRepository rateTableRepository, NbpClient nbpClient, RecentExchangeRateService recentExchangeRateService,
+                       String backfillFrom, Clock clock) {
+        this.rateTableRepository = rateTableRepository;
+        this.nbpClient = nbpClient;
+        this.recentExchangeRateService = recentExchangeRateService;
+        this.backfillFrom = backfillFrom;
+        this.clock = clock;
+    }
+
+    /**
+     * Loads the stored history, seeds the current rates with the latest table and, when
+     * {@code nbp.history.backfill-from} is set, starts filling the gaps in the background.
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        RateTable latest = null;
+        for (RateTable table : rateTableRepository.findAll()) {
+            tables.put(table.getEffectiveDate(), toArray(table.getMidRates()));
+            if (latest == null || table.getEffectiveDate().isAfter(latest.getEffectiveDate())) {
+                latest = table;
+            }
+        }
+        if (latest != null) {
+            recentExchangeRateService.seed(CrossRateMatrix.of(latest.getEffectiveDate(), latest.getMidRates()), latest.getFetchedAt());
+            logger.info("Loaded " + tables.size() + " NBP tables, latest from " + latest.getEffectiveDate());
+        }
+        if (!backfillFrom.isBlank()) {
+            LocalDate from = LocalDate.parse(backfillFrom);
+            Thread.ofVirtual().name("rate-history-backfill").start(() -> backfillMissing(from));
+        }
+    }
+
+    @EventListener
+    public void onRateTableFetched(RateTableFetchedEvent event) {
+        CrossRateMatrix rates = event.rates();
+        try {
+            // saved on every fetch, so the stored fetchedAt of the latest table stays current for seeding
+            rateTableRepository.save(new RateTable(rates.getEffectiveDate(), rates.getMidRates(), event.fetchedAt()));
+            tables.put(rates.getEffectiveDate(), toArray(rates.getMidRates()));
+        } catch (DataAccessException e) {
+            logger.log(Level.WARNING, "Failed to store NBP table from " + rates.getEffectiveDate(), e);
+        }
+    }
+
+    /**
+     * @return the latest table effective at or before {@code date}
+     * @throws RateNotFoundException when the history has no table that old
+     */
+    public RateTableDTO getRatesAsOf(LocalDate date) {
+        Map.Entry<LocalDate, double[]> entry = tables.floorEntry(date);
+        if (entry == null) {
+            throw new RateNotFoundException("No NBP table at or before " + date);
+        }
+        return new RateTableDTO(entry.getKey(), toMap(entry.getValue()));
+    }
+
+    /**
+     * Fetches and stores all tables between {@code from} and {@code to}, both inclusive, in requests of at most
+     * {@link NbpClient#MAX_RANGE_DAYS} days.
+     *
+     * @return number of tables stored
+     */
+    public int backfill(LocalDate from, LocalDate to) {
+        int stored = 0;
+        Instant fetchedAt = clock.instant();
+        for (LocalDate start = from; !start.isAfter(to); start = start.plusDays(NbpClient.MAX_RANGE_DAYS)) {
+            LocalDate end = start.plusDays(NbpClient.MAX_RANGE_DAYS - 1);
+            if (end.isAfter(to)) {
+                end = to;
+            }
+            List<RateTable> fetched = new ArrayList<>();
+            for (CrossRateMatrix rates : nbpClient.getRateTables(start, end)) {
+                fetched.add(new RateTable(rates.getEffectiveDate(), rates.getMidRates(), fetchedAt));
+            }
+            // tables already stored keep their document, so a newer fetchedAt is not overwritten with this one
+            fetched.removeIf(table -> tables.containsKey(table.getEffectiveDate()));
+            rateTableRepository.saveAll(fetched);
+            for (RateTable table : fetched) {
+                tables.put(table.getEffectiveDate(), toArray(table.getMidRates()));
+            }
+            stored += fetched.size();
+        }
+        return stored;
+    }
+
+    /**
+     * Backfills the days before the oldest and after the newest stored table. Gaps in between are not looked
+     * for, they can only appear when an earlier backfill failed half way and are covered by
+     * {@link #backfill(LocalDate, LocalDate)} with an explicit range.
+     */
+    void backfillMissing(LocalDate from) {
+        LocalDate today = LocalDate.now(clock);
+        try {
+            int stored;
+            if (tables.isEmpty()) {
+                stored = backfill(from, today);
+            } else {
+                stored = backfill(from, tables.firstKey().minusDays(1)) + backfill(tables.lastKey().plusDays(1), today);
+            }
+            logger.info("Backfilled " + stored + " NBP tables since " + from);
+        } catch (NBApiException | DataAccessException e) {
+            logger.log(Level.WARNING, "Backfill of NBP tables since " + from + " failed", e);
+        }
+    }
+
+    private static double[] toArray(Map<TargetCurrency, Double> midRates) {
+        double[] mids = new double[CURRENCIES.length];
+        Arrays.fill(mids, Double.NaN);
+        midRates.forEach((currency, mid) -> mids[currency.ordinal()] = mid);
+        return mids;
+    }
+
+    private static Map<TargetCurrency, Double> toMap(double[] mids) {
+        Map<TargetCurrency, Double> midRates = new EnumMap<>(TargetCurrency.class);
+        for (TargetCurrency currency : CURRENCIES) {
+            if (!Double.isNaN(mids[currency.ordinal()])) {
+                midRates.put(currency, mids[currency.ordinal()]);
+            }
+        }
+        return midRates;
+    }
+}
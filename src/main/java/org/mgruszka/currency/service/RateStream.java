@@ -0,0 +1,115 @@
+package org.mgruszka.currency.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.mgruszka.currency.model.CrossRateMatrix;
+import org.mgruszka.currency.model.RateTableDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pushes the current NBP rates to any number of subscribers, fed by the fetches {@link RecentExchangeRateService}
+ * makes anyway, so subscribers never cause an upstream call of their own. A table is pushed only when its rates
+ * differ from the last one pushed, and a new subscriber gets the last one right away.
+ * <p>
+ * Each subscriber holds at most two tables it has not been sent yet, the next one and the latest one: a slow
+ * consumer skips the tables it could not keep up with instead of buffering them. Subscribers also get a comment
+ * every heartbeat interval, from one timer shared by all of them, so proxies do not close idle connections.
+ */
+@Service
+public class RateStream {
+
+    private static final Logger logger = Logger.getLogger(RateStream.class.getName());
+
+    static final String EVENT = "rates";
+
+    private final RecentExchangeRateService recentExchangeRateService;
+    private final Sinks.Many<RateTableDTO> latest = Sinks.many().replay().latest();
+    private final Flux<ServerSentEvent<RateTableDTO>> heartbeats;
+    private final AtomicBoolean primed = new AtomicBoolean();
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    /** guarded by this */
+    private RateTableDTO published;
+
+    @Autowired
+    public RateStream(RecentExchangeRateService recentExchangeRateService,
+                      @Value("${rates.stream.heartbeat:PT15S}") Duration heartbeat,
+                      MeterRegistry meterRegistry) {
+        this.recentExchangeRateService = recentExchangeRateService;
+        this.heartbeats = Flux.interval(heartbeat, heartbeat)
+                .map(tick -> ServerSentEvent.<RateTableDTO>builder().comment("heartbeat").build())
+                .share();
+        Gauge.builder("rates.stream.subscribers", subscribers, AtomicInteger::get)
+                .description("Open subscriptions to the rate stream")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the current rates followed by every change, interleaved with heartbeat comments; never completes
+     */
+    public Flux<ServerSentEvent<RateTableDTO>> subscribe() {
+        primeIfNeeded();
+        Flux<ServerSentEvent<RateTableDTO>> rates = latest.asFlux()
+                .onBackpressureLatest()
+                .map(table -> ServerSentEvent.builder(table).event(EVENT).id(table.getEffectiveDate().toString()).build());
+        // a prefetch of one keeps the merge from queueing tables the latest slot would otherwise replace
+        return Flux.merge(1, rates, heartbeats.onBackpressureDrop())
+                .doOnSubscribe(subscription -> subscribers.incrementAndGet())
+                .doFinally(signal -> subscribers.decrementAndGet());
+    }
+
+    @EventListener
+    public void onRateTableFetched(RateTableFetchedEvent event) {
+        publish(event.rates());
+    }
+
+    @EventListener
+    public void onRateTableReceived(RateTableReceivedEvent event) {
+        publish(event.rates());
+    }
+
+    /**
+     * Publishes {@code rates} unless the last published table has the same rates.
+     */
+    synchronized void publish(CrossRateMatrix rates) {
+        if (published != null && published.getRates().equals(rates.getMidRates())) {
+            return;
+        }
+        published = new RateTableDTO(rates.getEffectiveDate(), rates.getMidRates());
+        latest.tryEmitNext(published);
+    }
+
+    int subscriberCount() {
+        return subscribers.get();
+    }
+
+    /**
+     * Publishes the table the rate service already holds when the first subscriber comes before any fetch, e.g.
+     * the one seeded from the rate history at startup.
+     */
+    private void primeIfNeeded() {
+        if (primed.get() || !primed.compareAndSet(false, true)) {
+            return;
+        }
+        recentExchangeRateService.getRatesAsync().whenComplete((rates, failure) -> {
+            if (failure == null) {
+                publish(rates);
+            } else {
+                primed.set(false);
+                logger.log(Level.WARNING, "No rates to start the rate stream with", failure);
+            }
+        });
+    }
+}
@@ -0,0 +1,13 @@
+package org.mgruszka.currency.service;
+
+import org.mgruszka.currency.model.CrossRateMatrix;
+
+import java.time.Instant;
+
+/**
+ * Published by {@link RecentExchangeRateService} after every successful fetch of the current NBP table, only on
+ * the instance that got it from NBP. Instances that take the table the leader shared publish a
+ * {@link RateTableReceivedEvent} instead.
+ */
+public record RateTableFetchedEvent(CrossRateMatrix rates, Instant fetchedAt) {
+}
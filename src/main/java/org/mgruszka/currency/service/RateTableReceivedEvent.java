@@ -0,0 +1,14 @@
+package org.mgruszka.currency.service;
+
+import org.mgruszka.currency.model.CrossRateMatrix;
+
+import java.time.Instant;
+
+/**
+ * Published by {@link RecentExchangeRateService} on an instance that does not hold the rate lease, whenever it
+ * takes a table the leader shared. Unlike {@link RateTableFetchedEvent}, the table is already stored by the leader.
+ *
+ * @param fetchedAt when the leader got the table from NBP
+ */
+public record RateTableReceivedEvent(CrossRateMatrix rates, Instant fetchedAt) {
+}
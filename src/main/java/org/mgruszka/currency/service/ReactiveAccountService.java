@@ -0,0 +1,238 @@
+package org.mgruszka.currency.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.mgruszka.currency.exceptions.AccountNotFoundException;
+import org.mgruszka.currency.exceptions.ImportFailedException;
+import org.mgruszka.currency.exceptions.InvalidAmountException;
+import org.mgruszka.currency.model.Account;
+import org.mgruszka.currency.model.AccountCreationDTO;
+import org.mgruszka.currency.model.AccountDetailsDTO;
+import org.mgruszka.currency.model.AccountIdView;
+import org.mgruszka.currency.model.AccountImportSummaryDTO;
+import org.mgruszka.currency.model.AccountSearchPageDTO;
+import org.mgruszka.currency.model.AccountVersionView;
+import org.mgruszka.currency.model.CrossRateMatrix;
+import org.mgruszka.currency.model.ExchangeOperation;
+import org.mgruszka.currency.model.ExchangeRequestDTO;
+import org.mgruszka.currency.model.ExchangeResultDTO;
+import org.mgruszka.currency.model.ExchangeStatus;
+import org.mgruszka.currency.model.LedgerPageDTO;
+import org.mgruszka.currency.model.Quote;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.mgruszka.currency.repository.ReactiveAccountRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Non-blocking counterpart of {@link AccountService}, used with the {@code reactive} profile. Conversions,
+ * mappings and the account cache are shared, so both variants give the same results.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveAccountService {
+    private final ReactiveAccountRepository accountRepository;
+    private final RecentExchangeRateService recentExchangeRateService;
+    private final AccountCache accountCache;
+    private final ExchangeMetrics exchangeMetrics;
+    private final ExchangeLedger exchangeLedger;
+    private final int importBatchSize;
+
+    @Autowired
+    public ReactiveAccountService(ReactiveAccountRepository accountRepository, RecentExchangeRateService recentExchangeRateService,
+                                  AccountCache accountCache, ExchangeMetrics exchangeMetrics, ExchangeLedger exchangeLedger,
+                                  @Value("${account.import.batch-size:1000}") int importBatchSize) {
+        this.accountRepository = accountRepository;
+        this.recentExchangeRateService = recentExchangeRateService;
+        this.accountCache = accountCache;
+        this.exchangeMetrics = exchangeMetrics;
+        this.exchangeLedger = exchangeLedger;
+        this.importBatchSize = importBatchSize;
+    }
+
+    public Mono<String> createAccount(AccountCreationDTO request) {
+        return Mono.fromCallable(() -> AccountService.toAccount(request, null))
+                .flatMap(accountRepository::save)
+                .doOnNext(created -> accountCache.put(AccountService.toDetails(created)))
+                .map(Account::getId);
+    }
+
+    /**
+     * Inserts records in batches as they arrive, one batch at a time, so a slow database slows down reading
+     * the request body instead of buffering it.
+     */
+    public Mono<AccountImportSummaryDTO> importAccounts(Flux<AccountCreationDTO> records) {
+        String importId = UUID.randomUUID().toString();
+        AtomicLong created = new AtomicLong();
+        return records
+                .map(request -> AccountService.toAccount(request, importId))
+                .buffer(importBatchSize)
+                .concatMapDelayError(batch -> accountRepository.insert(batch).count().doOnNext(created::addAndGet))
+                .then(Mono.fromSupplier(() -> new AccountImportSummaryDTO(importId, created.get())))
+                .onErrorMap(e -> !(e instanceof DataAccessException), e -> importFailed(e, importId, created.get()));
+    }
+
+    public Flux<String> getImportedAccountIds(String importId) {
+        return accountRepository.findByImportId(importId).map(AccountIdView::getId);
+    }
+
+    public Mono<AccountDetailsDTO> exchangeCurrency(String accountId, double amount, TargetCurrency sourceCurrency, TargetCurrency targetCurrency) {
+        return exchangeCurrency(accountId, amount, sourceCurrency, targetCurrency, null);
+    }
+
+    /**
+     * @see AccountService#exchangeCurrency(String, double, TargetCurrency, TargetCurrency, Long)
+     */
+    public Mono<AccountDetailsDTO> exchangeCurrency(String accountId, double amount, TargetCurrency sourceCurrency, TargetCurrency targetCurrency,
+                                                    Long expectedVersion) {
+        return Mono.fromCallable(() -> AccountService.exchangeAmount(amount))
+                .flatMap(amountMinorUnits -> Mono.fromCallable(() -> AccountService.sourceCurrency(sourceCurrency, targetCurrency))
+                        .zipWith(rates())
+                        .flatMap(sourceAndRates -> exchange(accountId, sourceAndRates.getT1(), targetCurrency, amountMinorUnits,
+                                sourceAndRates.getT2().convert(amountMinorUnits, sourceAndRates.getT1(), targetCurrency), expectedVersion)));
+    }
+
+    /**
+     * @see AccountService#exchangeCurrency(String, Quote)
+     */
+    public Mono<AccountDetailsDTO> exchangeCurrency(String accountId, Quote quote) {
+        return exchangeCurrency(accountId, quote, null);
+    }
+
+    /**
+     * @see AccountService#exchangeCurrency(String, Quote, Long)
+     */
+    public Mono<AccountDetailsDTO> exchangeCurrency(String accountId, Quote quote, Long expectedVersion) {
+        return exchange(accountId, quote.sourceCurrency(), quote.targetCurrency(), quote.amount(), quote.convertedAmount(), expectedVersion);
+    }
+
+    private Mono<AccountDetailsDTO> exchange(String accountId, TargetCurrency sourceCurrency, TargetCurrency targetCurrency,
+                                             long amount, long convertedAmount, Long expectedVersion) {
+        Mono<Account> exchanged = expectedVersion == null
+                ? accountRepository.exchange(accountId, sourceCurrency, targetCurrency, amount, convertedAmount)
+                : accountRepository.exchange(accountId, sourceCurrency, targetCurrency, amount, convertedAmount, expectedVersion);
+        return exchanged
+                .switchIfEmpty(Mono.defer(() -> failureStatus(accountId, expectedVersion)
+                        .flatMap(status -> {
+                            exchangeMetrics.record(targetCurrency, status);
+                            return Mono.error(AccountService.failure(status));
+                        })))
+                .doOnNext(account -> {
+                    exchangeMetrics.record(targetCurrency, ExchangeStatus.SUCCESS);
+                    accountCache.invalidate(accountId);
+                })
+                .flatMap(account -> record(List.of(new ExchangeOperation(accountId, sourceCurrency, targetCurrency, amount, convertedAmount)))
+                        .thenReturn(AccountService.toDetails(account)));
+    }
+
+    public Mono<List<ExchangeResultDTO>> exchangeCurrencyBatch(List<ExchangeRequestDTO> requests) {
+        return rates()
+                .map(rates -> AccountService.toOperations(requests, rates))
+                .flatMap(operations -> accountRepository.bulkExchange(operations)
+                        .doOnNext(statuses -> {
+                            accountCache.invalidateAll(operations.stream().map(ExchangeOperation::accountId).toList());
+                            for (int i = 0; i < operations.size(); i++) {
+                                exchangeMetrics.record(operations.get(i).targetCurrency(), statuses.get(i));
+                            }
+                        })
+                        .flatMap(statuses -> record(AccountService.applied(operations, statuses))
+                                .thenReturn(AccountService.toResults(operations, statuses))));
+    }
+
+    /**
+     * @see AccountService#exchangeCurrency(String, double, TargetCurrency, TargetCurrency, Long)
+     */
+    private Mono<ExchangeStatus> failureStatus(String accountId, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return accountRepository.existsById(accountId)
+                    .map(exists -> exists ? ExchangeStatus.INSUFFICIENT_FUNDS : ExchangeStatus.ACCOUNT_NOT_FOUND);
+        }
+        return accountRepository.findVersionById(accountId)
+                .map(current -> current.version() == expectedVersion ? ExchangeStatus.INSUFFICIENT_FUNDS : ExchangeStatus.VERSION_MISMATCH)
+                .defaultIfEmpty(ExchangeStatus.ACCOUNT_NOT_FOUND);
+    }
+
+    /**
+     * @see AccountService#searchAccounts(String, String, String, int)
+     */
+    public Mono<AccountSearchPageDTO> searchAccounts(String lastName, String firstName, String cursor, int limit) {
+        int pageSize = AccountService.searchPageSize(limit);
+        return Mono.defer(() -> accountRepository.searchByName(lastName, firstName, AccountService.decodeSearchCursor(cursor), pageSize + 1)
+                .collectList()
+                .map(accounts -> AccountService.toSearchPage(accounts, pageSize)));
+    }
+
+    /**
+     * @see AccountService#getHistory(String, String, int)
+     */
+    public Mono<LedgerPageDTO> getHistory(String accountId, String cursor, int limit) {
+        return Mono.fromCallable(() -> exchangeLedger.getHistory(accountId, cursor, limit))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Queues ledger entries on the calling thread and only moves to a thread that may block when they have to
+     * be inserted right away.
+     */
+    private Mono<Void> record(List<ExchangeOperation> operations) {
+        if (exchangeLedger.enqueue(operations)) {
+            return Mono.empty();
+        }
+        return Mono.<Void>fromRunnable(() -> exchangeLedger.write(operations))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * @see AccountService#getAccountVersion(String)
+     */
+    public Mono<Long> getAccountVersion(String accountId) {
+        return Mono.defer(() -> {
+            AccountDetailsDTO cached = accountCache.getIfPresent(accountId);
+            if (cached != null) {
+                return Mono.just(cached.getVersion());
+            }
+            return accountRepository.findVersionById(accountId)
+                    .map(AccountVersionView::version)
+                    .switchIfEmpty(Mono.error(AccountNotFoundException.INSTANCE));
+        });
+    }
+
+    public Mono<AccountDetailsDTO> getAccount(String accountId) {
+        // a cancelled request must not cancel a load other requests are waiting for
+        return Mono.fromFuture(() -> accountCache.getAsync(accountId, id -> accountRepository.findById(id)
+                .map(AccountService::toDetails)
+                .switchIfEmpty(Mono.error(AccountNotFoundException.INSTANCE))
+                .toFuture()), true);
+    }
+
+    private Mono<CrossRateMatrix> rates() {
+        return Mono.fromFuture(recentExchangeRateService::getRatesAsync, true);
+    }
+
+    private static ImportFailedException importFailed(Throwable failure, String importId, long created) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ImportFailedException importFailedException) {
+                return importFailedException;
+            }
+            if (cause instanceof JsonProcessingException jsonException) {
+                return new ImportFailedException("Invalid account record: " + jsonException.getOriginalMessage()
+                        + ". " + created + " accounts were created with import id " + importId);
+            }
+            if (cause instanceof InvalidAmountException amountException) {
+                return new ImportFailedException("Invalid account record: " + amountException.getMessage()
+                        + ". " + created + " accounts were created with import id " + importId);
+            }
+        }
+        return new ImportFailedException("Failed to read account records. "
+                + created + " accounts were created with import id " + importId);
+    }
+}
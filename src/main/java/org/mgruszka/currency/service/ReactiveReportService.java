@@ -0,0 +1,60 @@
+package org.mgruszka.currency.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.mgruszka.currency.model.BalanceBucketDTO;
+import org.mgruszka.currency.model.BalanceTotalsDTO;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.mgruszka.currency.repository.ReactiveAccountRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Non-blocking counterpart of {@link ReportService}, used with the {@code reactive} profile. Export rows are
+ * requested from the cursor only as fast as the client reads them.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveReportService {
+    private final ReactiveAccountRepository accountRepository;
+    private final ObjectWriter detailsWriter;
+
+    @Autowired
+    public ReactiveReportService(ReactiveAccountRepository accountRepository, ObjectMapper objectMapper) {
+        this.accountRepository = accountRepository;
+        this.detailsWriter = objectMapper.writer();
+    }
+
+    /**
+     * @see ReportService#exportCsv(java.io.Writer)
+     */
+    public Flux<String> exportCsv() {
+        return Flux.concat(Mono.just(ReportService.CSV_HEADER), accountRepository.findAll().map(ReportService::toCsv));
+    }
+
+    /**
+     * @see ReportService#exportNdjson(java.io.Writer)
+     */
+    public Flux<String> exportNdjson() {
+        return accountRepository.findAll().map(account -> ReportService.toNdjson(detailsWriter, account));
+    }
+
+    public Mono<BalanceTotalsDTO> getTotals() {
+        return accountRepository.sumBalances().map(ReportService::toDTO);
+    }
+
+    /**
+     * @see ReportService#getDistribution(TargetCurrency, List)
+     */
+    public Mono<List<BalanceBucketDTO>> getDistribution(TargetCurrency currency, List<Double> thresholds) {
+        long[] boundaries = ReportService.boundaries(thresholds);
+        return accountRepository.balanceDistribution(currency, boundaries)
+                .collectList()
+                .map(buckets -> ReportService.toDTOs(boundaries, buckets));
+    }
+}
@@ -1,49 +1,227 @@
 package org.mgruszka.currency.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.mgruszka.currency.client.NbpClient;
 import org.mgruszka.currency.exceptions.NBApiException;
-import org.springframework.http.HttpStatus;
+import org.mgruszka.currency.model.CrossRateMatrix;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+/**
+ * Keeps the cross-rate matrix of the most recent NBP table A in memory. The table is refreshed in the
+ * background and swapped atomically, concurrent misses share a single upstream call and the last good
+ * table is served while NBP is slow or unavailable, as long as it is not older than the configured
+ * staleness limit. With {@code nbp.rate.sharing=mongo} the table is fetched once for all instances, see
+ * {@link SharedRates}.
+ */
 @Service
 public class RecentExchangeRateService {
 
-    private static final String API_URL = "https://api.nbp.pl/api/exchangerates/rates/A/USD/";
-
-    public double getUSDExchangeRate() {
-
-        try (HttpClient client = HttpClient.newHttpClient()) {
-
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(String.format(API_URL)))
-                    .build();
-            try {
-                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-                if (response.statusCode() != HttpStatus.OK.value()) {
-                    throw new NBApiException("Failed to fetch data from API. HTTP Status Code: " + response.statusCode());
-                }
-                ObjectMapper objectMapper = new ObjectMapper();
-                JsonNode responseJson = objectMapper.readTree(response.body());
-
-                JsonNode rates = responseJson.path("rates");
-                if (rates.isArray() && !rates.isEmpty()) {
-                    JsonNode rate = rates.get(0);
-                    return rate.path("mid").asDouble();
-                } else {
-                    throw new NBApiException("Invalid response format. Unable to extract exchange rate.");
-                }
-            } catch (InterruptedException | IOException e) {
-                throw new NBApiException("Error during http request to NBP API.");
+    private static final Logger logger = Logger.getLogger(RecentExchangeRateService.class.getName());
+
+    private final NbpClient nbpClient;
+    private final Duration ttl;
+    private final Duration maxStaleness;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+    /** null when every instance fetches from NBP on its own */
+    private final SharedRates sharedRates;
+    private final Timer freshLookups;
+    private final Timer staleLookups;
+    private final Timer upstreamLookups;
+    private final Timer failedLookups;
+
+    private final AtomicReference<CachedRates> cachedRates = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<CachedRates>> inFlight = new AtomicReference<>();
+
+    @Autowired
+    public RecentExchangeRateService(NbpClient nbpClient,
+                                     @Value("${nbp.rate.ttl:PT30M}") Duration ttl,
+                                     @Value("${nbp.rate.max-staleness:PT24H}") Duration maxStaleness,
+                                     MeterRegistry meterRegistry,
+                                     ApplicationEventPublisher eventPublisher,
+                                     Optional<SharedRates> sharedRates) {
+        this(nbpClient, ttl, maxStaleness, meterRegistry, eventPublisher, Clock.systemUTC(), sharedRates.orElse(null));
+    }
+
+    RecentExchangeRateService(NbpClient nbpClient, Duration ttl, Duration maxStaleness, MeterRegistry meterRegistry,
+                              ApplicationEventPublisher eventPublisher, Clock clock) {
+        this(nbpClient, ttl, maxStaleness, meterRegistry, eventPublisher, clock, null);
+    }
+
+    RecentExchangeRateService(NbpClient nbpClient, Duration ttl, Duration maxStaleness, MeterRegistry meterRegistry,
+                              ApplicationEventPublisher eventPublisher, Clock clock, SharedRates sharedRates) {
+        this.nbpClient = nbpClient;
+        this.ttl = ttl;
+        this.maxStaleness = maxStaleness;
+        this.clock = clock;
+        this.meterRegistry = meterRegistry;
+        this.eventPublisher = eventPublisher;
+        this.sharedRates = sharedRates;
+        this.freshLookups = lookupTimer(meterRegistry, "fresh");
+        this.staleLookups = lookupTimer(meterRegistry, "stale");
+        this.upstreamLookups = lookupTimer(meterRegistry, "nbp");
+        this.failedLookups = lookupTimer(meterRegistry, "failed");
+        Gauge.builder("currency.rate.age", this, RecentExchangeRateService::rateAgeSeconds)
+                .description("Age of the cached rate table, NaN before the first successful fetch")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    private static Timer lookupTimer(MeterRegistry meterRegistry, String source) {
+        return Timer.builder("currency.rate.lookup")
+                .description("Time to get the rate table, by where it came from")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    public CrossRateMatrix getRates() {
+        try {
+            return getRatesAsync().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof NBApiException nbApiException) {
+                throw nbApiException;
+            }
+            throw new NBApiException("Error during http request to NBP API.");
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #getRates()}. The returned future is already completed
+     * whenever the cached table can be served.
+     */
+    public CompletableFuture<CrossRateMatrix> getRatesAsync() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CachedRates rates = cachedRates.get();
+        if (rates != null) {
+            Duration age = rates.age(clock.instant());
+            if (age.compareTo(ttl) <= 0) {
+                sample.stop(freshLookups);
+                return CompletableFuture.completedFuture(rates.rates());
+            }
+            if (age.compareTo(maxStaleness) <= 0) {
+                // serve the stale value right away and let the refresh happen in the background
+                refresh();
+                sample.stop(staleLookups);
+                return CompletableFuture.completedFuture(rates.rates());
+            }
+        }
+        return refresh()
+                .whenComplete((fresh, failure) -> sample.stop(failure == null ? upstreamLookups : failedLookups))
+                .thenApply(CachedRates::rates);
+    }
+
+    /**
+     * Serves {@code rates} until the first fetch completes, e.g. a table loaded from the rate history at startup.
+     * Has no effect once a table was fetched. The usual ttl and staleness limit apply to {@code fetchedAt}.
+     */
+    public void seed(CrossRateMatrix rates, Instant fetchedAt) {
+        cachedRates.compareAndSet(null, new CachedRates(rates, fetchedAt, false));
+    }
+
+    private double rateAgeSeconds() {
+        CachedRates rates = cachedRates.get();
+        return rates == null ? Double.NaN : rates.age(clock.instant()).toMillis() / 1000.0;
+    }
+
+    @Scheduled(fixedDelayString = "${nbp.rate.refresh-interval:PT10M}")
+    public void scheduledRefresh() {
+        try {
+            refresh().join();
+        } catch (CompletionException e) {
+            logger.log(Level.WARNING, "Scheduled refresh of exchange rates failed", e.getCause());
+        }
+    }
+
+    /**
+     * Starts an upstream fetch unless one is already running, in which case the running one is returned.
+     */
+    CompletableFuture<CachedRates> refresh() {
+        while (true) {
+            CompletableFuture<CachedRates> running = inFlight.get();
+            if (running != null) {
+                return running;
+            }
+            CompletableFuture<CachedRates> refresh = new CompletableFuture<>();
+            if (inFlight.compareAndSet(null, refresh)) {
+                fetch().whenComplete((fresh, failure) -> {
+                    if (failure == null && fresh.fetchedHere()) {
+                        cachedRates.set(fresh);
+                        inFlight.set(null);
+                        refresh.complete(fresh);
+                        // only the leader stores the table in the rate history
+                        eventPublisher.publishEvent(new RateTableFetchedEvent(fresh.rates(), fresh.fetchedAt()));
+                    } else if (failure == null) {
+                        // the watcher may have served a newer table while this one was read
+                        boolean newer = replaceIfNewer(fresh);
+                        inFlight.set(null);
+                        refresh.complete(cachedRates.get());
+                        if (newer) {
+                            eventPublisher.publishEvent(new RateTableReceivedEvent(fresh.rates(), fresh.fetchedAt()));
+                        }
+                    } else {
+                        inFlight.set(null);
+                        refresh.completeExceptionally(failure);
+                    }
+                });
+                return refresh;
             }
         }
+    }
 
+    private CompletableFuture<CachedRates> fetch() {
+        if (sharedRates != null) {
+            return sharedRates.fetch(nbpClient::getRateTableAsync);
+        }
+        return nbpClient.getRateTableAsync().thenApply(table -> new CachedRates(table, clock.instant(), true));
+    }
+
+    /**
+     * Serves {@code shared}, a table the leader just shared, right away instead of on the next refresh, unless the
+     * cached table is at least as recent.
+     */
+    void accept(CachedRates shared) {
+        if (replaceIfNewer(shared)) {
+            eventPublisher.publishEvent(new RateTableReceivedEvent(shared.rates(), shared.fetchedAt()));
+        }
+    }
 
+    /**
+     * @return false when the cached table was fetched at the same time as {@code shared} or later
+     */
+    private boolean replaceIfNewer(CachedRates shared) {
+        CachedRates current;
+        do {
+            current = cachedRates.get();
+            if (current != null && !shared.fetchedAt().isAfter(current.fetchedAt())) {
+                return false;
+            }
+        } while (!cachedRates.compareAndSet(current, shared));
+        return true;
+    }
+
+    /**
+     * @param fetchedHere true when this instance got the table from NBP, false when another instance shared it
+     */
+    record CachedRates(CrossRateMatrix rates, Instant fetchedAt, boolean fetchedHere) {
+        Duration age(Instant now) {
+            return Duration.between(fetchedAt, now);
+        }
     }
 }
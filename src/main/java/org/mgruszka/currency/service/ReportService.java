@@ -0,0 +1,163 @@
+package org.mgruszka.currency.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.mgruszka.currency.model.Account;
+import org.mgruszka.currency.model.BalanceBucket;
+import org.mgruszka.currency.model.BalanceBucketDTO;
+import org.mgruszka.currency.model.BalanceTotals;
+import org.mgruszka.currency.model.BalanceTotalsDTO;
+import org.mgruszka.currency.model.Money;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.mgruszka.currency.repository.AccountRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Account exports and aggregate reports. Exports are written while the accounts are read from one MongoDB cursor,
+ * so memory use does not depend on the number of accounts, and reports are computed by aggregation pipelines.
+ */
+@Service
+public class ReportService {
+
+    private static final TargetCurrency[] CURRENCIES = TargetCurrency.values();
+
+    static final String CSV_HEADER = csvHeader();
+
+    private final AccountRepository accountRepository;
+    private final ObjectWriter detailsWriter;
+
+    @Autowired
+    public ReportService(AccountRepository accountRepository, ObjectMapper objectMapper) {
+        this.accountRepository = accountRepository;
+        this.detailsWriter = objectMapper.writer();
+    }
+
+    /**
+     * Writes all accounts, one row per account and one column per currency, balances as exact decimals.
+     */
+    public void exportCsv(Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        try (Stream<Account> accounts = accountRepository.streamAllBy()) {
+            Iterator<Account> iterator = accounts.iterator();
+            while (iterator.hasNext()) {
+                writer.write(toCsv(iterator.next()));
+            }
+        }
+    }
+
+    /**
+     * Writes all accounts as newline delimited {@link org.mgruszka.currency.model.AccountDetailsDTO} records.
+     */
+    public void exportNdjson(Writer writer) throws IOException {
+        try (Stream<Account> accounts = accountRepository.streamAllBy()) {
+            Iterator<Account> iterator = accounts.iterator();
+            while (iterator.hasNext()) {
+                writer.write(toNdjson(detailsWriter, iterator.next()));
+            }
+        }
+    }
+
+    public BalanceTotalsDTO getTotals() {
+        return toDTO(accountRepository.sumBalances());
+    }
+
+    /**
+     * @param thresholds upper bounds of all but the last bucket in major units, the first bucket starts at zero
+     */
+    public List<BalanceBucketDTO> getDistribution(TargetCurrency currency, List<Double> thresholds) {
+        long[] boundaries = boundaries(thresholds);
+        return toDTOs(boundaries, accountRepository.balanceDistribution(currency, boundaries));
+    }
+
+    static String toCsv(Account account) {
+        StringBuilder row = new StringBuilder(64 + CURRENCIES.length * 8);
+        row.append(csvField(account.getId())).append(',')
+                .append(csvField(account.getFirstName())).append(',')
+                .append(csvField(account.getLastName()));
+        for (TargetCurrency currency : CURRENCIES) {
+            row.append(',').append(Money.toDecimalString(account.getBalance(currency)));
+        }
+        return row.append('\n').toString();
+    }
+
+    static String toNdjson(ObjectWriter detailsWriter, Account account) {
+        try {
+            return detailsWriter.writeValueAsString(AccountService.toDetails(account)) + '\n';
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static BalanceTotalsDTO toDTO(BalanceTotals totals) {
+        Map<TargetCurrency, Double> majorUnits = new EnumMap<>(TargetCurrency.class);
+        for (TargetCurrency currency : CURRENCIES) {
+            Long total = totals.totals().get(currency);
+            majorUnits.put(currency, Money.toMajorUnits(total != null ? total : 0));
+        }
+        return new BalanceTotalsDTO(totals.accounts(), majorUnits);
+    }
+
+    /**
+     * Sorts thresholds and drops duplicates and the ones not above zero, so every list gives valid boundaries.
+     *
+     * @return lower bounds of the buckets in minor units, starting with zero
+     */
+    static long[] boundaries(List<Double> thresholds) {
+        return LongStream.concat(LongStream.of(0), thresholds.stream().mapToLong(Money::toMinorUnits).filter(threshold -> threshold > 0))
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    /**
+     * @return every bucket in ascending order, including the empty ones MongoDB leaves out
+     */
+    static List<BalanceBucketDTO> toDTOs(long[] boundaries, List<BalanceBucket> buckets) {
+        List<BalanceBucketDTO> result = new ArrayList<>(boundaries.length);
+        int next = 0;
+        for (int i = 0; i < boundaries.length; i++) {
+            Double to = i + 1 < boundaries.length ? Money.toMajorUnits(boundaries[i + 1]) : null;
+            BalanceBucket bucket = next < buckets.size() && buckets.get(next).lowerBound() == boundaries[i] ? buckets.get(next++) : null;
+            result.add(new BalanceBucketDTO(Money.toMajorUnits(boundaries[i]), to,
+                    bucket != null ? bucket.accounts() : 0, bucket != null ? Money.toMajorUnits(bucket.total()) : 0));
+        }
+        return result;
+    }
+
+    private static String csvHeader() {
+        StringBuilder header = new StringBuilder("id,firstName,lastName");
+        for (TargetCurrency currency : CURRENCIES) {
+            header.append(',').append(currency.name());
+        }
+        return header.append('\n').toString();
+    }
+
+    /**
+     * Quotes a value containing a separator, quote or line break, doubling the quotes inside (RFC 4180).
+     */
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+        }
+        return value;
+    }
+}
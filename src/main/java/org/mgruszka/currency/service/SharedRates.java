@@ -0,0 +1,145 @@
+package org.mgruszka.currency.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.mgruszka.currency.exceptions.NBApiException;
+import org.mgruszka.currency.model.CrossRateMatrix;
+import org.mgruszka.currency.model.SharedRateTable;
+import org.mgruszka.currency.repository.Leases;
+import org.mgruszka.currency.service.RecentExchangeRateService.CachedRates;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Shares one NBP fetch between all instances. Whenever {@link RecentExchangeRateService} refreshes, the instance
+ * tries to take or renew the rate lease: the holder, the leader, fetches the table from NBP and writes it to the
+ * {@code shared_rates} collection, every other instance reads the table from there. With the lease longer than
+ * {@code nbp.rate.refresh-interval} the leader keeps it as long as it runs, so NBP gets one call per refresh
+ * interval however many instances there are, and all of them price with the table the leader fetched. When the
+ * leader stops, another instance takes over on its first refresh after the lease expired.
+ * <p>
+ * Only the leader publishes a {@link RateTableFetchedEvent}, so the table is stored in the rate history once.
+ * With {@code nbp.rate.sharing.watch=change-stream} the other instances get a new table as soon as the leader
+ * shares it, see {@link SharedRatesWatcher}, instead of on their next refresh.
+ */
+@Component
+@ConditionalOnProperty(name = "nbp.rate.sharing", havingValue = "mongo")
+public class SharedRates implements DisposableBean {
+
+    private static final Logger logger = Logger.getLogger(SharedRates.class.getName());
+
+    static final String LEASE = "nbp-rate-fetch";
+    static final String TABLE = "nbp-table-a";
+
+    private final Leases leases;
+    private final MongoTemplate mongoTemplate;
+    private final String instanceId;
+    private final Duration leaseDuration;
+    private final Clock clock;
+    /** lease and table access block on MongoDB, refreshes are asynchronous */
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private volatile boolean leader;
+
+    @Autowired
+    public SharedRates(Leases leases, MongoTemplate mongoTemplate,
+                       @Value("${nbp.rate.sharing.instance-id:}") String instanceId,
+                       @Value("${nbp.rate.sharing.lease:PT15M}") Duration leaseDuration,
+                       MeterRegistry meterRegistry) {
+        this(leases, mongoTemplate, instanceId, leaseDuration, meterRegistry, Clock.systemUTC());
+    }
+
+    SharedRates(Leases leases, MongoTemplate mongoTemplate, String instanceId, Duration leaseDuration,
+                MeterRegistry meterRegistry, Clock clock) {
+        this.leases = leases;
+        this.mongoTemplate = mongoTemplate;
+        this.instanceId = instanceId.isBlank() ? UUID.randomUUID().toString() : instanceId;
+        this.leaseDuration = leaseDuration;
+        this.clock = clock;
+        Gauge.builder("currency.rate.leader", this, shared -> shared.leader ? 1 : 0)
+                .description("1 when this instance fetches rates from NBP for all instances")
+                .register(meterRegistry);
+        logger.info("Sharing NBP rates through MongoDB as instance " + this.instanceId);
+    }
+
+    /**
+     * Gets the current table from {@code upstream} and shares it when this instance holds the rate lease, otherwise
+     * reads the table the leader shared.
+     */
+    CompletableFuture<CachedRates> fetch(Supplier<CompletableFuture<CrossRateMatrix>> upstream) {
+        return CompletableFuture.supplyAsync(() -> leases.tryAcquire(LEASE, instanceId, leaseDuration), executor)
+                .thenCompose(acquired -> {
+                    if (acquired != leader) {
+                        logger.info(acquired ? "Took over fetching NBP rates for all instances" : "Another instance fetches NBP rates now");
+                        leader = acquired;
+                    }
+                    return acquired
+                            ? upstream.get().thenApplyAsync(this::share, executor)
+                            : CompletableFuture.supplyAsync(this::read, executor);
+                });
+    }
+
+    boolean isLeader() {
+        return leader;
+    }
+
+    private CachedRates share(CrossRateMatrix rates) {
+        CachedRates fetched = new CachedRates(rates, clock.instant(), true);
+        try {
+            mongoTemplate.save(new SharedRateTable(TABLE, rates.getEffectiveDate(), rates.getMidRates(), fetched.fetchedAt(), instanceId));
+        } catch (DataAccessException e) {
+            // this instance can still price with the table, the others keep theirs until the next refresh
+            logger.log(Level.WARNING, "Failed to share NBP table from " + rates.getEffectiveDate(), e);
+        }
+        return fetched;
+    }
+
+    private CachedRates read() {
+        SharedRateTable table = mongoTemplate.findById(TABLE, SharedRateTable.class);
+        if (table == null) {
+            throw new NBApiException("No NBP table was shared by the leader instance yet.");
+        }
+        return toCachedRates(table);
+    }
+
+    /**
+     * @return whether this instance shared {@code table}
+     */
+    boolean sharedHere(SharedRateTable table) {
+        return instanceId.equals(table.getFetchedBy());
+    }
+
+    static CachedRates toCachedRates(SharedRateTable table) {
+        return new CachedRates(CrossRateMatrix.of(table.getEffectiveDate(), table.getMidRates()), table.getFetchedAt(), false);
+    }
+
+    /**
+     * Gives up the lease on shutdown, so another instance can take over on its next refresh.
+     */
+    @Override
+    public void destroy() {
+        executor.close();
+        if (leader) {
+            try {
+                leases.release(LEASE, instanceId);
+            } catch (DataAccessException e) {
+                logger.log(Level.WARNING, "Failed to release the rate lease, it expires in " + leaseDuration, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.mgruszka.currency.service;
+
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import org.bson.Document;
+import org.mgruszka.currency.model.SharedRateTable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hands a table the leader shares to {@link RecentExchangeRateService} as soon as it is written, by watching the
+ * {@code shared_rates} collection with a change stream, so instances that do not hold the rate lease price with
+ * it right away instead of on their next refresh. Change streams need MongoDB running as a replica set.
+ */
+@Component
+@ConditionalOnExpression("'${nbp.rate.sharing:local}' == 'mongo' and '${nbp.rate.sharing.watch:poll}' == 'change-stream'")
+public class SharedRatesWatcher implements SmartLifecycle {
+
+    private static final Logger logger = Logger.getLogger(SharedRatesWatcher.class.getName());
+
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final SharedRates sharedRates;
+    private final RecentExchangeRateService recentExchangeRateService;
+
+    private volatile boolean running;
+    private volatile MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+    private Thread watcher;
+
+    public SharedRatesWatcher(MongoTemplate mongoTemplate, SharedRates sharedRates, RecentExchangeRateService recentExchangeRateService) {
+        this.mongoTemplate = mongoTemplate;
+        this.sharedRates = sharedRates;
+        this.recentExchangeRateService = recentExchangeRateService;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        watcher = Thread.ofPlatform().daemon().name("shared-rates-watcher").start(this::watch);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> current = cursor;
+        if (current != null) {
+            current.close();
+        }
+        watcher.interrupt();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void watch() {
+        while (running) {
+            try {
+                cursor = mongoTemplate.getCollection(mongoTemplate.getCollectionName(SharedRateTable.class))
+                        .watch(List.of(Aggregates.match(Filters.and(
+                                Filters.in("operationType", "insert", "update", "replace"),
+                                Filters.eq("documentKey._id", SharedRates.TABLE)))))
+                        .fullDocument(FullDocument.UPDATE_LOOKUP)
+                        .cursor();
+                while (running) {
+                    received(cursor.next().getFullDocument());
+                }
+            } catch (RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                // a table missed until the stream is opened again is still read on the next refresh
+                logger.log(Level.WARNING, "Shared rates change stream failed, reconnecting", e);
+                try {
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    void received(Document document) {
+        if (document == null) {
+            return;
+        }
+        SharedRateTable table = mongoTemplate.getConverter().read(SharedRateTable.class, document);
+        if (!sharedRates.sharedHere(table)) {
+            recentExchangeRateService.accept(SharedRates.toCachedRates(table));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.mgruszka.currency.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private long now = TimeUnit.HOURS.toNanos(1);
+
+    @Test
+    void whenAccountBurstIsUsedThenExchangeShouldBeRejectedUntilTokenRefills() {
+        // Arrange
+        AdmissionControl admissionControl = admissionControl(new AdaptiveConcurrencyLimiter(100, 10, 1000, 0.2));
+
+        // Act
+        Admission first = admissionControl.tryAdmitExchange("account");
+        Admission second = admissionControl.tryAdmitExchange("account");
+        Admission third = admissionControl.tryAdmitExchange("account");
+        Admission otherAccount = admissionControl.tryAdmitExchange("other");
+        now += TimeUnit.MILLISECONDS.toNanos(500);
+        Admission afterRefill = admissionControl.tryAdmitExchange("account");
+
+        // Assert
+        assertTrue(first.isAdmitted());
+        assertTrue(second.isAdmitted());
+        assertEquals(AdmissionControl.ACCOUNT_RATE, third.rejectedBy());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), third.retryAfterNanos());
+        assertEquals(1, third.retryAfterSeconds());
+        assertTrue(otherAccount.isAdmitted());
+        assertTrue(afterRefill.isAdmitted());
+        assertEquals(1.0, meterRegistry.get("admission.rejected").tag("limit", AdmissionControl.ACCOUNT_RATE).counter().count());
+    }
+
+    @Test
+    void whenWritesSaturateConcurrencyThenReservedReadsShouldStillBeAdmitted() {
+        // Arrange
+        AdmissionControl admissionControl = admissionControl(new AdaptiveConcurrencyLimiter(10, 10, 10, 0.2));
+        for (int i = 0; i < 8; i++) {
+            assertTrue(admissionControl.tryAdmit("POST", "/api/accounts/batch/exchange").isAdmitted());
+        }
+
+        // Act
+        Admission write = admissionControl.tryAdmit("POST", "/api/accounts/batch/exchange");
+        Admission read = admissionControl.tryAdmit("GET", "/api/accounts/account");
+
+        // Assert
+        assertEquals(AdmissionControl.CONCURRENCY, write.rejectedBy());
+        assertTrue(read.isAdmitted());
+        assertNull(admissionControl.tryAdmit("GET", "/api/accounts/search"));
+        assertNull(admissionControl.tryAdmit("GET", "/api/accounts/account/history"));
+        assertNull(admissionControl.tryAdmit("POST", "/api/accounts"));
+    }
+
+    @Test
+    void whenLatencyRisesThenConcurrencyLimitShouldShrink() {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(100, 10, 1000, 0.2);
+        long fast = TimeUnit.MILLISECONDS.toNanos(5);
+        long slow = TimeUnit.MILLISECONDS.toNanos(50);
+
+        // Act
+        int grown = runSaturated(limiter, fast, 2000);
+        int shrunk = runSaturated(limiter, slow, 100);
+
+        // Assert
+        assertTrue(grown > 100, "limit " + grown);
+        assertTrue(shrunk < grown / 2, "limit " + shrunk + " after " + grown);
+    }
+
+    /**
+     * Keeps the whole limit in use and completes requests of the given latency one by one.
+     *
+     * @return limit after the last sample
+     */
+    private static int runSaturated(AdaptiveConcurrencyLimiter limiter, long latencyNanos, int samples) {
+        while (limiter.tryAcquire(AdaptiveConcurrencyLimiter.Priority.READ)) {
+            // fill up to the limit
+        }
+        for (int i = 0; i < samples; i++) {
+            limiter.release(latencyNanos);
+            while (limiter.tryAcquire(AdaptiveConcurrencyLimiter.Priority.READ)) {
+                // replace the completed request and take up any new room
+            }
+        }
+        return limiter.getLimit();
+    }
+
+    private AdmissionControl admissionControl(AdaptiveConcurrencyLimiter limiter) {
+        return new AdmissionControl(2, 2, 1000, 1000, limiter, meterRegistry, () -> now);
+    }
+}
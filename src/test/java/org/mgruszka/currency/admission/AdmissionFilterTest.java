@@ -0,0 +1,52 @@
+package org.mgruszka.currency.admission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.mgruszka.currency.model.AccountCreationDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {"admission.account.rate=0.01", "admission.account.burst=1"})
+class AdmissionFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void whenAccountExceedsExchangeRateThenShouldReturnTooManyRequestsAndStillServeReads() throws Exception {
+        String accountId = mockMvc.perform(post("/api/accounts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AccountCreationDTO("John", "Doe", 1000.0))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        mockMvc.perform(post("/api/accounts/{accountId}/exchange", accountId)
+                        .param("amount", "10")
+                        .param("targetCurrency", "USD"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/accounts/{accountId}/exchange", accountId)
+                        .param("amount", "10")
+                        .param("targetCurrency", "USD"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "100"));
+
+        mockMvc.perform(get("/api/accounts/{accountId}", accountId))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,164 @@
+package org.mgruszka.currency.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mgruszka.currency.exceptions.NBApiException;
+import org.mgruszka.currency.model.CrossRateMatrix;
+import org.mgruszka.currency.model.TargetCurrency;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NbpClientTest {
+
+    private static final String RATE_TABLE_RESPONSE = """
+            [{"table":"A","no":"001/A/NBP/2025","effectiveDate":"2025-01-02",
+              "rates":[{"currency":"dolar amerykański","code":"USD","mid":4.1012},
+                       {"currency":"euro","code":"EUR","mid":4.2730},
+                       {"currency":"nieznana","code":"XXX","mid":1.0}]}]
+            """;
+
+    private final AtomicInteger hits = new AtomicInteger();
+
+    private HttpServer server;
+
+    private volatile int status = 200;
+
+    private volatile long delayMillis;
+
+    private volatile String lastPath;
+
+    @BeforeEach
+    void startStubServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/exchangerates/tables/A/", exchange -> {
+            hits.incrementAndGet();
+            lastPath = exchange.getRequestURI().getPath();
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = RATE_TABLE_RESPONSE.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopStubServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void shouldBuildCrossRatesFromWholeNbpTable() {
+        // Arrange
+        NbpClient client = client(5);
+
+        // Act
+        CrossRateMatrix rates = client.getRateTable();
+
+        // Assert
+        assertEquals(LocalDate.of(2025, 1, 2), rates.getEffectiveDate());
+        assertEquals(4.1012, rates.getMidRates().get(TargetCurrency.USD));
+        assertEquals(410_120_000L, rates.rate(TargetCurrency.USD, TargetCurrency.PLN));
+        assertEquals(104_189_017L, rates.rate(TargetCurrency.EUR, TargetCurrency.USD)); // 4.2730 / 4.1012, rounded down
+        assertFalse(rates.supports(TargetCurrency.GBP));
+        assertEquals(1, hits.get());
+    }
+
+    @Test
+    void shouldReturnRateTableFromAsyncVariant() {
+        // Arrange
+        NbpClient client = client(5);
+
+        // Act
+        CrossRateMatrix rates = client.getRateTableAsync().join();
+
+        // Assert
+        assertEquals(4.1012, rates.getMidRates().get(TargetCurrency.USD));
+    }
+
+    @Test
+    void shouldFetchTablesOfDateRange() {
+        // Arrange
+        NbpClient client = client(5);
+
+        // Act
+        List<CrossRateMatrix> tables = client.getRateTables(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31));
+
+        // Assert
+        assertEquals("/api/exchangerates/tables/A/2025-01-01/2025-01-31/", lastPath);
+        assertEquals(1, tables.size());
+        assertEquals(LocalDate.of(2025, 1, 2), tables.get(0).getEffectiveDate());
+        assertThrows(IllegalArgumentException.class, () -> client.getRateTables(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 4, 4)));
+    }
+
+    @Test
+    void shouldReturnNoTablesWhenRangeHasNone() {
+        // Arrange
+        status = 404;
+        NbpClient client = client(5);
+
+        // Act & Assert
+        assertTrue(client.getRateTables(LocalDate.of(2025, 1, 4), LocalDate.of(2025, 1, 5)).isEmpty());
+        assertEquals(CircuitBreaker.Status.CLOSED, client.getCircuitStatus());
+    }
+
+    @Test
+    void shouldThrowNBApiExceptionWhenNbpRespondsWithError() {
+        // Arrange
+        status = 500;
+        NbpClient client = client(5);
+
+        // Act & Assert
+        assertThrows(NBApiException.class, client::getRateTable);
+        CompletionException asyncFailure = assertThrows(CompletionException.class, () -> client.getRateTableAsync().join());
+        assertInstanceOf(NBApiException.class, asyncFailure.getCause());
+    }
+
+    @Test
+    void shouldThrowNBApiExceptionWhenNbpDoesNotAnswerBeforeReadTimeout() {
+        // Arrange
+        delayMillis = 1000;
+        NbpClient client = client(5);
+
+        // Act & Assert
+        assertThrows(NBApiException.class, client::getRateTable);
+    }
+
+    @Test
+    void shouldFailFastWithoutCallingNbpWhenCircuitIsOpen() {
+        // Arrange
+        status = 503;
+        NbpClient client = client(2);
+        assertThrows(NBApiException.class, client::getRateTable);
+        assertThrows(NBApiException.class, client::getRateTable);
+
+        // Act & Assert
+        assertEquals(CircuitBreaker.Status.OPEN, client.getCircuitStatus());
+        assertThrows(NBApiException.class, client::getRateTable);
+        assertEquals(2, hits.get());
+    }
+
+    private NbpClient client(int failureThreshold) {
+        String url = "http://localhost:" + server.getAddress().getPort() + "/api/exchangerates/tables/A/";
+        return new NbpClient(url, Duration.ofSeconds(1), Duration.ofMillis(300), failureThreshold, Duration.ofMinutes(1), false, new ObjectMapper(), new SimpleMeterRegistry());
+    }
+}
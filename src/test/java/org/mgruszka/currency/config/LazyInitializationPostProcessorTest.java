@@ -0,0 +1,39 @@
+package org.mgruszka.currency.config;
+
+import org.junit.jupiter.api.Test;
+import org.springdoc.webmvc.api.OpenApiWebMvcResource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class LazyInitializationPostProcessorTest {
+
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void whenApiDocsRequestedThenLazyOpenApiResourceIsCreatedOnFirstUse() throws Exception {
+        String[] names = beanFactory.getBeanNamesForType(OpenApiWebMvcResource.class, true, false);
+        assertThat(names).isNotEmpty();
+        assertThat(beanFactory.getBeanDefinition(names[0]).isLazyInit()).isTrue();
+        assertThat(beanFactory.containsSingleton(names[0])).isFalse();
+
+        mockMvc.perform(get("/v3/api-docs"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.paths['/api/accounts']").exists());
+
+        assertThat(beanFactory.containsSingleton(names[0])).isTrue();
+    }
+}
@@ -1,33 +1,51 @@
 package org.mgruszka.currency.controller;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Test;
 import org.mgruszka.currency.model.AccountCreationDTO;
+import org.mgruszka.currency.model.ExchangeRequestDTO;
+import org.mgruszka.currency.model.ExchangeStatus;
 import org.mgruszka.currency.model.TargetCurrency;
 import org.mgruszka.currency.service.AccountService;
+import org.mgruszka.currency.service.ExchangeLedger;
 import org.mockito.Mock;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.util.List;
+import java.util.UUID;
+
 @SpringBootTest
 @AutoConfigureMockMvc
+@AutoConfigureObservability
 class AccountControllerTest {
 
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private ExchangeLedger exchangeLedger;
+
     @Mock
     private AccountService accountService;
 
@@ -77,6 +95,9 @@ class AccountControllerTest {
         mockMvc.perform(get("/api/accounts/{accountId}", "nonExistingId"))
                 .andDo(print())
                 .andExpect(status().isNotFound())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.error").value("ACCOUNT_NOT_FOUND"))
+                .andExpect(jsonPath("$.message").value("Account not found"))
                 .andDo(print());
     }
 
@@ -106,6 +127,188 @@ class AccountControllerTest {
                 .andDo(print());
     }
 
+    @Test
+    void whenExchangeWithSourceCurrencyThenThatBalanceShouldBeDebited() throws Exception {
+        AccountCreationDTO creationDTO = new AccountCreationDTO("John", "Doe", 1000.0);
+        //create account
+        String newAccountId = mockMvc.perform(post("/api/accounts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(creationDTO)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        //exchange pln to eur, then part of the eur to usd
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/accounts/{accountId}/exchange", newAccountId)
+                        .param("amount", String.valueOf(500))
+                        .param("targetCurrency", TargetCurrency.EUR.name())
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balances.PLN").value(500.0))
+                .andExpect(jsonPath("$.balances.EUR", Matchers.greaterThan(10.0)));
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/accounts/{accountId}/exchange", newAccountId)
+                        .param("amount", String.valueOf(10))
+                        .param("sourceCurrency", TargetCurrency.EUR.name())
+                        .param("targetCurrency", TargetCurrency.USD.name())
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balancePLN").value(500.0))
+                .andExpect(jsonPath("$.balanceUSD", Matchers.greaterThan(0.0)))
+                .andDo(print());
+
+        //same source and target currency
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/accounts/{accountId}/exchange", newAccountId)
+                        .param("amount", String.valueOf(10))
+                        .param("sourceCurrency", TargetCurrency.EUR.name())
+                        .param("targetCurrency", TargetCurrency.EUR.name())
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void whenExchangeWithQuoteTokenThenQuotedAmountShouldBeCredited() throws Exception {
+        AccountCreationDTO creationDTO = new AccountCreationDTO("John", "Doe", 1000.0);
+        //create account
+        String newAccountId = mockMvc.perform(post("/api/accounts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(creationDTO)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        //quote pln to usd
+        MvcResult quoteResult = mockMvc.perform(get("/api/quotes")
+                        .param("accountId", newAccountId)
+                        .param("amount", String.valueOf(100))
+                        .param("targetCurrency", TargetCurrency.USD.name()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String quote = mockMvc.perform(asyncDispatch(quoteResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sourceCurrency").value(TargetCurrency.PLN.name()))
+                .andReturn().getResponse().getContentAsString();
+        String token = JsonPath.read(quote, "$.token");
+        double convertedAmount = JsonPath.read(quote, "$.convertedAmount");
+
+        //tampered token
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/accounts/{accountId}/exchange", newAccountId)
+                        .param("quoteToken", "x" + token)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        //amount that does not match the quote
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/accounts/{accountId}/exchange", newAccountId)
+                        .param("quoteToken", token)
+                        .param("amount", String.valueOf(200))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        //quote issued for another account
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/accounts/{accountId}/exchange", "otherAccountId")
+                        .param("quoteToken", token)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        //execute the quote
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/accounts/{accountId}/exchange", newAccountId)
+                        .param("quoteToken", token)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balancePLN").value(900.0))
+                .andExpect(jsonPath("$.balanceUSD").value(convertedAmount));
+
+        //replay of an executed quote
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/accounts/{accountId}/exchange", newAccountId)
+                        .param("quoteToken", token)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("INVALID_QUOTE"));
+    }
+
+    @Test
+    void whenListHistoryThenExchangesShouldBePagedNewestFirst() throws Exception {
+        AccountCreationDTO creationDTO = new AccountCreationDTO("John", "Doe", 1000.0);
+        //create account
+        String newAccountId = mockMvc.perform(post("/api/accounts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(creationDTO)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        //exchange pln to usd, then pln to eur
+        for (TargetCurrency targetCurrency : List.of(TargetCurrency.USD, TargetCurrency.EUR)) {
+            mockMvc.perform(MockMvcRequestBuilders.post("/api/accounts/{accountId}/exchange", newAccountId)
+                            .param("amount", String.valueOf(100))
+                            .param("targetCurrency", targetCurrency.name())
+                            .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk());
+        }
+        exchangeLedger.flush();
+
+        //first page
+        String firstPage = mockMvc.perform(get("/api/accounts/{accountId}/history", newAccountId)
+                        .param("limit", String.valueOf(1)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.entries.length()").value(1))
+                .andExpect(jsonPath("$.entries[0].targetCurrency").value(TargetCurrency.EUR.name()))
+                .andExpect(jsonPath("$.entries[0].amount").value(100.0))
+                .andReturn().getResponse().getContentAsString();
+
+        //next page
+        mockMvc.perform(get("/api/accounts/{accountId}/history", newAccountId)
+                        .param("limit", String.valueOf(1))
+                        .param("cursor", JsonPath.<String>read(firstPage, "$.nextCursor")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.entries.length()").value(1))
+                .andExpect(jsonPath("$.entries[0].targetCurrency").value(TargetCurrency.USD.name()))
+                .andExpect(jsonPath("$.nextCursor").isEmpty());
+
+        //invalid cursor
+        mockMvc.perform(get("/api/accounts/{accountId}/history", newAccountId)
+                        .param("cursor", "not a cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void whenSearchByNamePrefixThenAccountsShouldBePagedInNameOrder() throws Exception {
+        //a last name no other test uses, with a regex metacharacter that must match literally
+        String lastName = "Search(" + UUID.randomUUID();
+        for (String firstName : List.of("Jane", "John", "Adam")) {
+            mockMvc.perform(post("/api/accounts")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(new AccountCreationDTO(firstName, lastName, 10.0))))
+                    .andExpect(status().isCreated());
+        }
+
+        //first page
+        String firstPage = mockMvc.perform(get("/api/accounts/search")
+                        .param("lastName", lastName.substring(0, 12))
+                        .param("limit", String.valueOf(2)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accounts.length()").value(2))
+                .andExpect(jsonPath("$.accounts[0].firstName").value("Adam"))
+                .andExpect(jsonPath("$.accounts[1].firstName").value("Jane"))
+                .andExpect(jsonPath("$.accounts[1].lastName").value(lastName))
+                .andReturn().getResponse().getContentAsString();
+
+        //next page
+        mockMvc.perform(get("/api/accounts/search")
+                        .param("lastName", lastName.substring(0, 12))
+                        .param("limit", String.valueOf(2))
+                        .param("cursor", JsonPath.<String>read(firstPage, "$.nextCursor")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accounts.length()").value(1))
+                .andExpect(jsonPath("$.accounts[0].firstName").value("John"))
+                .andExpect(jsonPath("$.nextCursor").isEmpty());
+
+        //first name prefix
+        mockMvc.perform(get("/api/accounts/search")
+                        .param("lastName", lastName)
+                        .param("firstName", "J"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accounts.length()").value(2))
+                .andExpect(jsonPath("$.accounts[0].id").isNotEmpty())
+                .andExpect(jsonPath("$.accounts[0].balances").doesNotExist());
+    }
+
     @Test
     void whenExchangeAndHaveInsufficientFundsThenWeWillGet400Error() throws Exception {
         AccountCreationDTO creationDTO = new AccountCreationDTO("John", "Doe", 1000.0);
@@ -125,4 +328,169 @@ class AccountControllerTest {
                 .andExpect(status().isBadRequest())
                 .andDo(print());
     }
+
+    @Test
+    void whenAmountIsNotPositiveThenNoBalanceShouldChange() throws Exception {
+        //negative initial balance
+        mockMvc.perform(post("/api/accounts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AccountCreationDTO("John", "Doe", -1.0))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("INVALID_AMOUNT"));
+
+        String newAccountId = mockMvc.perform(post("/api/accounts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AccountCreationDTO("John", "Doe", 1000.0))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        //a negative amount would credit PLN and take USD below zero
+        for (String amount : List.of("-100", "0", "0.004")) {
+            mockMvc.perform(MockMvcRequestBuilders.post("/api/accounts/{accountId}/exchange", newAccountId)
+                            .param("amount", amount)
+                            .param("targetCurrency", TargetCurrency.USD.name()))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.error").value("INVALID_AMOUNT"));
+        }
+
+        //one invalid item rejects the whole batch
+        mockMvc.perform(post("/api/accounts/batch/exchange")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(
+                                new ExchangeRequestDTO(newAccountId, 100, TargetCurrency.USD),
+                                new ExchangeRequestDTO(newAccountId, -100, TargetCurrency.USD)))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("INVALID_AMOUNT"));
+
+        mockMvc.perform(get("/api/accounts/{accountId}", newAccountId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balancePLN").value(1000.0))
+                .andExpect(jsonPath("$.balanceUSD").value(0.0));
+    }
+
+    @Test
+    void whenBatchExchangeThenEveryItemShouldHaveItsStatus() throws Exception {
+        AccountCreationDTO creationDTO = new AccountCreationDTO("John", "Doe", 1000.0);
+        //create account
+        String newAccountId = mockMvc.perform(post("/api/accounts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(creationDTO)))
+                .andExpect(status().isCreated())
+                .andDo(print())
+                .andReturn().getResponse().getContentAsString();
+
+        List<ExchangeRequestDTO> requests = List.of(
+                new ExchangeRequestDTO(newAccountId, 100, TargetCurrency.USD),
+                new ExchangeRequestDTO(newAccountId, 1000, TargetCurrency.USD),
+                new ExchangeRequestDTO("nonExistingId", 100, TargetCurrency.USD));
+
+        //exchange in batch
+        mockMvc.perform(post("/api/accounts/batch/exchange")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(ExchangeStatus.SUCCESS.name()))
+                .andExpect(jsonPath("$[1].status").value(ExchangeStatus.INSUFFICIENT_FUNDS.name()))
+                .andExpect(jsonPath("$[2].status").value(ExchangeStatus.ACCOUNT_NOT_FOUND.name()))
+                .andDo(print());
+
+        mockMvc.perform(get("/api/accounts/{accountId}", newAccountId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balancePLN").value(900.0))
+                .andDo(print());
+    }
+
+    @Test
+    void whenImportAccountsThenAllRecordsShouldBeCreated() throws Exception {
+        String records = """
+                {"firstName":"John","lastName":"Doe","initialBalance":100.0}
+                {"firstName":"Jane","lastName":"Doe","initialBalance":200.0}
+                """;
+
+        //import accounts
+        String importId = JsonPath.read(mockMvc.perform(post("/api/accounts/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(records))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.created").value(2))
+                .andDo(print())
+                .andReturn().getResponse().getContentAsString(), "$.importId");
+
+        //list created ids
+        MvcResult idsResult = mockMvc.perform(get("/api/accounts/import/{importId}", importId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String ids = mockMvc.perform(asyncDispatch(idsResult))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(ids.lines()).hasSize(2);
+    }
+
+    @Test
+    void whenExchangeFailsThenOutcomeShouldBeExposedForPrometheus() throws Exception {
+        AccountCreationDTO creationDTO = new AccountCreationDTO("John", "Doe", 1000.0);
+        //create account
+        String newAccountId = mockMvc.perform(post("/api/accounts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(creationDTO)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        //exchange more pln than available
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/accounts/{accountId}/exchange", newAccountId)
+                        .param("amount", String.valueOf(1100))
+                        .param("targetCurrency", TargetCurrency.USD.name()))
+                .andExpect(status().isBadRequest());
+
+        //scrape metrics
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(Matchers.containsString("currency_exchanges_total{currency=\"USD\",outcome=\"insufficient_funds\"}")))
+                .andExpect(content().string(Matchers.containsString("currency_rate_lookup_seconds_bucket")))
+                .andExpect(content().string(Matchers.containsString("currency_rate_age_seconds")))
+                .andExpect(content().string(Matchers.containsString("cache_gets_total{cache=\"accounts\"")));
+    }
+
+    @Test
+    void whenAccountVersionIsUnchangedThenConditionalGetShouldReturnNotModifiedAndStaleIfMatchShouldFail() throws Exception {
+        String accountId = mockMvc.perform(post("/api/accounts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AccountCreationDTO("John", "Doe", 1000.0))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        mockMvc.perform(get("/api/accounts/{accountId}", accountId))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andExpect(jsonPath("$.version").value(0));
+
+        mockMvc.perform(get("/api/accounts/{accountId}", accountId).header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andExpect(content().string(""));
+
+        mockMvc.perform(post("/api/accounts/{accountId}/exchange", accountId)
+                        .param("amount", "100")
+                        .param("targetCurrency", TargetCurrency.USD.name())
+                        .header(HttpHeaders.IF_MATCH, "\"0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+
+        // the exchange evicted the cached account, the version is read from the store
+        mockMvc.perform(get("/api/accounts/{accountId}", accountId).header(HttpHeaders.IF_NONE_MATCH, "\"1\""))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(post("/api/accounts/{accountId}/exchange", accountId)
+                        .param("amount", "100")
+                        .param("targetCurrency", TargetCurrency.USD.name())
+                        .header(HttpHeaders.IF_MATCH, "\"0\""))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.error").value("VERSION_MISMATCH"));
+
+        mockMvc.perform(get("/api/accounts/{accountId}", accountId).header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.balancePLN").value(900.0));
+    }
 }
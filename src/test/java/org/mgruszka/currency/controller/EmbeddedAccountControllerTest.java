@@ -0,0 +1,12 @@
+package org.mgruszka.currency.controller;
+
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Runs the account API tests against the embedded storage engine instead of MongoDB.
+ */
+@ActiveProfiles("embedded")
+@TestPropertySource(properties = "embedded.data-dir=target/embedded-data")
+class EmbeddedAccountControllerTest extends AccountControllerTest {
+}
@@ -0,0 +1,44 @@
+package org.mgruszka.currency.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.mgruszka.currency.model.CrossRateMatrix;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.mgruszka.currency.service.RecentExchangeRateService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class RateControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RecentExchangeRateService recentExchangeRateService;
+
+    @Test
+    void whenTableWasFetchedThenItShouldBeServedForLaterDates() throws Exception {
+        //every fetched table is appended to the history
+        CrossRateMatrix rates = recentExchangeRateService.getRates();
+
+        mockMvc.perform(get("/api/rates").param("date", rates.getEffectiveDate().plusDays(2).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.effectiveDate").value(rates.getEffectiveDate().toString()))
+                .andExpect(jsonPath("$.rates.USD").value(rates.getMidRates().get(TargetCurrency.USD)))
+                .andDo(print());
+    }
+
+    @Test
+    void whenNoTableIsThatOldThenShouldReturnNotFoundError() throws Exception {
+        mockMvc.perform(get("/api/rates").param("date", "1990-01-01"))
+                .andExpect(status().isNotFound());
+    }
+}
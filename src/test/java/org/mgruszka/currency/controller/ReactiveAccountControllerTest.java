@@ -0,0 +1,253 @@
+package org.mgruszka.currency.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.jayway.jsonpath.JsonPath;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.mgruszka.currency.model.AccountCreationDTO;
+import org.mgruszka.currency.model.ExchangeRequestDTO;
+import org.mgruszka.currency.model.ExchangeStatus;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.mgruszka.currency.service.ExchangeLedger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+import java.util.UUID;
+
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles("reactive")
+@AutoConfigureWebTestClient
+class ReactiveAccountControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ExchangeLedger exchangeLedger;
+
+    @Test
+    void whenCreateAccountThenIdShouldBeReturned() {
+        String result = createAccount(new AccountCreationDTO("John", "Doe", 1000.0));
+
+        assertThat(result).isNotBlank();
+    }
+
+    @Test
+    void whenGetAccountThenShouldReturnAccountDetails() {
+        //create account
+        String newAccountId = createAccount(new AccountCreationDTO("John", "Doe", 1000.0));
+
+        //get details
+        webTestClient.get().uri("/api/accounts/{accountId}", newAccountId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(newAccountId)
+                .jsonPath("$.balancePLN").isEqualTo(1000.0)
+                .jsonPath("$.balanceUSD").isEqualTo(0.0)
+                .jsonPath("$.firstName").isEqualTo("John")
+                .jsonPath("$.lastName").isEqualTo("Doe");
+    }
+
+    @Test
+    void whenAccountVersionIsUnchangedThenConditionalGetShouldReturnNotModifiedAndStaleIfMatchShouldFail() {
+        String accountId = createAccount(new AccountCreationDTO("John", "Doe", 1000.0));
+
+        webTestClient.get().uri("/api/accounts/{accountId}", accountId)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"0\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"0\"");
+
+        webTestClient.post().uri(uri -> uri.path("/api/accounts/{accountId}/exchange")
+                        .queryParam("amount", 100)
+                        .queryParam("targetCurrency", TargetCurrency.USD.name())
+                        .build(accountId))
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"");
+
+        webTestClient.post().uri(uri -> uri.path("/api/accounts/{accountId}/exchange")
+                        .queryParam("amount", 100)
+                        .queryParam("targetCurrency", TargetCurrency.USD.name())
+                        .build(accountId))
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .exchange()
+                .expectStatus().isEqualTo(412)
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("VERSION_MISMATCH");
+
+        webTestClient.get().uri("/api/accounts/{accountId}", accountId)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"0\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"")
+                .expectBody()
+                .jsonPath("$.version").isEqualTo(1);
+    }
+
+    @Test
+    void whenGetAccountThatDoesNotExistsThenShouldReturnNotFoundError() {
+        //get details
+        webTestClient.get().uri("/api/accounts/{accountId}", "nonExistingId")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void whenExchangeThenWeShouldSeeDifferentAccountBalance() {
+        //create account
+        String newAccountId = createAccount(new AccountCreationDTO("John", "Doe", 1000.0));
+
+        //exchange pln to usd
+        webTestClient.post().uri(uri -> uri.path("/api/accounts/{accountId}/exchange")
+                        .queryParam("amount", 100)
+                        .queryParam("targetCurrency", TargetCurrency.USD.name())
+                        .build(newAccountId))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(newAccountId)
+                .jsonPath("$.balancePLN").isEqualTo(900.0)
+                //since exchange rate might be different everytime we just make simple check if it is now greater than zero which is initial amount
+                .jsonPath("$.balanceUSD").value(Matchers.greaterThan(0.0))
+                .jsonPath("$.firstName").isEqualTo("John")
+                .jsonPath("$.lastName").isEqualTo("Doe");
+
+        //history
+        exchangeLedger.flush();
+        webTestClient.get().uri("/api/accounts/{accountId}/history", newAccountId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.entries.length()").isEqualTo(1)
+                .jsonPath("$.entries[0].amount").isEqualTo(100.0)
+                .jsonPath("$.entries[0].targetCurrency").isEqualTo(TargetCurrency.USD.name())
+                .jsonPath("$.nextCursor").isEmpty();
+    }
+
+    @Test
+    void whenSearchByNamePrefixThenAccountsShouldBeFound() {
+        String lastName = "ReactiveSearch" + UUID.randomUUID();
+        createAccount(new AccountCreationDTO("John", lastName, 10.0));
+        createAccount(new AccountCreationDTO("Adam", lastName, 10.0));
+
+        webTestClient.get().uri(uri -> uri.path("/api/accounts/search")
+                        .queryParam("lastName", lastName)
+                        .queryParam("limit", 1)
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.accounts.length()").isEqualTo(1)
+                .jsonPath("$.accounts[0].firstName").isEqualTo("Adam")
+                .jsonPath("$.nextCursor").isNotEmpty();
+    }
+
+    @Test
+    void whenExchangeAndHaveInsufficientFundsThenWeWillGet400Error() {
+        //create account
+        String newAccountId = createAccount(new AccountCreationDTO("John", "Doe", 1000.0));
+
+        //exchange pln to usd
+        webTestClient.post().uri(uri -> uri.path("/api/accounts/{accountId}/exchange")
+                        .queryParam("amount", 1100)
+                        .queryParam("targetCurrency", TargetCurrency.USD.name())
+                        .build(newAccountId))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(400)
+                .jsonPath("$.error").isEqualTo("INSUFFICIENT_FUNDS")
+                .jsonPath("$.message").isEqualTo("Insufficient funds on Your account");
+    }
+
+    @Test
+    void whenBatchExchangeThenEveryItemShouldHaveItsStatus() {
+        //create account
+        String newAccountId = createAccount(new AccountCreationDTO("John", "Doe", 1000.0));
+
+        List<ExchangeRequestDTO> requests = List.of(
+                new ExchangeRequestDTO(newAccountId, 100, TargetCurrency.USD),
+                new ExchangeRequestDTO(newAccountId, 1000, TargetCurrency.USD),
+                new ExchangeRequestDTO("nonExistingId", 100, TargetCurrency.USD));
+
+        //exchange in batch
+        webTestClient.post().uri("/api/accounts/batch/exchange")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requests)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].status").isEqualTo(ExchangeStatus.SUCCESS.name())
+                .jsonPath("$[1].status").isEqualTo(ExchangeStatus.INSUFFICIENT_FUNDS.name())
+                .jsonPath("$[2].status").isEqualTo(ExchangeStatus.ACCOUNT_NOT_FOUND.name());
+
+        webTestClient.get().uri("/api/accounts/{accountId}", newAccountId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.balancePLN").isEqualTo(900.0);
+    }
+
+    @Test
+    void whenImportAccountsThenAllRecordsShouldBeCreated() {
+        String records = """
+                {"firstName":"John","lastName":"Doe","initialBalance":100.0}
+                {"firstName":"Jane","lastName":"Doe","initialBalance":200.0}
+                """;
+
+        //import accounts
+        String summary = webTestClient.post().uri("/api/accounts/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(records)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+        assertThat(JsonPath.<Integer>read(summary, "$.created")).isEqualTo(2);
+        String importId = JsonPath.read(summary, "$.importId");
+
+        //list created ids
+        String ids = webTestClient.get().uri("/api/accounts/import/{importId}", importId)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+
+        assertThat(ids.lines()).hasSize(2).allMatch(line -> line.startsWith("\""));
+    }
+
+    @Test
+    void whenImportContainsInvalidRecordThenWeWillGet400Error() {
+        String records = """
+                {"firstName":"John","lastName":"Doe","initialBalance":100.0}
+                {"firstName":"Jane","lastName":
+                """;
+
+        webTestClient.post().uri("/api/accounts/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(records)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    private String createAccount(AccountCreationDTO creationDTO) {
+        return webTestClient.post().uri("/api/accounts")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(creationDTO)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+    }
+}
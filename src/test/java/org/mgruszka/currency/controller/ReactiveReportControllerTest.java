@@ -0,0 +1,52 @@
+package org.mgruszka.currency.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.mgruszka.currency.model.AccountCreationDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles("reactive")
+@AutoConfigureWebTestClient
+class ReactiveReportControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void whenExportAccountsThenEveryAccountShouldBeStreamed() {
+        String newAccountId = webTestClient.post().uri("/api/accounts")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new AccountCreationDTO("Jane", "Doe, Jr.", 1234.5))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+
+        String csv = webTestClient.get().uri("/api/reports/accounts?format=csv")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith("text/csv")
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+
+        assertThat(csv.lines().findFirst()).hasValueSatisfying(header -> assertThat(header).startsWith("id,firstName,lastName,PLN,USD,"));
+        assertThat(csv.lines()).anySatisfy(row -> assertThat(row).startsWith(newAccountId + ",Jane,\"Doe, Jr.\",1234.50,0.00,"));
+    }
+
+    @Test
+    void whenGetTotalsThenEveryAccountShouldBeCounted() {
+        webTestClient.get().uri("/api/reports/totals")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.accounts").isNumber()
+                .jsonPath("$.totals.PLN").isNumber();
+    }
+}
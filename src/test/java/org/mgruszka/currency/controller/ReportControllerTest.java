@@ -0,0 +1,98 @@
+package org.mgruszka.currency.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.mgruszka.currency.model.AccountCreationDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ReportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void whenExportAccountsThenEveryAccountShouldBeStreamed() throws Exception {
+        String newAccountId = createAccount(new AccountCreationDTO("Jane", "Doe, Jr.", 1234.5));
+
+        //csv
+        MvcResult csvResult = mockMvc.perform(get("/api/reports/accounts").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String csv = mockMvc.perform(asyncDispatch(csvResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andReturn().getResponse().getContentAsString();
+        assertThat(csv.lines().findFirst()).hasValueSatisfying(header -> assertThat(header).startsWith("id,firstName,lastName,PLN,USD,"));
+        assertThat(csv.lines()).anySatisfy(row -> assertThat(row).startsWith(newAccountId + ",Jane,\"Doe, Jr.\",1234.50,0.00,"));
+
+        //newline delimited json
+        MvcResult ndjsonResult = mockMvc.perform(get("/api/reports/accounts"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String ndjson = mockMvc.perform(asyncDispatch(ndjsonResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        assertThat(ndjson.lines()).anySatisfy(line -> {
+            assertThat(JsonPath.<String>read(line, "$.id")).isEqualTo(newAccountId);
+            assertThat(JsonPath.<Double>read(line, "$.balancePLN")).isEqualTo(1234.5);
+        });
+    }
+
+    @Test
+    void whenGetReportsThenNewAccountShouldBeCounted() throws Exception {
+        String before = mockMvc.perform(get("/api/reports/totals"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        createAccount(new AccountCreationDTO("John", "Doe", 1000.0));
+
+        String after = mockMvc.perform(get("/api/reports/totals"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        int accounts = JsonPath.read(after, "$.accounts");
+        assertThat(accounts).isEqualTo(JsonPath.<Integer>read(before, "$.accounts") + 1);
+        assertThat(JsonPath.<Double>read(after, "$.totals.PLN") - JsonPath.<Double>read(before, "$.totals.PLN")).isEqualTo(1000.0);
+
+        //every account falls into exactly one range
+        String distribution = mockMvc.perform(get("/api/reports/distribution").param("thresholds", "500", "100000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].from").value(0.0))
+                .andExpect(jsonPath("$[0].to").value(500.0))
+                .andExpect(jsonPath("$[2].to").isEmpty())
+                .andReturn().getResponse().getContentAsString();
+        List<Integer> bucketAccounts = JsonPath.read(distribution, "$[*].accounts");
+        assertThat(bucketAccounts.stream().mapToInt(Integer::intValue).sum()).isEqualTo(accounts);
+    }
+
+    private String createAccount(AccountCreationDTO creationDTO) throws Exception {
+        return mockMvc.perform(post("/api/accounts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(creationDTO)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+    }
+}
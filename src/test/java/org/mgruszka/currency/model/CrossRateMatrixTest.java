@@ -0,0 +1,44 @@
+package org.mgruszka.currency.model;
+
+import org.junit.jupiter.api.Test;
+import org.mgruszka.currency.exceptions.InvalidCurrencyException;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CrossRateMatrixTest {
+
+    private final CrossRateMatrix rates = CrossRateMatrix.of(LocalDate.of(2025, 1, 2),
+            Map.of(TargetCurrency.USD, 3.9876, TargetCurrency.EUR, 4.2730, TargetCurrency.JPY, 0.0254));
+
+    @Test
+    void shouldConvertToAndFromPLNLikeFixedPointMoney() {
+        // 100 USD * 3.9876 = 398.76 PLN
+        assertEquals(39876, rates.convert(10000, TargetCurrency.USD, TargetCurrency.PLN));
+        // 100 PLN / 3.9876 = 25.0777 USD
+        assertEquals(2507, rates.convert(10000, TargetCurrency.PLN, TargetCurrency.USD));
+    }
+
+    @Test
+    void shouldConvertBetweenForeignCurrenciesThroughPLN() {
+        // 100 EUR * 4.2730 / 3.9876 = 107.157 USD
+        assertEquals(10715, rates.convert(10000, TargetCurrency.EUR, TargetCurrency.USD));
+        // 1 USD * 3.9876 / 0.0254 = 156.992 JPY
+        assertEquals(15699, rates.convert(100, TargetCurrency.USD, TargetCurrency.JPY));
+    }
+
+    @Test
+    void shouldRejectCurrenciesMissingFromTable() {
+        assertFalse(rates.supports(TargetCurrency.GBP));
+        assertThrows(InvalidCurrencyException.class, () -> rates.convert(10000, TargetCurrency.PLN, TargetCurrency.GBP));
+        assertThrows(InvalidCurrencyException.class, () -> rates.convert(10000, TargetCurrency.GBP, TargetCurrency.PLN));
+    }
+
+    @Test
+    void shouldRejectNonPositiveMidRates() {
+        assertThrows(IllegalArgumentException.class,
+                () -> CrossRateMatrix.of(LocalDate.of(2025, 1, 2), Map.of(TargetCurrency.USD, 0.0)));
+    }
+}
@@ -0,0 +1,43 @@
+package org.mgruszka.currency.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void shouldRoundApiAmountsToNearestMinorUnit() {
+        assertEquals(1000, Money.toMinorUnits(10.0));
+        assertEquals(1999, Money.toMinorUnits(19.99));
+        assertEquals(12, Money.toMinorUnits(0.115));
+    }
+
+    @Test
+    void shouldRoundConvertedAmountsDown() {
+        long rate = Money.toFixedRate(3.9876);
+
+        // 100 PLN / 3.9876 = 25.0777 USD
+        assertEquals(2507, Money.divide(10000, rate));
+        // 100 USD * 3.9876 = 398.76 PLN
+        assertEquals(39876, Money.multiply(10000, rate));
+        // 0.01 USD * 3.9876 = 0.039876 PLN
+        assertEquals(3, Money.multiply(1, rate));
+    }
+
+    @Test
+    void shouldConvertAmountsThatOverflowIntermediateProduct() {
+        long rate = Money.toFixedRate(4.0);
+        long amount = 1_000_000_000_000L; // 10 billion PLN in grosze
+
+        assertEquals(250_000_000_000L, Money.divide(amount, rate));
+        assertEquals(4_000_000_000_000L, Money.multiply(amount, rate));
+    }
+
+    @Test
+    void shouldFormatMinorUnitsAsExactDecimal() {
+        assertEquals("1234.50", Money.toDecimalString(123450));
+        assertEquals("0.05", Money.toDecimalString(5));
+        assertEquals("100000000000.00", Money.toDecimalString(10_000_000_000_000L));
+    }
+}
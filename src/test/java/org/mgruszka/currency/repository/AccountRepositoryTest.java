@@ -0,0 +1,182 @@
+package org.mgruszka.currency.repository;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mgruszka.currency.model.Account;
+import org.mgruszka.currency.model.BalanceBucket;
+import org.mgruszka.currency.model.ExchangeOperation;
+import org.mgruszka.currency.model.ExchangeStatus;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class AccountRepositoryTest {
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Test
+    void whenManyThreadsExchangeOnOneAccountThenNoUpdateIsLostAndBalanceNeverGoesNegative() throws Exception {
+        Account account = account("John", 100000, 0);
+        accountRepository.save(account);
+
+        int threads = 16;
+        int exchangesPerThread = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < exchangesPerThread; j++) {
+                    //10 PLN each, 400 attempts in total but only 100 of them can be covered
+                    if (accountRepository.exchange(account.getId(), TargetCurrency.PLN, TargetCurrency.USD, 1000, 250).isPresent()) {
+                        succeeded.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Account updated = accountRepository.findById(account.getId()).orElseThrow();
+        assertThat(succeeded.get()).isEqualTo(100);
+        assertThat(updated.getBalance(TargetCurrency.PLN)).isZero();
+        assertThat(updated.getBalance(TargetCurrency.USD)).isEqualTo(25000);
+    }
+
+    @Test
+    void whenBulkExchangingThenEveryOperationGetsItsOwnStatus() {
+        Account first = accountRepository.save(account("John", 10000, 0));
+        Account second = accountRepository.save(account("Jane", 0, 1000));
+
+        List<ExchangeStatus> statuses = accountRepository.bulkExchange(List.of(
+                new ExchangeOperation(first.getId(), TargetCurrency.PLN, TargetCurrency.USD, 6000, 1500),
+                new ExchangeOperation(first.getId(), TargetCurrency.PLN, TargetCurrency.USD, 6000, 1500),
+                new ExchangeOperation(second.getId(), TargetCurrency.USD, TargetCurrency.PLN, 1000, 4000),
+                new ExchangeOperation("nonExistingId", TargetCurrency.PLN, TargetCurrency.USD, 100, 25)));
+
+        assertThat(statuses).containsExactly(ExchangeStatus.SUCCESS, ExchangeStatus.INSUFFICIENT_FUNDS,
+                ExchangeStatus.SUCCESS, ExchangeStatus.ACCOUNT_NOT_FOUND);
+        Account updatedFirst = accountRepository.findById(first.getId()).orElseThrow();
+        assertThat(updatedFirst.getBalance(TargetCurrency.PLN)).isEqualTo(4000);
+        assertThat(updatedFirst.getBalance(TargetCurrency.USD)).isEqualTo(1500);
+        Account updatedSecond = accountRepository.findById(second.getId()).orElseThrow();
+        assertThat(updatedSecond.getBalance(TargetCurrency.PLN)).isEqualTo(4000);
+        assertThat(updatedSecond.getBalance(TargetCurrency.USD)).isZero();
+    }
+
+    @Test
+    void whenBatchesOverlapOnAccountThenUpdateAppliedBeforeLaterBatchIsStillReportedAsApplied() {
+        Account shared = accountRepository.save(account("John", 10000, 0));
+        Account drained = accountRepository.save(account("Jane", 1000, 0));
+        ExchangeUpdates.BulkPlan first = plan(
+                new ExchangeOperation(shared.getId(), TargetCurrency.PLN, TargetCurrency.USD, 1000, 250),
+                new ExchangeOperation(drained.getId(), TargetCurrency.PLN, TargetCurrency.USD, 1000, 250));
+        ExchangeUpdates.BulkPlan second = plan(
+                new ExchangeOperation(shared.getId(), TargetCurrency.PLN, TargetCurrency.USD, 2000, 500));
+
+        // the drained account changes after the first snapshot, so its guard fails and the first batch re-reads
+        accountRepository.exchange(drained.getId(), TargetCurrency.PLN, TargetCurrency.USD, 500, 125);
+        apply(first);
+        apply(second);
+        first.markNotApplied(mongoTemplate.find(first.appliedQuery(), Document.class, mongoTemplate.getCollectionName(Account.class)));
+
+        assertThat(first.statuses()).containsExactly(ExchangeStatus.SUCCESS, ExchangeStatus.INSUFFICIENT_FUNDS);
+        assertThat(accountRepository.findById(shared.getId()).orElseThrow().getBalance(TargetCurrency.PLN)).isEqualTo(7000);
+        assertThat(accountRepository.findById(drained.getId()).orElseThrow().getBalance(TargetCurrency.PLN)).isEqualTo(500);
+    }
+
+    @Test
+    void whenExchangingOnNonExistentAccountThenNothingIsReturned() {
+        assertThat(accountRepository.exchange("nonExistingId", TargetCurrency.PLN, TargetCurrency.USD, 1000, 250)).isEmpty();
+    }
+
+    @Test
+    void whenSourceCurrencyWasNeverHeldThenNothingIsExchanged() {
+        Account account = accountRepository.save(account("John", 10000, 0));
+
+        assertThat(accountRepository.exchange(account.getId(), TargetCurrency.EUR, TargetCurrency.PLN, 100, 425)).isEmpty();
+        Account updated = accountRepository.exchange(account.getId(), TargetCurrency.PLN, TargetCurrency.EUR, 4250, 1000).orElseThrow();
+        assertThat(updated.getBalance(TargetCurrency.PLN)).isEqualTo(5750);
+        assertThat(updated.getBalance(TargetCurrency.EUR)).isEqualTo(1000);
+    }
+
+    @Test
+    void whenExchangingThenVersionIsIncrementedAndStaleVersionIsNotExchanged() {
+        Account account = accountRepository.save(account("John", 10000, 0));
+
+        Account updated = accountRepository.exchange(account.getId(), TargetCurrency.PLN, TargetCurrency.USD, 1000, 250, 0).orElseThrow();
+
+        assertThat(updated.getVersion()).isEqualTo(1);
+        assertThat(accountRepository.exchange(account.getId(), TargetCurrency.PLN, TargetCurrency.USD, 1000, 250, 0)).isEmpty();
+        assertThat(accountRepository.exchange(account.getId(), TargetCurrency.PLN, TargetCurrency.USD, 1000, 250).orElseThrow().getVersion()).isEqualTo(2);
+        assertThat(accountRepository.findVersionById(account.getId()).orElseThrow().version()).isEqualTo(2);
+        assertThat(accountRepository.findById(account.getId()).orElseThrow().getBalance(TargetCurrency.PLN)).isEqualTo(8000);
+    }
+
+    private ExchangeUpdates.BulkPlan plan(ExchangeOperation... operations) {
+        List<ExchangeOperation> batch = List.of(operations);
+        return new ExchangeUpdates.BulkPlan(batch, mongoTemplate.find(ExchangeUpdates.BulkPlan.snapshotQuery(batch), Account.class));
+    }
+
+    private void apply(ExchangeUpdates.BulkPlan plan) {
+        for (Pair<Query, Update> update : plan.updates()) {
+            mongoTemplate.updateFirst(update.getFirst(), update.getSecond(), Account.class);
+        }
+    }
+
+    @Test
+    void whenBalanceIsNegativeThenDistributionCountsItInTheFirstBucket() {
+        long[] boundaries = {0, 100_000};
+        BalanceBucket before = firstBucket(accountRepository.balanceDistribution(TargetCurrency.USD, boundaries));
+
+        // written before amounts were validated
+        accountRepository.save(account("John", 0, -500));
+
+        List<BalanceBucket> buckets = accountRepository.balanceDistribution(TargetCurrency.USD, boundaries);
+        BalanceBucket after = firstBucket(buckets);
+        assertThat(after.accounts()).isEqualTo(before.accounts() + 1);
+        assertThat(after.total()).isEqualTo(before.total() - 500);
+        assertThat(buckets.stream().mapToLong(BalanceBucket::accounts).sum()).isEqualTo(accountRepository.count());
+    }
+
+    private static BalanceBucket firstBucket(List<BalanceBucket> buckets) {
+        return buckets.isEmpty() || buckets.getFirst().lowerBound() != 0 ? new BalanceBucket(0, 0, 0) : buckets.getFirst();
+    }
+
+    private static Account account(String firstName, long balancePLN, long balanceUSD) {
+        Account account = new Account();
+        account.setId(UUID.randomUUID().toString());
+        account.setFirstName(firstName);
+        account.setLastName("Doe");
+        account.setBalance(TargetCurrency.PLN, balancePLN);
+        account.setBalance(TargetCurrency.USD, balanceUSD);
+        return account;
+    }
+}
@@ -0,0 +1,28 @@
+package org.mgruszka.currency.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ExecutedQuotesTest {
+
+    private static final Instant EXPIRES_AT = Instant.parse("2025-01-02T12:00:30Z");
+
+    @Autowired
+    private ExecutedQuotes executedQuotes;
+
+    @Test
+    void whenQuoteIsMarkedThenItCannotBeMarkedAgain() {
+        String quoteId = UUID.randomUUID().toString();
+
+        assertThat(executedQuotes.tryMark(quoteId, EXPIRES_AT)).isTrue();
+        assertThat(executedQuotes.tryMark(quoteId, EXPIRES_AT)).isFalse();
+        assertThat(executedQuotes.tryMark(UUID.randomUUID().toString(), EXPIRES_AT)).isTrue();
+    }
+}
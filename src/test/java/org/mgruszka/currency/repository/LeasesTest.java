@@ -0,0 +1,55 @@
+package org.mgruszka.currency.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class LeasesTest {
+
+    private static final Instant START = Instant.parse("2025-01-02T12:00:00Z");
+    private static final Duration LEASE = Duration.ofMinutes(15);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Test
+    void whenLeaseIsHeldThenOnlyItsOwnerCanRenewItUntilItExpires() {
+        String name = "lease-" + UUID.randomUUID();
+
+        assertThat(leasesAt(Duration.ZERO).tryAcquire(name, "a", LEASE)).isTrue();
+        assertThat(leasesAt(Duration.ZERO).tryAcquire(name, "b", LEASE)).isFalse();
+        // renewed by the owner until 25 minutes
+        assertThat(leasesAt(Duration.ofMinutes(10)).tryAcquire(name, "a", LEASE)).isTrue();
+        assertThat(leasesAt(Duration.ofMinutes(16)).tryAcquire(name, "b", LEASE)).isFalse();
+
+        assertThat(leasesAt(Duration.ofMinutes(26)).tryAcquire(name, "b", LEASE)).isTrue();
+        assertThat(leasesAt(Duration.ofMinutes(26)).tryAcquire(name, "a", LEASE)).isFalse();
+    }
+
+    @Test
+    void whenOwnerReleasesLeaseThenAnotherOwnerCanTakeItRightAway() {
+        String name = "lease-" + UUID.randomUUID();
+        Leases leases = leasesAt(Duration.ZERO);
+        leases.tryAcquire(name, "a", LEASE);
+
+        leases.release(name, "b");
+        assertThat(leases.tryAcquire(name, "b", LEASE)).isFalse();
+
+        leases.release(name, "a");
+        assertThat(leases.tryAcquire(name, "b", LEASE)).isTrue();
+    }
+
+    private Leases leasesAt(Duration elapsed) {
+        return new Leases(mongoTemplate, Clock.fixed(START.plus(elapsed), ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,222 @@
+package org.mgruszka.currency.repository.embedded;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mgruszka.currency.model.Account;
+import org.mgruszka.currency.model.BalanceBucket;
+import org.mgruszka.currency.model.TargetCurrency;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmbeddedAccountRepositoryTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    private Path dataDirectory;
+
+    /** closed after each test, before the data directory is deleted */
+    private final List<EmbeddedAccountRepository> repositories = new ArrayList<>();
+
+    @AfterEach
+    void closeRepositories() throws IOException {
+        for (EmbeddedAccountRepository repository : repositories) {
+            repository.close();
+        }
+    }
+
+    @Test
+    void whenReopenedAfterCrashThenJournaledChangesAreRecovered() throws IOException {
+        // Arrange
+        EmbeddedAccountRepository repository = open(SEGMENT_SIZE);
+        Account kept = repository.save(account("John", 10000));
+        Account deleted = repository.save(account("Jane", 5000));
+        repository.exchange(kept.getId(), TargetCurrency.PLN, TargetCurrency.USD, 4000, 1000);
+        repository.deleteById(deleted.getId());
+        // enough accounts to fill several journal segments
+        for (int i = 0; i < 100; i++) {
+            repository.save(account("Other", i));
+        }
+
+        // Act
+        crash(repository);
+        EmbeddedAccountRepository recovered = open(SEGMENT_SIZE);
+
+        // Assert
+        assertThat(AccountJournal.segments(dataDirectory)).hasSizeGreaterThan(2);
+        assertThat(recovered.count()).isEqualTo(101);
+        assertThat(recovered.existsById(deleted.getId())).isFalse();
+        Account account = recovered.findById(kept.getId()).orElseThrow();
+        assertThat(account.getBalance(TargetCurrency.PLN)).isEqualTo(6000);
+        assertThat(account.getBalance(TargetCurrency.USD)).isEqualTo(1000);
+    }
+
+    @Test
+    void whenSnapshotTakenThenOlderSegmentsAreDeletedAndLaterChangesReplayedOnTop() throws IOException {
+        // Arrange
+        EmbeddedAccountRepository repository = open(SEGMENT_SIZE);
+        Account account = repository.save(account("John", 10000));
+        repository.snapshot();
+        repository.exchange(account.getId(), TargetCurrency.PLN, TargetCurrency.USD, 4000, 1000);
+
+        // Act
+        crash(repository);
+        EmbeddedAccountRepository recovered = open(SEGMENT_SIZE);
+
+        // Assert
+        assertThat(AccountJournal.segments(dataDirectory)).allMatch(sequence -> sequence >= 2);
+        assertThat(recovered.findById(account.getId()).orElseThrow().getBalance(TargetCurrency.PLN)).isEqualTo(6000);
+    }
+
+    @Test
+    void whenLastRecordIsTornThenRecoveryStopsBeforeIt() throws IOException {
+        // Arrange
+        EmbeddedAccountRepository repository = open(SEGMENT_SIZE);
+        Account account = repository.save(account("John", 10000));
+        repository.exchange(account.getId(), TargetCurrency.PLN, TargetCurrency.USD, 4000, 1000);
+        crash(repository);
+        Path segment = dataDirectory.resolve(String.format("journal-%016d.log", AccountJournal.segments(dataDirectory).getLast()));
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // length and checksum of a record whose payload never made it to the file
+            channel.write(ByteBuffer.allocate(8).putInt(0, 100).putInt(4, 12345), endOfRecords(channel));
+        }
+
+        // Act
+        EmbeddedAccountRepository recovered = open(SEGMENT_SIZE);
+
+        // Assert
+        // no snapshot was taken, so both records before the torn one were replayed from the journal
+        assertThat(recovered.findById(account.getId()).orElseThrow().getBalance(TargetCurrency.PLN)).isEqualTo(6000);
+        assertThat(recovered.findById(account.getId()).orElseThrow().getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    void whenManyThreadsExchangeOnOneAccountThenBalanceNeverGoesNegative() throws Exception {
+        // Arrange
+        EmbeddedAccountRepository repository = open(1 << 20);
+        Account account = repository.save(account("John", 10000));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // Act
+        List<Future<Long>> futures = executor.invokeAll(Collections.nCopies(8, () -> {
+            long succeeded = 0;
+            for (int i = 0; i < 50; i++) {
+                if (repository.exchange(account.getId(), TargetCurrency.PLN, TargetCurrency.USD, 100, 25).isPresent()) {
+                    succeeded++;
+                }
+            }
+            return succeeded;
+        }));
+        long succeeded = 0;
+        for (Future<Long> future : futures) {
+            succeeded += future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        assertThat(succeeded).isEqualTo(100);
+        crash(repository);
+        Account updated = open(1 << 20).findById(account.getId()).orElseThrow();
+        assertThat(updated.getBalance(TargetCurrency.PLN)).isZero();
+        assertThat(updated.getBalance(TargetCurrency.USD)).isEqualTo(2500);
+    }
+
+    @Test
+    void whenManyThreadsExchangeOnDifferentAccountsAcrossSegmentsThenEveryExchangeIsRecovered() throws Exception {
+        // Arrange
+        EmbeddedAccountRepository repository = open(SEGMENT_SIZE);
+        List<String> accountIds = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            accountIds.add(repository.save(account("John", 10000)).getId());
+        }
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        // Act
+        List<Future<Object>> futures = executor.invokeAll(accountIds.stream().<Callable<Object>>map(accountId -> () -> {
+            for (int i = 0; i < 50; i++) {
+                repository.exchange(accountId, TargetCurrency.PLN, TargetCurrency.USD, 100, 25);
+            }
+            return null;
+        }).toList());
+        for (Future<Object> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        crash(repository);
+        EmbeddedAccountRepository recovered = open(SEGMENT_SIZE);
+
+        // Assert
+        assertThat(AccountJournal.segments(dataDirectory)).hasSizeGreaterThan(5);
+        for (String accountId : accountIds) {
+            Account account = recovered.findById(accountId).orElseThrow();
+            assertThat(account.getBalance(TargetCurrency.PLN)).isEqualTo(5000);
+            assertThat(account.getBalance(TargetCurrency.USD)).isEqualTo(1250);
+            assertThat(account.getVersion()).isEqualTo(50);
+        }
+    }
+
+    @Test
+    void whenBalanceIsNegativeThenDistributionCountsItInTheFirstBucket() throws IOException {
+        // Arrange
+        EmbeddedAccountRepository repository = open(SEGMENT_SIZE);
+        repository.save(account("John", -500));
+        repository.save(account("Jane", 200));
+        repository.save(account("Jim", 5000));
+
+        // Act
+        List<BalanceBucket> buckets = repository.balanceDistribution(TargetCurrency.PLN, new long[]{0, 1000});
+
+        // Assert
+        assertThat(buckets).containsExactly(new BalanceBucket(0, 2, -300), new BalanceBucket(1000, 1, 5000));
+    }
+
+    private EmbeddedAccountRepository open(int segmentSize) throws IOException {
+        EmbeddedAccountRepository repository = new EmbeddedAccountRepository(dataDirectory, segmentSize);
+        repositories.add(repository);
+        return repository;
+    }
+
+    /**
+     * Leaves the journal of {@code repository} as the process dying would.
+     */
+    private void crash(EmbeddedAccountRepository repository) throws IOException {
+        repository.crash();
+        repositories.remove(repository);
+    }
+
+    /**
+     * @return offset of the zero length after the last record in {@code segment}
+     */
+    private static long endOfRecords(FileChannel segment) throws IOException {
+        MappedByteBuffer records = segment.map(FileChannel.MapMode.READ_ONLY, 0, segment.size());
+        int position = 0;
+        for (int length = records.getInt(position); length != 0; length = records.getInt(position)) {
+            position += 8 + length;
+        }
+        return position;
+    }
+
+    private static Account account(String firstName, long pln) {
+        Account account = new Account();
+        account.setFirstName(firstName);
+        account.setLastName("Doe");
+        account.setBalance(TargetCurrency.PLN, pln);
+        return account;
+    }
+}
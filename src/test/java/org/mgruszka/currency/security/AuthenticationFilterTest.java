@@ -0,0 +1,70 @@
+package org.mgruszka.currency.security;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {"security.jwt.enabled=true", "security.jwt.secret=" + TokenVerifierTest.SECRET,
+        "security.access-log.sample-rate=1", "admission.account.rate=0.01", "admission.account.burst=1"})
+class AuthenticationFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void whenJwtIsEnabledThenApiShouldRequireValidBearerToken() throws Exception {
+        String token = TokenVerifierTest.token("{\"alg\":\"HS256\"}",
+                "{\"sub\":\"client-1\",\"exp\":" + Instant.now().plusSeconds(300).getEpochSecond() + "}", TokenVerifierTest.SECRET);
+
+        mockMvc.perform(get("/api/accounts/{accountId}", "missing"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(header().string(HttpHeaders.WWW_AUTHENTICATE, "Bearer"));
+
+        mockMvc.perform(get("/api/accounts/{accountId}", "missing")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token + "x"))
+                .andExpect(status().isUnauthorized());
+
+        mockMvc.perform(get("/api/accounts/{accountId}", "missing")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isNotFound());
+
+        // the health status depends on MongoDB, only the missing token must not matter
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().is(Matchers.not(HttpStatus.UNAUTHORIZED.value())));
+    }
+
+    @Test
+    void whenTokenIsMissingThenExchangeShouldNotDrainAccountBucket() throws Exception {
+        String token = TokenVerifierTest.token("{\"alg\":\"HS256\"}",
+                "{\"sub\":\"client-1\",\"exp\":" + Instant.now().plusSeconds(300).getEpochSecond() + "}", TokenVerifierTest.SECRET);
+
+        // the bucket holds a single exchange
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/api/accounts/{accountId}/exchange", "victim")
+                            .param("amount", "10")
+                            .param("targetCurrency", "USD"))
+                    .andExpect(status().isUnauthorized());
+        }
+
+        mockMvc.perform(post("/api/accounts/{accountId}/exchange", "victim")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                        .param("amount", "10")
+                        .param("targetCurrency", "USD"))
+                .andExpect(status().isNotFound());
+    }
+}
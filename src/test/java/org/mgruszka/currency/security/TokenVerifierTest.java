@@ -0,0 +1,71 @@
+package org.mgruszka.currency.security;
+
+import org.junit.jupiter.api.Test;
+import org.mgruszka.currency.exceptions.InvalidTokenException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenVerifierTest {
+
+    static final String SECRET = "test-secret-of-at-least-thirty-two-bytes";
+
+    private static final Instant NOW = Instant.parse("2025-03-01T12:00:00Z");
+
+    private final TokenVerifier tokenVerifier = new TokenVerifier(SECRET, 100, Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @Test
+    void whenTokenIsValidThenClaimsShouldBeReturnedAndCached() {
+        // Arrange
+        String token = token("{\"alg\":\"HS256\",\"typ\":\"JWT\"}", "{\"sub\":\"client-1\",\"exp\":" + NOW.plusSeconds(60).getEpochSecond() + "}", SECRET);
+
+        // Act
+        VerifiedToken first = tokenVerifier.verify(token);
+        VerifiedToken second = tokenVerifier.verify(token);
+
+        // Assert
+        assertEquals("client-1", first.subject());
+        assertEquals(NOW.plusSeconds(60), first.expiresAt());
+        assertSame(first, second);
+        assertEquals(1, tokenVerifier.hitCount());
+    }
+
+    @Test
+    void whenTokenIsForgedExpiredOrUnsignedThenShouldBeRejectedAndNotCached() {
+        // Arrange
+        String exp = "{\"exp\":" + NOW.plusSeconds(60).getEpochSecond() + "}";
+        String forged = token("{\"alg\":\"HS256\"}", exp, "another-secret");
+        String expired = token("{\"alg\":\"HS256\"}", "{\"exp\":" + NOW.getEpochSecond() + "}", SECRET);
+        String unsigned = token("{\"alg\":\"none\"}", exp, SECRET);
+        String withoutExpiry = token("{\"alg\":\"HS256\"}", "{\"sub\":\"client-1\"}", SECRET);
+
+        // Act & Assert
+        assertThrows(InvalidTokenException.class, () -> tokenVerifier.verify(forged));
+        assertThrows(InvalidTokenException.class, () -> tokenVerifier.verify(forged));
+        assertThrows(InvalidTokenException.class, () -> tokenVerifier.verify(expired));
+        assertThrows(InvalidTokenException.class, () -> tokenVerifier.verify(unsigned));
+        assertThrows(InvalidTokenException.class, () -> tokenVerifier.verify(withoutExpiry));
+        assertThrows(InvalidTokenException.class, () -> tokenVerifier.verify("not.a-token"));
+        assertEquals(0, tokenVerifier.hitCount());
+    }
+
+    static String token(String header, String payload, String secret) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String signingInput = encoder.encodeToString(header.getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return signingInput + "." + encoder.encodeToString(mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
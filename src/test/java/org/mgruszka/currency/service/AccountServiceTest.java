@@ -1,23 +1,49 @@
 package org.mgruszka.currency.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mgruszka.currency.exceptions.AccountNotFoundException;
+import org.mgruszka.currency.exceptions.ImportFailedException;
 import org.mgruszka.currency.exceptions.InsufficientFundsException;
+import org.mgruszka.currency.exceptions.InvalidCurrencyException;
+import org.mgruszka.currency.exceptions.InvalidCursorException;
+import org.mgruszka.currency.exceptions.VersionMismatchException;
 import org.mgruszka.currency.model.Account;
 import org.mgruszka.currency.model.AccountCreationDTO;
 import org.mgruszka.currency.model.AccountDetailsDTO;
+import org.mgruszka.currency.model.AccountImportSummaryDTO;
+import org.mgruszka.currency.model.AccountSearchPageDTO;
+import org.mgruszka.currency.model.AccountSummaryDTO;
+import org.mgruszka.currency.model.AccountVersionView;
+import org.mgruszka.currency.model.CrossRateMatrix;
+import org.mgruszka.currency.model.ExchangeOperation;
+import org.mgruszka.currency.model.ExchangeRequestDTO;
+import org.mgruszka.currency.model.ExchangeResultDTO;
+import org.mgruszka.currency.model.ExchangeStatus;
+import org.mgruszka.currency.model.Quote;
 import org.mgruszka.currency.model.TargetCurrency;
 import org.mgruszka.currency.repository.AccountRepository;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,7 +55,14 @@ class AccountServiceTest {
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    private final AccountService accountService = new AccountService(accountRepository, objectMapper, recentExchangeRateService);
+    private final AccountCache accountCache = new AccountCache(100, Duration.ofMinutes(5));
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ExchangeLedger exchangeLedger = Mockito.mock(ExchangeLedger.class);
+
+    private final AccountService accountService = new AccountService(accountRepository, objectMapper, recentExchangeRateService, accountCache,
+            new ExchangeMetrics(meterRegistry), exchangeLedger, 2);
 
     @Test
     void shouldCreateNewAccountWithUniqueIdAndInitialBalanceInPLN() {
@@ -43,8 +76,8 @@ class AccountServiceTest {
         account.setId(UUID.randomUUID().toString());
         account.setFirstName(request.getFirstName());
         account.setLastName(request.getLastName());
-        account.setBalancePLN(request.getInitialBalance());
-        account.setBalanceUSD(0);
+        account.setBalance(TargetCurrency.PLN, 100000);
+        account.setBalance(TargetCurrency.USD, 0);
 
         when(accountRepository.save(any(Account.class))).thenReturn(account);
 
@@ -57,6 +90,40 @@ class AccountServiceTest {
         verify(accountRepository).save(any(Account.class));
     }
 
+    @Test
+    void shouldImportNewlineDelimitedAccountsInBatches() {
+        // Arrange
+        String records = """
+                {"firstName":"John","lastName":"Doe","initialBalance":100.0}
+                {"firstName":"Jane","lastName":"Doe","initialBalance":200.0}
+                {"firstName":"Jim","lastName":"Doe","initialBalance":300.0}
+                """;
+
+        when(accountRepository.insert(ArgumentMatchers.<Account>anyList())).thenAnswer(invocation -> List.copyOf(invocation.<List<Account>>getArgument(0)));
+
+        // Act
+        AccountImportSummaryDTO summary = accountService.importAccounts(new ByteArrayInputStream(records.getBytes(StandardCharsets.UTF_8)));
+
+        // Assert
+        assertNotNull(summary.getImportId());
+        assertEquals(3, summary.getCreated());
+        verify(accountRepository, times(2)).insert(ArgumentMatchers.<Account>anyList());
+    }
+
+    @Test
+    void shouldThrowImportFailedExceptionWhenRecordIsInvalid() {
+        // Arrange
+        String records = """
+                {"firstName":"John","lastName":"Doe","initialBalance":100.0}
+                {"firstName":"Jane","lastName":
+                """;
+
+        // Act & Assert
+        assertThrows(ImportFailedException.class,
+                () -> accountService.importAccounts(new ByteArrayInputStream(records.getBytes(StandardCharsets.UTF_8))));
+        verifyNoInteractions(accountRepository);
+    }
+
     @Test
     void shouldThrowAccountNotFoundExceptionWhenExchangingCurrencyForNonExistentAccount() {
         // Arrange
@@ -64,15 +131,50 @@ class AccountServiceTest {
         double amount = 100.0;
         TargetCurrency targetCurrency = TargetCurrency.USD;
 
-        when(accountRepository.findById(nonExistentAccountId)).thenReturn(Optional.empty());
+        when(recentExchangeRateService.getRates()).thenReturn(rates(4.0));
+        when(accountRepository.exchange(nonExistentAccountId, TargetCurrency.PLN, targetCurrency, 10000, 2500)).thenReturn(Optional.empty());
+        when(accountRepository.existsById(nonExistentAccountId)).thenReturn(false);
 
         // Act & Assert
         assertThrows(AccountNotFoundException.class, () -> {
             accountService.exchangeCurrency(nonExistentAccountId, amount, targetCurrency);
         });
 
-        verify(accountRepository).findById(nonExistentAccountId);
+        verify(accountRepository).exchange(nonExistentAccountId, TargetCurrency.PLN, targetCurrency, 10000, 2500);
+        verify(accountRepository).existsById(nonExistentAccountId);
         verifyNoMoreInteractions(accountRepository);
+        verifyNoInteractions(exchangeLedger);
+    }
+
+    @Test
+    void shouldThrowVersionMismatchExceptionWhenAccountChangedSinceExpectedVersion() {
+        // Arrange
+        String accountId = "existing-account-id";
+        AccountVersionView currentVersion = () -> 4L;
+        when(recentExchangeRateService.getRates()).thenReturn(rates(4.0));
+        when(accountRepository.exchange(accountId, TargetCurrency.PLN, TargetCurrency.USD, 10000, 2500, 3)).thenReturn(Optional.empty());
+        when(accountRepository.findVersionById(accountId)).thenReturn(Optional.of(currentVersion));
+
+        // Act & Assert
+        assertThrows(VersionMismatchException.class,
+                () -> accountService.exchangeCurrency(accountId, 100.0, null, TargetCurrency.USD, 3L));
+        assertEquals(1.0, meterRegistry.get("currency.exchanges").tag("currency", "USD").tag("outcome", "version_mismatch").counter().count());
+        verify(accountRepository, never()).existsById(accountId);
+        verifyNoInteractions(exchangeLedger);
+    }
+
+    @Test
+    void shouldReadOnlyVersionWhenAccountIsNotCached() {
+        // Arrange
+        AccountVersionView version = () -> 7L;
+        when(accountRepository.findVersionById("account-id")).thenReturn(Optional.of(version));
+
+        // Act
+        long result = accountService.getAccountVersion("account-id");
+
+        // Assert
+        assertEquals(7, result);
+        verify(accountRepository, never()).findById(any());
     }
 
     @Test
@@ -82,17 +184,16 @@ class AccountServiceTest {
         double amountToExchange = 1500.0; // More than available balance
         TargetCurrency targetCurrency = TargetCurrency.USD;
 
-        Account account = new Account();
-        account.setId(accountId);
-        account.setBalancePLN(1000.0); // Available balance in PLN
-        account.setBalanceUSD(0);
-
-        when(accountRepository.findById(accountId)).thenReturn(Optional.of(account));
+        // the balance guard in the conditional update does not match, the account itself exists
+        when(recentExchangeRateService.getRates()).thenReturn(rates(4.0));
+        when(accountRepository.exchange(accountId, TargetCurrency.PLN, targetCurrency, 150000, 37500)).thenReturn(Optional.empty());
+        when(accountRepository.existsById(accountId)).thenReturn(true);
 
         // Act & Assert
         assertThrows(InsufficientFundsException.class, () -> accountService.exchangeCurrency(accountId, amountToExchange, targetCurrency));
 
-        verify(accountRepository).findById(accountId);
+        verify(accountRepository).exchange(accountId, TargetCurrency.PLN, targetCurrency, 150000, 37500);
+        verify(accountRepository).existsById(accountId);
         verifyNoMoreInteractions(accountRepository);
     }
 
@@ -103,21 +204,18 @@ class AccountServiceTest {
         double amountToExchange = 500.0; // More than available balance in USD
         TargetCurrency targetCurrency = TargetCurrency.PLN;
 
-        Account account = new Account();
-        account.setFirstName("John");
-        account.setLastName("Doe");
-        account.setId(accountId);
-        account.setBalancePLN(0);
-        account.setBalanceUSD(100.0); // Available balance in USD
-
-        when(accountRepository.findById(accountId)).thenReturn(Optional.of(account));
+        // the balance guard in the conditional update does not match, the account itself exists
+        when(recentExchangeRateService.getRates()).thenReturn(rates(4.0));
+        when(accountRepository.exchange(accountId, TargetCurrency.USD, targetCurrency, 50000, 200000)).thenReturn(Optional.empty());
+        when(accountRepository.existsById(accountId)).thenReturn(true);
 
         // Act & Assert
         assertThrows(InsufficientFundsException.class, () -> {
             accountService.exchangeCurrency(accountId, amountToExchange, targetCurrency);
         });
 
-        verify(accountRepository).findById(accountId);
+        verify(accountRepository).exchange(accountId, TargetCurrency.USD, targetCurrency, 50000, 200000);
+        verify(accountRepository).existsById(accountId);
         verifyNoMoreInteractions(accountRepository);
     }
 
@@ -133,12 +231,11 @@ class AccountServiceTest {
         account.setFirstName("John");
         account.setLastName("Doe");
         account.setId(accountId);
-        account.setBalancePLN(1000.0); // Initial balance in PLN
-        account.setBalanceUSD(0); // Initial balance in USD
+        account.setBalance(TargetCurrency.PLN, 50000); // Balance in grosze after the update
+        account.setBalance(TargetCurrency.USD, 12500); // Balance in cents after the update
 
-        when(accountRepository.findById(accountId)).thenReturn(Optional.of(account));
-        when(recentExchangeRateService.getUSDExchangeRate()).thenReturn(exchangeRate);
-        when(accountRepository.save(any())).thenReturn(account);
+        when(recentExchangeRateService.getRates()).thenReturn(rates(exchangeRate));
+        when(accountRepository.exchange(accountId, TargetCurrency.PLN, targetCurrency, 50000, 12500)).thenReturn(Optional.of(account));
 
         // Act
         AccountDetailsDTO updatedAccount = accountService.exchangeCurrency(accountId, amountToExchange, targetCurrency);
@@ -146,9 +243,10 @@ class AccountServiceTest {
         // Assert
         assertEquals(500.0, updatedAccount.getBalancePLN());
         assertEquals(125.0, updatedAccount.getBalanceUSD()); // 500 PLN / 4.0 = 125 USD
-        verify(accountRepository).findById(accountId);
-        verify(recentExchangeRateService).getUSDExchangeRate();
-        verify(accountRepository).save(any(Account.class));
+        verify(recentExchangeRateService).getRates();
+        verify(accountRepository).exchange(accountId, TargetCurrency.PLN, targetCurrency, 50000, 12500);
+        verifyNoMoreInteractions(accountRepository);
+        verify(exchangeLedger).record(List.of(new ExchangeOperation(accountId, TargetCurrency.PLN, targetCurrency, 50000, 12500)));
     }
 
     @Test
@@ -163,12 +261,11 @@ class AccountServiceTest {
         account.setFirstName("John");
         account.setLastName("Doe");
         account.setId(accountId);
-        account.setBalancePLN(0); // Initial balance in PLN
-        account.setBalanceUSD(100.0); // Initial balance in USD
+        account.setBalance(TargetCurrency.PLN, 20000); // Balance in grosze after the update
+        account.setBalance(TargetCurrency.USD, 5000); // Balance in cents after the update
 
-        when(accountRepository.findById(accountId)).thenReturn(Optional.of(account));
-        when(recentExchangeRateService.getUSDExchangeRate()).thenReturn(exchangeRate);
-        when(accountRepository.save(any())).thenReturn(account);
+        when(recentExchangeRateService.getRates()).thenReturn(rates(exchangeRate));
+        when(accountRepository.exchange(accountId, TargetCurrency.USD, targetCurrency, 5000, 20000)).thenReturn(Optional.of(account));
 
         // Act
         AccountDetailsDTO updatedAccount = accountService.exchangeCurrency(accountId, amountToExchange, targetCurrency);
@@ -176,9 +273,113 @@ class AccountServiceTest {
         // Assert
         assertEquals(200.0, updatedAccount.getBalancePLN()); // 50 USD * 4.0 = 200 PLN
         assertEquals(50.0, updatedAccount.getBalanceUSD());
-        verify(accountRepository).findById(accountId);
-        verify(recentExchangeRateService).getUSDExchangeRate();
-        verify(accountRepository).save(any(Account.class));
+        verify(recentExchangeRateService).getRates();
+        verify(accountRepository).exchange(accountId, TargetCurrency.USD, targetCurrency, 5000, 20000);
+        verifyNoMoreInteractions(accountRepository);
+    }
+
+    @Test
+    void shouldExchangeBetweenAnyTwoTableCurrenciesThroughCrossRate() {
+        // Arrange
+        String accountId = "existing-account-id";
+        Account account = new Account();
+        account.setId(accountId);
+        account.setBalance(TargetCurrency.EUR, 0);
+        account.setBalance(TargetCurrency.GBP, 8500);
+
+        when(recentExchangeRateService.getRates()).thenReturn(CrossRateMatrix.of(LocalDate.of(2025, 1, 2),
+                Map.of(TargetCurrency.USD, 4.0, TargetCurrency.EUR, 4.25, TargetCurrency.GBP, 5.0)));
+        when(accountRepository.exchange(accountId, TargetCurrency.EUR, TargetCurrency.GBP, 10000, 8500)).thenReturn(Optional.of(account));
+
+        // Act
+        AccountDetailsDTO updatedAccount = accountService.exchangeCurrency(accountId, 100.0, TargetCurrency.EUR, TargetCurrency.GBP);
+
+        // Assert
+        assertEquals(85.0, updatedAccount.getBalances().get(TargetCurrency.GBP)); // 100 EUR * 4.25 / 5.0 = 85 GBP
+        assertEquals(0.0, updatedAccount.getBalances().get(TargetCurrency.EUR));
+        verify(accountRepository).exchange(accountId, TargetCurrency.EUR, TargetCurrency.GBP, 10000, 8500);
+        verifyNoMoreInteractions(accountRepository);
+    }
+
+    @Test
+    void shouldExecuteQuoteAtLockedAmountsWithoutRateLookup() {
+        // Arrange
+        String accountId = "existing-account-id";
+        Account account = new Account();
+        account.setId(accountId);
+        account.setBalance(TargetCurrency.PLN, 50000);
+        account.setBalance(TargetCurrency.USD, 12500);
+
+        when(accountRepository.exchange(accountId, TargetCurrency.PLN, TargetCurrency.USD, 50000, 12500)).thenReturn(Optional.of(account));
+
+        // Act
+        AccountDetailsDTO updatedAccount = accountService.exchangeCurrency(accountId,
+                new Quote("quote-id", accountId, TargetCurrency.PLN, TargetCurrency.USD, 50000, 12500, Instant.now().plusSeconds(30)));
+
+        // Assert
+        assertEquals(125.0, updatedAccount.getBalanceUSD());
+        verifyNoInteractions(recentExchangeRateService);
+        assertEquals(1.0, exchanges(TargetCurrency.USD, "success"));
+    }
+
+    @Test
+    void shouldRejectExchangeWhenSourceAndTargetCurrencyAreTheSame() {
+        // Act & Assert
+        assertThrows(InvalidCurrencyException.class,
+                () -> accountService.exchangeCurrency("existing-account-id", 100.0, TargetCurrency.EUR, TargetCurrency.EUR));
+        verifyNoInteractions(accountRepository);
+    }
+
+    @Test
+    void shouldPriceBatchAgainstOneRateSnapshotAndReturnStatusOfEveryItem() {
+        // Arrange
+        List<ExchangeRequestDTO> requests = List.of(
+                new ExchangeRequestDTO("first-account-id", 400.0, TargetCurrency.USD),
+                new ExchangeRequestDTO("second-account-id", 10.0, TargetCurrency.PLN),
+                new ExchangeRequestDTO("non-existent-id", 100.0, TargetCurrency.USD));
+        List<ExchangeOperation> operations = List.of(
+                new ExchangeOperation("first-account-id", TargetCurrency.PLN, TargetCurrency.USD, 40000, 10000),
+                new ExchangeOperation("second-account-id", TargetCurrency.USD, TargetCurrency.PLN, 1000, 4000),
+                new ExchangeOperation("non-existent-id", TargetCurrency.PLN, TargetCurrency.USD, 10000, 2500));
+
+        when(recentExchangeRateService.getRates()).thenReturn(rates(4.0));
+        when(accountRepository.bulkExchange(operations)).thenReturn(List.of(
+                ExchangeStatus.SUCCESS, ExchangeStatus.INSUFFICIENT_FUNDS, ExchangeStatus.ACCOUNT_NOT_FOUND));
+
+        // Act
+        List<ExchangeResultDTO> results = accountService.exchangeCurrencyBatch(requests);
+
+        // Assert
+        assertEquals(3, results.size());
+        assertEquals(ExchangeStatus.SUCCESS, results.get(0).getStatus());
+        assertEquals(100.0, results.get(0).getConvertedAmount());
+        assertEquals(ExchangeStatus.INSUFFICIENT_FUNDS, results.get(1).getStatus());
+        assertEquals(ExchangeStatus.ACCOUNT_NOT_FOUND, results.get(2).getStatus());
+        verify(recentExchangeRateService, times(1)).getRates();
+        verify(accountRepository).bulkExchange(operations);
+        verifyNoMoreInteractions(accountRepository);
+        verify(exchangeLedger).record(List.of(operations.get(0)));
+    }
+
+    @Test
+    void shouldCountExchangeOutcomesByTargetCurrency() {
+        // Arrange
+        when(recentExchangeRateService.getRates()).thenReturn(rates(4.0));
+        when(accountRepository.exchange("non-existent-id", TargetCurrency.PLN, TargetCurrency.USD, 10000, 2500)).thenReturn(Optional.empty());
+        when(accountRepository.existsById("non-existent-id")).thenReturn(false);
+        when(accountRepository.bulkExchange(anyList())).thenReturn(List.of(ExchangeStatus.SUCCESS, ExchangeStatus.INSUFFICIENT_FUNDS));
+
+        // Act
+        assertThrows(AccountNotFoundException.class, () -> accountService.exchangeCurrency("non-existent-id", 100.0, TargetCurrency.USD));
+        accountService.exchangeCurrencyBatch(List.of(
+                new ExchangeRequestDTO("first-account-id", 400.0, TargetCurrency.USD),
+                new ExchangeRequestDTO("second-account-id", 10.0, TargetCurrency.PLN)));
+
+        // Assert
+        assertEquals(1.0, exchanges(TargetCurrency.USD, "account_not_found"));
+        assertEquals(1.0, exchanges(TargetCurrency.USD, "success"));
+        assertEquals(1.0, exchanges(TargetCurrency.PLN, "insufficient_funds"));
+        assertEquals(0.0, exchanges(TargetCurrency.PLN, "success"));
     }
 
     @Test
@@ -189,8 +390,8 @@ class AccountServiceTest {
         account.setId(accountId);
         account.setFirstName("John");
         account.setLastName("Doe");
-        account.setBalancePLN(1000.0);
-        account.setBalanceUSD(200.0);
+        account.setBalance(TargetCurrency.PLN, 100000);
+        account.setBalance(TargetCurrency.USD, 20000);
 
         when(accountRepository.findById(accountId)).thenReturn(Optional.of(account));
 
@@ -222,6 +423,87 @@ class AccountServiceTest {
         verify(accountRepository).findById(nonExistentAccountId);
         verifyNoMoreInteractions(accountRepository);
     }
-}
 
+    @Test
+    void shouldServeRepeatedAccountDetailsFromCache() {
+        // Arrange
+        String accountId = "existing-account-id";
+        Account account = new Account();
+        account.setId(accountId);
+        account.setFirstName("John");
+        account.setLastName("Doe");
+        account.setBalance(TargetCurrency.PLN, 100000);
+
+        when(accountRepository.findById(accountId)).thenReturn(Optional.of(account));
+
+        // Act
+        accountService.getAccount(accountId);
+        AccountDetailsDTO accountDetails = accountService.getAccount(accountId);
+
+        // Assert
+        assertEquals(1000.0, accountDetails.getBalancePLN());
+        assertEquals(1, accountCache.hitCount());
+        assertEquals(1, accountCache.missCount());
+        verify(accountRepository, times(1)).findById(accountId);
+    }
+
+    @Test
+    void shouldEvictCachedAccountDetailsAfterExchange() {
+        // Arrange
+        String accountId = "existing-account-id";
+        Account account = new Account();
+        account.setId(accountId);
+        account.setBalance(TargetCurrency.PLN, 100000);
+
+        Account exchanged = new Account();
+        exchanged.setId(accountId);
+        exchanged.setBalance(TargetCurrency.PLN, 50000);
+        exchanged.setBalance(TargetCurrency.USD, 12500);
+
+        when(accountRepository.findById(accountId)).thenReturn(Optional.of(account)).thenReturn(Optional.of(exchanged));
+        when(recentExchangeRateService.getRates()).thenReturn(rates(4.0));
+        when(accountRepository.exchange(accountId, TargetCurrency.PLN, TargetCurrency.USD, 50000, 12500)).thenReturn(Optional.of(exchanged));
+        accountService.getAccount(accountId);
 
+        // Act
+        accountService.exchangeCurrency(accountId, 500.0, TargetCurrency.USD);
+        AccountDetailsDTO accountDetails = accountService.getAccount(accountId);
+
+        // Assert
+        assertEquals(500.0, accountDetails.getBalancePLN());
+        assertEquals(125.0, accountDetails.getBalanceUSD());
+        verify(accountRepository, times(2)).findById(accountId);
+    }
+
+    private static CrossRateMatrix rates(double usdMidRate) {
+        return CrossRateMatrix.of(LocalDate.of(2025, 1, 2), Map.of(TargetCurrency.USD, usdMidRate));
+    }
+
+    private double exchanges(TargetCurrency currency, String outcome) {
+        return meterRegistry.get("currency.exchanges").tag("currency", currency.name()).tag("outcome", outcome).counter().count();
+    }
+
+    @Test
+    void shouldContinueSearchAfterLastAccountOfPreviousPage() {
+        // Arrange
+        AccountSummaryDTO adam = new AccountSummaryDTO("id-1", null, "Doe");
+        AccountSummaryDTO jane = new AccountSummaryDTO("id-2", "Jane", "Doe");
+        when(accountRepository.searchByName("Do", null, null, 2)).thenReturn(List.of(adam, jane));
+        when(accountRepository.searchByName(eq("Do"), isNull(), any(AccountSummaryDTO.class), eq(2))).thenReturn(List.of(jane));
+
+        // Act
+        AccountSearchPageDTO first = accountService.searchAccounts("Do", null, null, 1);
+        AccountSearchPageDTO second = accountService.searchAccounts("Do", null, first.getNextCursor(), 1);
+
+        // Assert
+        assertEquals(List.of(adam), first.getAccounts());
+        assertNotNull(first.getNextCursor());
+        AccountSummaryDTO after = AccountService.decodeSearchCursor(first.getNextCursor());
+        assertEquals("id-1", after.getId());
+        assertEquals("Doe", after.getLastName());
+        assertNull(after.getFirstName());
+        assertEquals(List.of(jane), second.getAccounts());
+        assertNull(second.getNextCursor());
+        assertThrows(InvalidCursorException.class, () -> accountService.searchAccounts("Do", null, "not a cursor", 1));
+    }
+}
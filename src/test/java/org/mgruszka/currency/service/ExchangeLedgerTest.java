@@ -0,0 +1,138 @@
+package org.mgruszka.currency.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mgruszka.currency.exceptions.InvalidCursorException;
+import org.mgruszka.currency.model.ExchangeOperation;
+import org.mgruszka.currency.model.LedgerEntry;
+import org.mgruszka.currency.model.LedgerEntryDTO;
+import org.mgruszka.currency.model.LedgerPageDTO;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.mgruszka.currency.repository.LedgerRepository;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class ExchangeLedgerTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-10T12:00:00.123456Z");
+
+    private static final ExchangeOperation OPERATION = new ExchangeOperation("account-id", TargetCurrency.PLN, TargetCurrency.USD, 40000, 10000);
+
+    private final LedgerRepository ledgerRepository = Mockito.mock(LedgerRepository.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldInsertEntryBeforeReturningWhenSynchronous() {
+        // Arrange
+        ExchangeLedger ledger = ledger(ExchangeLedger.Durability.SYNC, 10);
+
+        // Act
+        ledger.record(List.of(OPERATION));
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<LedgerEntry>> appended = ArgumentCaptor.forClass(List.class);
+        verify(ledgerRepository).append(appended.capture());
+        LedgerEntry entry = appended.getValue().getFirst();
+        assertNotNull(entry.getId());
+        assertEquals("account-id", entry.getAccountId());
+        assertEquals(40000, entry.getAmount());
+        assertEquals(10000, entry.getConvertedAmount());
+        assertEquals(Instant.parse("2025-01-10T12:00:00.123Z"), entry.getTimestamp());
+        assertFalse(ledger.enqueue(List.of(OPERATION)));
+    }
+
+    @Test
+    void shouldWriteQueuedEntriesInBackgroundWhenBatched() {
+        // Arrange
+        ExchangeLedger ledger = ledger(ExchangeLedger.Durability.BATCHED, 10);
+        ledger.start();
+
+        // Act
+        ledger.record(List.of(OPERATION, OPERATION));
+        ledger.record(List.of(OPERATION));
+        ledger.flush();
+        ledger.stop();
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<LedgerEntry>> appended = ArgumentCaptor.forClass(List.class);
+        verify(ledgerRepository, atLeastOnce()).append(appended.capture());
+        assertEquals(3, appended.getAllValues().stream().mapToInt(List::size).sum());
+        assertFalse(ledger.isRunning());
+    }
+
+    @Test
+    void shouldLeaveInsertToCallerWhenQueueIsFull() {
+        // Arrange
+        ExchangeLedger ledger = ledger(ExchangeLedger.Durability.BATCHED, 1);
+
+        // Act & Assert
+        // not started, nothing is taken from the queue
+        assertFalse(ledger.enqueue(List.of(OPERATION)));
+        ledger.record(List.of(OPERATION, OPERATION));
+        verify(ledgerRepository).append(anyList());
+    }
+
+    @Test
+    void shouldNotFailAppliedExchangeWhenInsertFails() {
+        // Arrange
+        ExchangeLedger sync = ledger(ExchangeLedger.Durability.SYNC, 10);
+        ExchangeLedger batched = ledger(ExchangeLedger.Durability.BATCHED, 10);
+        DataAccessResourceFailureException down = new DataAccessResourceFailureException("down");
+        doThrow(down).doThrow(down).doNothing().when(ledgerRepository).append(anyList());
+        batched.start();
+
+        // Act
+        sync.record(List.of(OPERATION, OPERATION));
+        batched.write(List.of(OPERATION));
+        batched.flush();
+        batched.stop();
+
+        // Assert
+        assertEquals(2.0, meterRegistry.get("ledger.entries.dropped").counter().count());
+        // the entry of the batched ledger was written again by its writer
+        verify(ledgerRepository, times(3)).append(anyList());
+    }
+
+    @Test
+    void shouldContinueHistoryAfterLastEntryOfPreviousPage() {
+        // Arrange
+        ExchangeLedger ledger = ledger(ExchangeLedger.Durability.SYNC, 10);
+        Instant timestamp = Instant.parse("2025-01-10T11:00:00Z");
+        when(ledgerRepository.findHistory("account-id", null, null, 3)).thenReturn(List.of(
+                entry("c", timestamp), entry("b", timestamp), entry("a", timestamp.minusSeconds(1))));
+        when(ledgerRepository.findHistory("account-id", timestamp, "b", 3)).thenReturn(List.of(
+                entry("a", timestamp.minusSeconds(1))));
+
+        // Act
+        LedgerPageDTO first = ledger.getHistory("account-id", null, 2);
+        LedgerPageDTO second = ledger.getHistory("account-id", first.getNextCursor(), 2);
+
+        // Assert
+        assertEquals(List.of("c", "b"), first.getEntries().stream().map(LedgerEntryDTO::getId).toList());
+        assertNotNull(first.getNextCursor());
+        assertEquals(List.of("a"), second.getEntries().stream().map(LedgerEntryDTO::getId).toList());
+        assertNull(second.getNextCursor());
+        assertThrows(InvalidCursorException.class, () -> ledger.getHistory("account-id", "not a cursor", 2));
+    }
+
+    private ExchangeLedger ledger(ExchangeLedger.Durability durability, int capacity) {
+        return new ExchangeLedger(ledgerRepository, durability, capacity, 2, meterRegistry, Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    private static LedgerEntry entry(String id, Instant timestamp) {
+        return new LedgerEntry(id, "account-id", TargetCurrency.PLN, TargetCurrency.USD, 40000, 10000, timestamp);
+    }
+}
@@ -0,0 +1,122 @@
+package org.mgruszka.currency.service;
+
+import org.junit.jupiter.api.Test;
+import org.mgruszka.currency.exceptions.InvalidCurrencyException;
+import org.mgruszka.currency.exceptions.InvalidQuoteException;
+import org.mgruszka.currency.model.CrossRateMatrix;
+import org.mgruszka.currency.model.Quote;
+import org.mgruszka.currency.model.QuoteDTO;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.mgruszka.currency.repository.ExecutedQuotes;
+import org.mockito.Mockito;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class QuoteServiceTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-02T12:00:00Z");
+    private static final String ACCOUNT_ID = "account-id";
+
+    private final RecentExchangeRateService recentExchangeRateService = Mockito.mock(RecentExchangeRateService.class);
+
+    private final QuoteService quoteService = quoteService(Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @Test
+    void shouldPriceQuoteAndExecuteItFromTokenAlone() {
+        // Arrange
+        when(recentExchangeRateService.getRatesAsync()).thenReturn(CompletableFuture.completedFuture(
+                CrossRateMatrix.of(LocalDate.of(2025, 1, 2), Map.of(TargetCurrency.USD, 4.0))));
+
+        // Act
+        QuoteDTO quoted = quoteService.quote(ACCOUNT_ID, 500.0, null, TargetCurrency.USD).join();
+        Quote quote = quoteService.execute(quoted.getToken(), ACCOUNT_ID, null, null, null);
+
+        // Assert
+        assertEquals(125.0, quoted.getConvertedAmount());
+        assertEquals(NOW.plusSeconds(30), quoted.getExpiresAt());
+        assertEquals(new Quote(quote.id(), ACCOUNT_ID, TargetCurrency.PLN, TargetCurrency.USD, 50000, 12500, NOW.plusSeconds(30)), quote);
+        verify(recentExchangeRateService, times(1)).getRatesAsync();
+    }
+
+    @Test
+    void shouldRejectTamperedToken() {
+        // Arrange
+        String token = quoteService.sign(quote("quote-id"));
+        String forgedPayload = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("quote-id:PLN:USD:50000:99999:" + NOW.plusSeconds(30).getEpochSecond() + ":" + ACCOUNT_ID).getBytes());
+        String forged = forgedPayload + token.substring(token.indexOf('.'));
+
+        // Act & Assert
+        assertThrows(InvalidQuoteException.class, () -> quoteService.execute(forged, ACCOUNT_ID, null, null, null));
+        assertThrows(InvalidQuoteException.class, () -> quoteService.execute("not-a-token", ACCOUNT_ID, null, null, null));
+        QuoteService otherKey = new QuoteService(recentExchangeRateService, "other-secret", Duration.ofSeconds(30), Clock.fixed(NOW, ZoneOffset.UTC));
+        assertThrows(InvalidQuoteException.class, () -> otherKey.execute(token, ACCOUNT_ID, null, null, null));
+    }
+
+    @Test
+    void shouldRejectExpiredTokenAndTokenNotMatchingRequest() {
+        // Arrange
+        Quote quote = quote("quote-id");
+        String token = quoteService.sign(quote);
+        QuoteService later = quoteService(Clock.fixed(NOW.plusSeconds(30), ZoneOffset.UTC));
+
+        // Act & Assert
+        assertThrows(InvalidQuoteException.class, () -> later.execute(token, ACCOUNT_ID, null, null, null));
+        assertThrows(InvalidQuoteException.class, () -> quoteService.execute(token, ACCOUNT_ID, 600.0, null, null));
+        assertThrows(InvalidQuoteException.class, () -> quoteService.execute(token, ACCOUNT_ID, null, null, TargetCurrency.EUR));
+        assertEquals(quote, quoteService.execute(token, ACCOUNT_ID, 500.0, TargetCurrency.PLN, TargetCurrency.USD));
+    }
+
+    @Test
+    void shouldExecuteQuoteOnlyOnceAndOnlyOnItsAccount() {
+        // Arrange
+        String token = quoteService.sign(quote("quote-id"));
+
+        // Act & Assert
+        assertThrows(InvalidQuoteException.class, () -> quoteService.execute(token, "other-account-id", null, null, null));
+        assertEquals("quote-id", quoteService.execute(token, ACCOUNT_ID, null, null, null).id());
+        assertThrows(InvalidQuoteException.class, () -> quoteService.execute(token, ACCOUNT_ID, null, null, null));
+        assertEquals("other-quote-id", quoteService.execute(quoteService.sign(quote("other-quote-id")), ACCOUNT_ID, null, null, null).id());
+    }
+
+    @Test
+    void shouldRejectQuoteAnotherInstanceAlreadyExecuted() {
+        // Arrange
+        ExecutedQuotes executedQuotes = Mockito.mock(ExecutedQuotes.class);
+        when(executedQuotes.tryMark("quote-id", NOW.plusSeconds(30))).thenReturn(true, false);
+        QuoteService first = new QuoteService(recentExchangeRateService, "secret", Duration.ofSeconds(30), Clock.fixed(NOW, ZoneOffset.UTC), executedQuotes);
+        QuoteService second = new QuoteService(recentExchangeRateService, "secret", Duration.ofSeconds(30), Clock.fixed(NOW, ZoneOffset.UTC), executedQuotes);
+        String token = first.sign(quote("quote-id"));
+
+        // Act & Assert
+        assertEquals("quote-id", first.execute(token, ACCOUNT_ID, null, null, null).id());
+        assertThrows(InvalidQuoteException.class, () -> second.execute(token, ACCOUNT_ID, null, null, null));
+        // the replay on the same instance is rejected without asking MongoDB
+        assertThrows(InvalidQuoteException.class, () -> first.execute(token, ACCOUNT_ID, null, null, null));
+        verify(executedQuotes, times(2)).tryMark("quote-id", NOW.plusSeconds(30));
+    }
+
+    @Test
+    void shouldRejectQuoteWithSameSourceAndTargetCurrency() {
+        assertThrows(InvalidCurrencyException.class, () -> quoteService.quote(ACCOUNT_ID, 100.0, TargetCurrency.EUR, TargetCurrency.EUR));
+        verifyNoInteractions(recentExchangeRateService);
+    }
+
+    private static Quote quote(String id) {
+        return new Quote(id, ACCOUNT_ID, TargetCurrency.PLN, TargetCurrency.USD, 50000, 12500, NOW.plusSeconds(30));
+    }
+
+    private QuoteService quoteService(Clock clock) {
+        return new QuoteService(recentExchangeRateService, "secret", Duration.ofSeconds(30), clock);
+    }
+}
@@ -0,0 +1,110 @@
+package org.mgruszka.currency.service;
+
+import org.junit.jupiter.api.Test;
+import org.mgruszka.currency.client.NbpClient;
+import org.mgruszka.currency.exceptions.RateNotFoundException;
+import org.mgruszka.currency.model.CrossRateMatrix;
+import org.mgruszka.currency.model.RateTable;
+import org.mgruszka.currency.model.RateTableDTO;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.mgruszka.currency.repository.RateTableRepository;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RateHistoryServiceTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-10T12:00:00Z");
+
+    private final RateTableRepository rateTableRepository = Mockito.mock(RateTableRepository.class);
+
+    private final NbpClient nbpClient = Mockito.mock(NbpClient.class);
+
+    private final RecentExchangeRateService recentExchangeRateService = Mockito.mock(RecentExchangeRateService.class);
+
+    private final RateHistoryService rateHistoryService = new RateHistoryService(rateTableRepository, nbpClient, recentExchangeRateService,
+            "", Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @Test
+    void shouldSeedCurrentRatesWithLatestStoredTableOnStartup() {
+        // Arrange
+        Instant fetchedAt = NOW.minusSeconds(600);
+        when(rateTableRepository.findAll()).thenReturn(List.of(
+                table(LocalDate.of(2025, 1, 3), 4.1, fetchedAt),
+                table(LocalDate.of(2025, 1, 2), 4.0, fetchedAt)));
+
+        // Act
+        rateHistoryService.run(null);
+
+        // Assert
+        ArgumentCaptor<CrossRateMatrix> seeded = ArgumentCaptor.forClass(CrossRateMatrix.class);
+        verify(recentExchangeRateService).seed(seeded.capture(), eq(fetchedAt));
+        assertEquals(LocalDate.of(2025, 1, 3), seeded.getValue().getEffectiveDate());
+        assertEquals(4.1, seeded.getValue().getMidRates().get(TargetCurrency.USD));
+        verifyNoInteractions(nbpClient);
+    }
+
+    @Test
+    void shouldAnswerWithLatestTableAtOrBeforeRequestedDate() {
+        // Arrange
+        when(rateTableRepository.findAll()).thenReturn(List.of(
+                table(LocalDate.of(2025, 1, 2), 4.0, NOW),
+                table(LocalDate.of(2025, 1, 3), 4.1, NOW)));
+        rateHistoryService.run(null);
+
+        // Act
+        RateTableDTO friday = rateHistoryService.getRatesAsOf(LocalDate.of(2025, 1, 3));
+        RateTableDTO weekend = rateHistoryService.getRatesAsOf(LocalDate.of(2025, 1, 5));
+
+        // Assert
+        assertEquals(LocalDate.of(2025, 1, 3), friday.getEffectiveDate());
+        assertEquals(4.1, weekend.getRates().get(TargetCurrency.USD));
+        assertFalse(weekend.getRates().containsKey(TargetCurrency.EUR));
+        assertThrows(RateNotFoundException.class, () -> rateHistoryService.getRatesAsOf(LocalDate.of(2025, 1, 1)));
+    }
+
+    @Test
+    void shouldBackfillInRangesNbpAccepts() {
+        // Arrange
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 6, 30);
+        when(nbpClient.getRateTables(any(), any())).thenReturn(List.of());
+        when(nbpClient.getRateTables(from, LocalDate.of(2024, 4, 2))).thenReturn(List.of(
+                CrossRateMatrix.of(LocalDate.of(2024, 1, 2), Map.of(TargetCurrency.USD, 3.95))));
+
+        // Act
+        int stored = rateHistoryService.backfill(from, to);
+
+        // Assert
+        assertEquals(1, stored);
+        verify(nbpClient).getRateTables(from, LocalDate.of(2024, 4, 2));
+        verify(nbpClient).getRateTables(LocalDate.of(2024, 4, 3), to);
+        verifyNoMoreInteractions(nbpClient);
+        assertEquals(3.95, rateHistoryService.getRatesAsOf(LocalDate.of(2024, 3, 1)).getRates().get(TargetCurrency.USD));
+    }
+
+    @Test
+    void shouldAppendFetchedTablesToHistory() {
+        // Act
+        rateHistoryService.onRateTableFetched(new RateTableFetchedEvent(
+                CrossRateMatrix.of(LocalDate.of(2025, 1, 10), Map.of(TargetCurrency.USD, 4.2)), NOW));
+
+        // Assert
+        verify(rateTableRepository).save(any(RateTable.class));
+        assertEquals(4.2, rateHistoryService.getRatesAsOf(LocalDate.of(2025, 1, 10)).getRates().get(TargetCurrency.USD));
+    }
+
+    private static RateTable table(LocalDate effectiveDate, double usdMidRate, Instant fetchedAt) {
+        return new RateTable(effectiveDate, Map.of(TargetCurrency.USD, usdMidRate), fetchedAt);
+    }
+}
@@ -0,0 +1,95 @@
+package org.mgruszka.currency.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mgruszka.currency.model.CrossRateMatrix;
+import org.mgruszka.currency.model.RateTableDTO;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.mockito.Mockito;
+import org.reactivestreams.Subscription;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RateStreamTest {
+
+    private final RecentExchangeRateService recentExchangeRateService = Mockito.mock(RecentExchangeRateService.class);
+
+    private final RateStream rateStream = new RateStream(recentExchangeRateService, Duration.ofHours(1), new SimpleMeterRegistry());
+
+    @Test
+    void shouldStartWithCurrentRatesAndPushOnlyChanges() {
+        // Arrange
+        when(recentExchangeRateService.getRatesAsync()).thenReturn(CompletableFuture.completedFuture(rates(1, 4.0)));
+        Collector collector = new Collector(Long.MAX_VALUE);
+
+        // Act
+        rateStream.subscribe().subscribe(collector);
+        rateStream.publish(rates(2, 4.0));
+        rateStream.publish(rates(3, 4.1));
+        rateStream.subscribe().subscribe(new Collector(Long.MAX_VALUE));
+
+        // Assert
+        assertEquals(List.of(4.0, 4.1), collector.usdRates());
+        assertEquals(2, rateStream.subscriberCount());
+        verify(recentExchangeRateService, times(1)).getRatesAsync();
+        collector.dispose();
+        assertEquals(1, rateStream.subscriberCount());
+    }
+
+    @Test
+    void shouldSkipTablesSlowSubscriberCouldNotKeepUpWith() {
+        // Arrange
+        when(recentExchangeRateService.getRatesAsync()).thenReturn(CompletableFuture.completedFuture(rates(1, 4.0)));
+        Collector slow = new Collector(1);
+        rateStream.subscribe().subscribe(slow);
+
+        // Act
+        for (int day = 2; day <= 100; day++) {
+            rateStream.publish(rates(day, 4.0 + day / 100.0));
+        }
+        slow.request(Long.MAX_VALUE);
+
+        // Assert
+        assertEquals(List.of(4.0, 4.02, 5.0), slow.usdRates());
+        slow.dispose();
+    }
+
+    private static CrossRateMatrix rates(int day, double usdRate) {
+        return CrossRateMatrix.of(LocalDate.of(2025, 1, 1).plusDays(day), Map.of(TargetCurrency.USD, usdRate));
+    }
+
+    private static final class Collector extends BaseSubscriber<ServerSentEvent<RateTableDTO>> {
+        private final long initialRequest;
+        private final List<RateTableDTO> tables = new CopyOnWriteArrayList<>();
+
+        private Collector(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            request(initialRequest);
+        }
+
+        @Override
+        protected void hookOnNext(ServerSentEvent<RateTableDTO> event) {
+            if (RateStream.EVENT.equals(event.event())) {
+                tables.add(event.data());
+            }
+        }
+
+        List<Double> usdRates() {
+            return tables.stream().map(table -> table.getRates().get(TargetCurrency.USD)).toList();
+        }
+    }
+}
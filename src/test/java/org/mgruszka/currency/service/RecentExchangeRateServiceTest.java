@@ -0,0 +1,199 @@
+package org.mgruszka.currency.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mgruszka.currency.client.NbpClient;
+import org.mgruszka.currency.exceptions.NBApiException;
+import org.mgruszka.currency.model.CrossRateMatrix;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.mockito.Mockito;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RecentExchangeRateServiceTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-01-02T12:00:00Z"));
+
+    private final NbpClient nbpClient = Mockito.mock(NbpClient.class);
+
+    private final RecentExchangeRateService rateService =
+            new RecentExchangeRateService(nbpClient, Duration.ofMinutes(30), Duration.ofHours(24), new SimpleMeterRegistry(), event -> { }, clock);
+
+    @Test
+    void shouldServeCachedRateWithinTtlWithoutCallingNbp() {
+        // Arrange
+        when(nbpClient.getRateTableAsync())
+                .thenReturn(CompletableFuture.completedFuture(rates(4.0)))
+                .thenReturn(CompletableFuture.completedFuture(rates(5.0)));
+        rateService.getRates();
+
+        // Act
+        clock.advance(Duration.ofMinutes(20));
+        CrossRateMatrix rates = rateService.getRates();
+
+        // Assert
+        assertEquals(4.0, rates.getMidRates().get(TargetCurrency.USD));
+        verify(nbpClient, times(1)).getRateTableAsync();
+    }
+
+    @Test
+    void shouldCollapseConcurrentMissesIntoSingleNbpCall() throws Exception {
+        // Arrange
+        CompletableFuture<CrossRateMatrix> upstream = new CompletableFuture<>();
+        when(nbpClient.getRateTableAsync()).thenReturn(upstream);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<CrossRateMatrix>> results = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(rateService::getRates));
+        }
+        Thread.sleep(100);
+        upstream.complete(rates(4.0));
+
+        // Assert
+        for (Future<CrossRateMatrix> result : results) {
+            assertSame(upstream.join(), result.get(5, TimeUnit.SECONDS));
+        }
+        verify(nbpClient, times(1)).getRateTableAsync();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldServeLastGoodRateWhenNbpFailsWithinStalenessLimit() {
+        // Arrange
+        when(nbpClient.getRateTableAsync())
+                .thenReturn(CompletableFuture.completedFuture(rates(4.0)))
+                .thenReturn(CompletableFuture.failedFuture(new NBApiException("NBP down")));
+        rateService.getRates();
+        clock.advance(Duration.ofHours(2));
+
+        // Act
+        CrossRateMatrix rates = rateService.getRates();
+
+        // Assert
+        assertEquals(4.0, rates.getMidRates().get(TargetCurrency.USD));
+    }
+
+    @Test
+    void shouldThrowNBApiExceptionWhenCachedRateIsTooStaleAndNbpFails() {
+        // Arrange
+        when(nbpClient.getRateTableAsync())
+                .thenReturn(CompletableFuture.completedFuture(rates(4.0)))
+                .thenReturn(CompletableFuture.failedFuture(new NBApiException("NBP down")));
+        rateService.getRates();
+        clock.advance(Duration.ofHours(25));
+
+        // Act & Assert
+        assertThrows(NBApiException.class, rateService::getRates);
+    }
+
+    @Test
+    void shouldServeSeededRatesWithoutCallingNbpUntilTheyExpire() {
+        // Arrange
+        when(nbpClient.getRateTableAsync()).thenReturn(CompletableFuture.completedFuture(rates(5.0)));
+        rateService.seed(rates(4.0), clock.instant().minus(Duration.ofMinutes(10)));
+
+        // Act
+        CrossRateMatrix seeded = rateService.getRates();
+        clock.advance(Duration.ofHours(25));
+        CrossRateMatrix fetched = rateService.getRates();
+
+        // Assert
+        assertEquals(4.0, seeded.getMidRates().get(TargetCurrency.USD));
+        assertEquals(5.0, fetched.getMidRates().get(TargetCurrency.USD));
+        verify(nbpClient, times(1)).getRateTableAsync();
+    }
+
+    @Test
+    void shouldPublishFetchedEventOnlyForTablesThisInstanceGotFromNbp() {
+        // Arrange
+        SharedRates sharedRates = Mockito.mock(SharedRates.class);
+        Instant sharedAt = clock.instant().minus(Duration.ofMinutes(5));
+        when(sharedRates.fetch(any())).thenReturn(CompletableFuture.completedFuture(
+                new RecentExchangeRateService.CachedRates(rates(4.0), sharedAt, false)));
+        List<Object> events = new ArrayList<>();
+        RecentExchangeRateService follower = new RecentExchangeRateService(nbpClient, Duration.ofMinutes(30), Duration.ofHours(24),
+                new SimpleMeterRegistry(), events::add, clock, sharedRates);
+
+        // Act
+        follower.getRates();
+        follower.accept(new RecentExchangeRateService.CachedRates(rates(3.0), sharedAt.minusSeconds(1), false));
+        follower.accept(new RecentExchangeRateService.CachedRates(rates(4.5), clock.instant(), false));
+
+        // Assert
+        assertEquals(4.5, follower.getRates().getMidRates().get(TargetCurrency.USD));
+        assertEquals(List.of(sharedAt, clock.instant()),
+                events.stream().map(event -> ((RateTableReceivedEvent) event).fetchedAt()).toList());
+        verify(sharedRates, times(1)).fetch(any());
+        verifyNoInteractions(nbpClient);
+    }
+
+    @Test
+    void shouldKeepNewerTableWatcherServedWhenSlowerReadOfSharedTableCompletes() {
+        // Arrange
+        SharedRates sharedRates = Mockito.mock(SharedRates.class);
+        CompletableFuture<RecentExchangeRateService.CachedRates> read = new CompletableFuture<>();
+        when(sharedRates.fetch(any())).thenReturn(read);
+        List<Object> events = new ArrayList<>();
+        RecentExchangeRateService follower = new RecentExchangeRateService(nbpClient, Duration.ofMinutes(30), Duration.ofHours(24),
+                new SimpleMeterRegistry(), events::add, clock, sharedRates);
+        CompletableFuture<RecentExchangeRateService.CachedRates> refresh = follower.refresh();
+
+        // Act
+        follower.accept(new RecentExchangeRateService.CachedRates(rates(4.5), clock.instant(), false));
+        read.complete(new RecentExchangeRateService.CachedRates(rates(4.0), clock.instant().minusSeconds(1), false));
+
+        // Assert
+        assertEquals(4.5, refresh.join().rates().getMidRates().get(TargetCurrency.USD));
+        assertEquals(4.5, follower.getRates().getMidRates().get(TargetCurrency.USD));
+        assertEquals(1, events.size());
+    }
+
+    private static CrossRateMatrix rates(double usdMidRate) {
+        return CrossRateMatrix.of(LocalDate.of(2025, 1, 2), Map.of(TargetCurrency.USD, usdMidRate));
+    }
+
+    private static class MutableClock extends Clock {
+        private volatile Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
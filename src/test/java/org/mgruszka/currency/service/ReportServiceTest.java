@@ -0,0 +1,59 @@
+package org.mgruszka.currency.service;
+
+import org.junit.jupiter.api.Test;
+import org.mgruszka.currency.model.Account;
+import org.mgruszka.currency.model.BalanceBucket;
+import org.mgruszka.currency.model.BalanceBucketDTO;
+import org.mgruszka.currency.model.TargetCurrency;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportServiceTest {
+
+    @Test
+    void shouldStartBucketsAtZeroAndIgnoreInvalidThresholds() {
+        // Act
+        long[] boundaries = ReportService.boundaries(List.of(1000.0, -5.0, 100.0, 1000.0, 0.0));
+
+        // Assert
+        assertArrayEquals(new long[]{0, 10000, 100000}, boundaries);
+    }
+
+    @Test
+    void shouldReturnEmptyBucketsLeftOutByAggregation() {
+        // Arrange
+        long[] boundaries = {0, 10000, 100000};
+        List<BalanceBucket> buckets = List.of(new BalanceBucket(10000, 2, 30000));
+
+        // Act
+        List<BalanceBucketDTO> result = ReportService.toDTOs(boundaries, buckets);
+
+        // Assert
+        assertEquals(3, result.size());
+        assertEquals(0, result.get(0).getAccounts());
+        assertEquals(100.0, result.get(1).getFrom());
+        assertEquals(1000.0, result.get(1).getTo());
+        assertEquals(2, result.get(1).getAccounts());
+        assertEquals(300.0, result.get(1).getTotal());
+        assertNull(result.get(2).getTo());
+    }
+
+    @Test
+    void shouldQuoteCsvFieldsContainingSeparatorsOrQuotes() {
+        // Arrange
+        Account account = new Account();
+        account.setId("account-id");
+        account.setFirstName("Jan \"Johnny\"");
+        account.setLastName("Kowalski, Jr.");
+        account.setBalance(TargetCurrency.PLN, 123450);
+
+        // Act
+        String row = ReportService.toCsv(account);
+
+        // Assert
+        assertTrue(row.startsWith("account-id,\"Jan \"\"Johnny\"\"\",\"Kowalski, Jr.\",1234.50,0.00,"));
+        assertTrue(row.endsWith("\n"));
+    }
+}
@@ -0,0 +1,115 @@
+package org.mgruszka.currency.service;
+
+import com.mongodb.client.model.Filters;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mgruszka.currency.model.CrossRateMatrix;
+import org.mgruszka.currency.model.Lease;
+import org.mgruszka.currency.model.SharedRateTable;
+import org.mgruszka.currency.model.TargetCurrency;
+import org.mgruszka.currency.repository.Leases;
+import org.mgruszka.currency.service.RecentExchangeRateService.CachedRates;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+class SharedRatesTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-01-02T12:00:00Z"), ZoneOffset.UTC);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final AtomicInteger nbpCalls = new AtomicInteger();
+    private List<SharedRates> instances;
+
+    @BeforeEach
+    void setUp() {
+        removeSharedState();
+        Leases leases = new Leases(mongoTemplate);
+        instances = IntStream.range(0, 5)
+                .mapToObj(i -> new SharedRates(leases, mongoTemplate, "instance-" + i, Duration.ofMinutes(15), new SimpleMeterRegistry(), CLOCK))
+                .toList();
+    }
+
+    @AfterEach
+    void tearDown() {
+        instances.forEach(SharedRates::destroy);
+        removeSharedState();
+    }
+
+    @Test
+    void whenManyInstancesRefreshThenOnlyLeaderCallsNbpAndAllPriceWithItsTable() {
+        for (int round = 0; round < 3; round++) {
+            for (SharedRates instance : instances) {
+                CachedRates rates = instance.fetch(this::nbp).join();
+
+                assertEquals(4.0, rates.rates().getMidRates().get(TargetCurrency.USD));
+                assertEquals(CLOCK.instant(), rates.fetchedAt());
+            }
+        }
+
+        assertEquals(3, nbpCalls.get());
+        assertTrue(instances.getFirst().isLeader());
+        assertEquals(1, instances.stream().filter(SharedRates::isLeader).count());
+        assertEquals("instance-0", mongoTemplate.findById(SharedRates.TABLE, SharedRateTable.class).getFetchedBy());
+    }
+
+    @Test
+    void whenLeaderStopsThenAnotherInstanceTakesOver() {
+        instances.get(0).fetch(this::nbp).join();
+
+        instances.get(0).destroy();
+        instances.get(1).fetch(this::nbp).join();
+
+        assertTrue(instances.get(1).isLeader());
+        assertEquals(2, nbpCalls.get());
+    }
+
+    @Test
+    void whenLeaderSharesTableThenWatcherHandsItOnlyToOtherInstances() {
+        RecentExchangeRateService leaderRates = Mockito.mock(RecentExchangeRateService.class);
+        RecentExchangeRateService followerRates = Mockito.mock(RecentExchangeRateService.class);
+        instances.get(0).fetch(this::nbp).join();
+        Document shared = mongoTemplate.getCollection(mongoTemplate.getCollectionName(SharedRateTable.class))
+                .find(Filters.eq("_id", SharedRates.TABLE)).first();
+
+        new SharedRatesWatcher(mongoTemplate, instances.get(0), leaderRates).received(shared);
+        new SharedRatesWatcher(mongoTemplate, instances.get(1), followerRates).received(shared);
+
+        verify(leaderRates, never()).accept(any());
+        verify(followerRates).accept(argThat(rates -> !rates.fetchedHere() && rates.fetchedAt().equals(CLOCK.instant())
+                && rates.rates().getMidRates().get(TargetCurrency.USD) == 4.0));
+    }
+
+    private CompletableFuture<CrossRateMatrix> nbp() {
+        nbpCalls.incrementAndGet();
+        return CompletableFuture.completedFuture(CrossRateMatrix.of(LocalDate.of(2025, 1, 2), Map.of(TargetCurrency.USD, 4.0)));
+    }
+
+    private void removeSharedState() {
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(SharedRates.LEASE)), Lease.class);
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(SharedRates.TABLE)), SharedRateTable.class);
+    }
+}